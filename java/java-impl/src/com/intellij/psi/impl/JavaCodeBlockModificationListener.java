@@ -56,10 +56,13 @@ public class JavaCodeBlockModificationListener implements PsiTreeChangePreproces
         break;
 
       case CHILD_MOVED:
-      case PROPERTY_CHANGED:
         myModificationTracker.incCounter();
         break;
 
+      case PROPERTY_CHANGED:
+        myModificationTracker.incCounter(event.getFile());
+        break;
+
       default:
         LOG.error("Unknown code:" + event.getCode());
         break;
@@ -72,16 +75,16 @@ public class JavaCodeBlockModificationListener implements PsiTreeChangePreproces
         if (parent != null && isClassOwner(parent.getContainingFile()) ||
             isClassOwner(child1) || isClassOwner(child2) || isSourceDir(parent) ||
             (parent != null && isClassOwner(parent.getParent()))) {
-          myModificationTracker.incCounter();
+          myModificationTracker.incCounter(parent);
         }
         else {
-          myModificationTracker.incOutOfCodeBlockModificationCounter();
+          myModificationTracker.incOutOfCodeBlockModificationCounter(parent);
         }
         return;
       }
 
       if (containsClassesInside(child1) || child2 != child1 && containsClassesInside(child2)) {
-        myModificationTracker.incCounter();
+        myModificationTracker.incCounter(parent);
       }
     }
     catch (PsiInvalidElementAccessException e) {
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.impl.search;
+
+import com.intellij.ide.highlighter.JavaFileType;
+import com.intellij.lang.java.JavaParserDefinition;
+import com.intellij.lang.java.parser.JavaParserUtil;
+import com.intellij.lexer.TokenBuffer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.pom.java.LanguageLevel;
+import com.intellij.psi.JavaTokenType;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.impl.source.tree.ElementType;
+import com.intellij.psi.search.DelegatingGlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.SystemProperties;
+import com.intellij.util.containers.IntArrayList;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import gnu.trove.TIntHashSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps method names to the numbers of arguments they are called with in java files. Allows method usages search
+ * to skip java files which mention method name only in calls with different number of arguments, e.g. <code>map.get(key)</code>
+ * when usages of <code>Provider.get()</code> are searched.
+ * <p/>
+ * The index is lexer-based, so it can't tell which method is called. It's conservative instead: method references
+ * (<code>::name</code>), static imports, annotation attributes and mentions in comments and literals are recorded as
+ * calls with {@link #ANY_ARITY any} number of arguments, as well as calls whose arguments can't be reliably counted
+ * (e.g. contain generic types).
+ * <p/>
+ * The index is disabled unless <code>'idea.java.method.call.arity.index.enabled'</code> system property is set to true.
+ */
+public class JavaMethodCallArityIndex extends ScalarIndexExtension<String> {
+  public static final boolean ENABLED = SystemProperties.getBooleanProperty("idea.java.method.call.arity.index.enabled", false);
+
+  public static final ID<String, Void> INDEX_ID = ID.create("java.method.call.arity");
+
+  private static final String ANY_ARITY = "*";
+  private static final int MAX_ARITY = 32;
+
+  private static final FileBasedIndex.InputFilter INPUT_FILTER = new FileBasedIndex.InputFilter() {
+    @Override
+    public boolean acceptInput(VirtualFile file) {
+      return file.getFileType() == JavaFileType.INSTANCE;
+    }
+  };
+  private static final FileBasedIndex.InputFilter NO_FILES = new FileBasedIndex.InputFilter() {
+    @Override
+    public boolean acceptInput(VirtualFile file) {
+      return false;
+    }
+  };
+
+  @NotNull
+  @Override
+  public ID<String, Void> getName() {
+    return INDEX_ID;
+  }
+
+  @NotNull
+  @Override
+  public DataIndexer<String, Void, FileContent> getIndexer() {
+    return new DataIndexer<String, Void, FileContent>() {
+      @Override
+      @NotNull
+      public Map<String, Void> map(FileContent inputData) {
+        Map<String, Void> result = new THashMap<String, Void>();
+        TokenBuffer tokens = JavaParserUtil.getIndexingTokens(inputData.getPsiFile(), inputData.getContentAsText());
+        for (String key : collectKeys(tokens)) {
+          result.put(key, null);
+        }
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public KeyDescriptor<String> getKeyDescriptor() {
+    return new EnumeratorStringDescriptor();
+  }
+
+  @Override
+  public FileBasedIndex.InputFilter getInputFilter() {
+    return ENABLED ? INPUT_FILTER : NO_FILES;
+  }
+
+  @Override
+  public boolean dependsOnFileContent() {
+    return true;
+  }
+
+  @Override
+  public int getVersion() {
+    return ENABLED ? 3 : 1;
+  }
+
+  /**
+   * Narrows the given scope to non-java files and java files which may contain calls of given methods.
+   * Is expected to be called under read action.
+   *
+   * @param methods   methods with the same name
+   * @return          the given scope if the index is disabled or some of the methods may be called with arbitrary number of arguments
+   */
+  @NotNull
+  public static GlobalSearchScope restrictToPossibleCalls(@NotNull GlobalSearchScope scope, @NotNull PsiMethod[] methods) {
+    if (!ENABLED || methods.length == 0) return scope;
+
+    String name = methods[0].getName();
+    TIntHashSet arities = new TIntHashSet();
+    for (PsiMethod method : methods) {
+      if (method.isVarArgs() || method.isConstructor() || !name.equals(method.getName())) return scope;
+      arities.add(method.getParameterList().getParametersCount());
+    }
+
+    final Set<VirtualFile> files = new THashSet<VirtualFile>();
+    FileBasedIndex index = FileBasedIndex.getInstance();
+    files.addAll(index.getContainingFiles(INDEX_ID, name + "/" + ANY_ARITY, scope));
+    for (int arity : arities.toArray()) {
+      files.addAll(index.getContainingFiles(INDEX_ID, getKey(name, arity), scope));
+    }
+
+    return new DelegatingGlobalSearchScope(scope) {
+      @Override
+      public boolean contains(VirtualFile file) {
+        return super.contains(file) && (file.getFileType() != JavaFileType.INSTANCE || files.contains(file));
+      }
+    };
+  }
+
+  @NotNull
+  private static String getKey(@NotNull String name, int arity) {
+    return name + "/" + (arity < 0 || arity > MAX_ARITY ? ANY_ARITY : String.valueOf(arity));
+  }
+
+  @NotNull
+  static Set<String> collectKeys(@NotNull CharSequence text) {
+    return collectKeys(TokenBuffer.lex(JavaParserDefinition.createLexer(LanguageLevel.HIGHEST), text));
+  }
+
+  @NotNull
+  private static Set<String> collectKeys(@NotNull TokenBuffer tokens) {
+    Set<String> result = new THashSet<String>();
+
+    CharSequence text = tokens.getText();
+    List<IElementType> types = new ArrayList<IElementType>();
+    IntArrayList starts = new IntArrayList();
+    IntArrayList ends = new IntArrayList();
+    IElementType type;
+    for (int i = 0; i < tokens.getTokenCount(); i++) {
+      type = tokens.getTokenType(i);
+      if (ElementType.JAVA_COMMENT_BIT_SET.contains(type) ||
+          type == JavaTokenType.STRING_LITERAL || type == JavaTokenType.CHARACTER_LITERAL) {
+        // e.g. javadoc links or reflective access
+        addWordsWithAnyArity(text, tokens.getTokenStart(i), tokens.getTokenEnd(i), result);
+      }
+      else if (type != TokenType.WHITE_SPACE) {
+        types.add(type);
+        starts.add(tokens.getTokenStart(i));
+        ends.add(tokens.getTokenEnd(i));
+      }
+    }
+
+    boolean inImport = false;
+    for (int i = 0; i < types.size(); i++) {
+      type = types.get(i);
+      if (type == JavaTokenType.IMPORT_KEYWORD) {
+        inImport = true;
+      }
+      else if (type == JavaTokenType.SEMICOLON) {
+        inImport = false;
+      }
+      else if (type == JavaTokenType.IDENTIFIER) {
+        String name = text.subSequence(starts.get(i), ends.get(i)).toString();
+        IElementType prev = i > 0 ? types.get(i - 1) : null;
+        IElementType next = i + 1 < types.size() ? types.get(i + 1) : null;
+        if (inImport || prev == JavaTokenType.DOUBLE_COLON || next == JavaTokenType.EQ) {
+          result.add(getKey(name, -1));
+        }
+        else if (next == JavaTokenType.LPARENTH) {
+          result.add(getKey(name, countArguments(types, i + 1)));
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return    number of arguments in the parenthesized list started at the given token; <code>-1</code> if it can't be
+   *            reliably determined, e.g. commas may belong to generic type arguments like in <code>foo(new Pair&lt;A, B&gt;())</code>
+   */
+  private static int countArguments(@NotNull List<IElementType> types, int lParenthIndex) {
+    if (lParenthIndex + 1 < types.size() && types.get(lParenthIndex + 1) == JavaTokenType.RPARENTH) return 0;
+    int depth = 0;
+    int commas = 0;
+    for (int i = lParenthIndex; i < types.size(); i++) {
+      IElementType type = types.get(i);
+      if (type == JavaTokenType.LPARENTH || type == JavaTokenType.LBRACKET || type == JavaTokenType.LBRACE) {
+        depth++;
+      }
+      else if (type == JavaTokenType.RPARENTH || type == JavaTokenType.RBRACKET || type == JavaTokenType.RBRACE) {
+        if (--depth == 0) return commas + 1;
+      }
+      else if (depth == 1) {
+        if (type == JavaTokenType.COMMA) {
+          commas++;
+        }
+        else if (type == JavaTokenType.LT || type == JavaTokenType.GT) {
+          return -1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static void addWordsWithAnyArity(@NotNull CharSequence text, int start, int end, @NotNull Set<String> result) {
+    int i = start;
+    while (i < end) {
+      if (Character.isJavaIdentifierStart(text.charAt(i))) {
+        int wordStart = i;
+        while (i < end && Character.isJavaIdentifierPart(text.charAt(i))) i++;
+        result.add(getKey(text.subSequence(wordStart, i).toString(), -1));
+      }
+      else {
+        i++;
+      }
+    }
+  }
+}
@@ -5,6 +5,7 @@ import com.intellij.openapi.application.QueryExecutorBase;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.*;
+import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.SearchRequestCollector;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.psi.search.UsageSearchContext;
@@ -82,8 +83,13 @@ public class MethodUsagesSearcher extends QueryExecutorBase<PsiReference, Method
 
         SearchScope restrictedByAccessScope = searchScope.intersectWith(accessScope);
 
+        SearchScope wordSearchScope = restrictedByAccessScope;
+        if (!isConstructor[0] && wordSearchScope instanceof GlobalSearchScope) {
+          wordSearchScope = JavaMethodCallArityIndex.restrictToPossibleCalls((GlobalSearchScope)wordSearchScope, methods);
+        }
+
         short searchContext = UsageSearchContext.IN_CODE | UsageSearchContext.IN_COMMENTS | UsageSearchContext.IN_FOREIGN_LANGUAGES;
-        collector.searchWord(methodName[0], restrictedByAccessScope, searchContext, true,
+        collector.searchWord(methodName[0], wordSearchScope, searchContext, true,
                              new MethodTextOccurrenceProcessor(aClass, strictSignatureSearch, methods));
 
         SimpleAccessorReferenceSearcher.addPropertyAccessUsages(method, restrictedByAccessScope, collector);
@@ -19,11 +19,12 @@ import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.tree.TokenSet;
 import com.intellij.psi.tree.java.IJavaElementType;
 import com.intellij.psi.tree.java.IKeywordElementType;
+import com.intellij.psi.tree.java.IReparseableJavaTokenType;
 
 public interface JavaTokenType extends TokenType {
-  IElementType IDENTIFIER = new IJavaElementType("IDENTIFIER");
-  IElementType C_STYLE_COMMENT = new IJavaElementType("C_STYLE_COMMENT");
-  IElementType END_OF_LINE_COMMENT = new IJavaElementType("END_OF_LINE_COMMENT");
+  IElementType IDENTIFIER = new IReparseableJavaTokenType("IDENTIFIER");
+  IElementType C_STYLE_COMMENT = new IReparseableJavaTokenType("C_STYLE_COMMENT");
+  IElementType END_OF_LINE_COMMENT = new IReparseableJavaTokenType("END_OF_LINE_COMMENT");
 
   IElementType INTEGER_LITERAL = new IJavaElementType("INTEGER_LITERAL");
   IElementType LONG_LITERAL = new IJavaElementType("LONG_LITERAL");
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.tree.java;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.lang.LanguageParserDefinitions;
+import com.intellij.lang.ParserDefinition;
+import com.intellij.lang.java.JavaLanguage;
+import com.intellij.lexer.Lexer;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.javadoc.PsiDocComment;
+import com.intellij.psi.tree.IReparseableLeafElementType;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Java token whose text doesn't affect the parser, e.g. an identifier or a comment, so the token can be
+ * replaced in the tree as long as it's lexed the same way together with its neighbours.
+ */
+public class IReparseableJavaTokenType extends IJavaElementType implements IReparseableLeafElementType {
+  public IReparseableJavaTokenType(@NonNls String debugName) {
+    super(debugName);
+  }
+
+  @Override
+  public boolean isReparseable(@NotNull ASTNode leaf, @NotNull CharSequence newText) {
+    PsiElement psi = leaf.getPsi();
+    // javadoc tokens are lexed differently
+    if (psi == null || PsiTreeUtil.getParentOfType(psi, PsiDocComment.class) != null) return false;
+
+    PsiElement prev = PsiTreeUtil.prevLeaf(psi, true);
+    PsiElement next = PsiTreeUtil.nextLeaf(psi, true);
+    CharSequence prevText = prev != null ? prev.getNode().getChars() : "";
+    CharSequence nextText = next != null ? next.getNode().getChars() : "";
+    StringBuilder text = new StringBuilder(prevText.length() + newText.length() + nextText.length());
+    text.append(prevText).append(newText).append(nextText);
+
+    // the project language level isn't necessarily the file one, so the highest level lexer is used (the one with the most
+    // keywords): an identifier which is a keyword on some level is rejected and the file is reparsed as usual
+    ParserDefinition definition = LanguageParserDefinitions.INSTANCE.forLanguage(JavaLanguage.INSTANCE);
+    if (definition == null) return false;
+    Lexer lexer = definition.createLexer(null);
+    lexer.start(text);
+    if (prevText.length() > 0) {
+      if (lexer.getTokenEnd() != prevText.length()) return false;
+      lexer.advance();
+    }
+    return lexer.getTokenType() == this &&
+           lexer.getTokenStart() == prevText.length() &&
+           lexer.getTokenEnd() == prevText.length() + newText.length();
+  }
+}
@@ -21,6 +21,7 @@ import com.intellij.lang.impl.PsiBuilderAdapter;
 import com.intellij.lang.java.JavaLanguage;
 import com.intellij.lang.java.JavaParserDefinition;
 import com.intellij.lexer.Lexer;
+import com.intellij.lexer.TokenBuffer;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Key;
@@ -29,6 +30,7 @@ import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.pom.java.LanguageLevel;
 import com.intellij.psi.JavaTokenType;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.impl.source.tree.ElementType;
 import com.intellij.psi.impl.source.tree.JavaDocElementType;
 import com.intellij.psi.impl.source.tree.JavaElementType;
@@ -46,6 +48,7 @@ import java.util.List;
 public class JavaParserUtil {
   private static final Key<LanguageLevel> LANG_LEVEL_KEY = Key.create("JavaParserUtil.LanguageLevel");
   private static final Key<Boolean> DEEP_PARSE_BLOCKS_IN_STATEMENTS = Key.create("JavaParserUtil.ParserExtender");
+  private static final Key<Pair<LanguageLevel, TokenBuffer>> INDEXING_TOKENS_KEY = Key.create("JavaParserUtil.IndexingTokens");
 
   public interface ParserWrapper {
     void parse(PsiBuilder builder);
@@ -164,7 +167,9 @@ public class JavaParserUtil {
 
     final PsiBuilderFactory factory = PsiBuilderFactory.getInstance();
     final LanguageLevel level = PsiUtil.getLanguageLevel(psi);
-    final Lexer lexer = JavaParserDefinition.createLexer(level);
+    final Lexer lexer = psi instanceof PsiFile && text == psi.getUserData(IndexingDataKeys.FILE_TEXT_CONTENT_KEY)
+                        ? getIndexingTokens((PsiFile)psi, text).createLexer()
+                        : JavaParserDefinition.createLexer(level);
     Language language = psi.getLanguage();
     if (!language.isKindOf(JavaLanguage.INSTANCE)) language = JavaLanguage.INSTANCE;
     final PsiBuilder builder = factory.createBuilder(project, chameleon, lexer, language, text);
@@ -173,6 +178,27 @@ public class JavaParserUtil {
     return builder;
   }
 
+  /**
+   * Returns tokens of the content of a java file being indexed lexed at the file language level. The tokens are remembered
+   * in the light file created for indexing of that content (and dropped with it), so stub building and other indexers
+   * of the same file content don't lex it again. Tokens of other files (e.g. PSI of open files passed to indexing)
+   * aren't remembered, since such files live much longer than indexing.
+   */
+  @NotNull
+  public static TokenBuffer getIndexingTokens(@NotNull PsiFile file, @NotNull CharSequence text) {
+    LanguageLevel level = PsiUtil.getLanguageLevel(file);
+    if (file.getUserData(IndexingDataKeys.VIRTUAL_FILE) == null) {
+      return TokenBuffer.lex(JavaParserDefinition.createLexer(level), text);
+    }
+
+    Pair<LanguageLevel, TokenBuffer> tokens = file.getUserData(INDEXING_TOKENS_KEY);
+    if (tokens == null || tokens.first != level || tokens.second.getText() != text) {
+      tokens = Pair.create(level, TokenBuffer.lex(JavaParserDefinition.createLexer(level), text));
+      file.putUserData(INDEXING_TOKENS_KEY, tokens);
+    }
+    return tokens.second;
+  }
+
   @NotNull
   public static PsiBuilder createBuilder(final LighterLazyParseableNode chameleon) {
     final PsiElement psi = chameleon.getContainingFile();
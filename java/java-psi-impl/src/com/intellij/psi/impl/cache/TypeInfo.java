@@ -51,6 +51,9 @@ import static com.intellij.util.BitUtil.isSet;
 public class TypeInfo {
   private static final String[] ourIndexFrequentType;
   private static final TObjectIntHashMap<String> ourFrequentTypeIndex;
+  // shared instances of frequent types without arrays and annotations, most types in stubs are such
+  private static final StringRef[] ourFrequentTypeRefs;
+  private static final TypeInfo[] ourFrequentTypeInfos;
 
   static {
     ourIndexFrequentType = new String[]{
@@ -72,9 +75,13 @@ public class TypeInfo {
     };
 
     ourFrequentTypeIndex = new TObjectIntHashMap<String>();
+    ourFrequentTypeRefs = new StringRef[ourIndexFrequentType.length];
+    ourFrequentTypeInfos = new TypeInfo[ourIndexFrequentType.length];
     for (int i = 0; i < ourIndexFrequentType.length; i++) {
       String type = ourIndexFrequentType[i];
       ourFrequentTypeIndex.put(type, i);
+      ourFrequentTypeRefs[i] = StringRef.fromString(type);
+      ourFrequentTypeInfos[i] = new TypeInfo(ourFrequentTypeRefs[i], (byte)0, false, ContainerUtil.<PsiAnnotationStub>emptyList());
     }
   }
 
@@ -186,7 +193,7 @@ public class TypeInfo {
       text = LightTreeUtil.toFilteredString(tree, typeElement, null);
     }
 
-    return new TypeInfo(text, arrayCount, isEllipsis, ContainerUtil.<PsiAnnotationStub>emptyList());
+    return create(text, arrayCount, isEllipsis);
   }
 
   @NotNull
@@ -199,7 +206,16 @@ public class TypeInfo {
       typeText = typeText.substring(0, typeText.length() - 2);
     }
 
-    return new TypeInfo(typeText, arrayCount, isEllipsis, ContainerUtil.<PsiAnnotationStub>emptyList());
+    return create(typeText, arrayCount, isEllipsis);
+  }
+
+  @NotNull
+  private static TypeInfo create(@Nullable String text, byte arrayCount, boolean isEllipsis) {
+    if (text != null && arrayCount == 0 && !isEllipsis) {
+      int frequentIndex = ourFrequentTypeIndex.get(text);
+      if (frequentIndex != 0) return ourFrequentTypeInfos[frequentIndex];
+    }
+    return new TypeInfo(text, arrayCount, isEllipsis, ContainerUtil.<PsiAnnotationStub>emptyList());
   }
 
   @NotNull
@@ -224,7 +240,10 @@ public class TypeInfo {
     byte arrayCount = isSet(flags, HAS_ARRAY_COUNT) ? record.readByte() : 0;
     boolean hasEllipsis = isSet(flags, HAS_ELLIPSIS);
 
-    StringRef text = frequentIndex == 0 ? record.readName() : StringRef.fromString(ourIndexFrequentType[frequentIndex]);
+    if (frequentIndex != 0 && arrayCount == 0 && !hasEllipsis) {
+      return ourFrequentTypeInfos[frequentIndex];
+    }
+    StringRef text = frequentIndex == 0 ? record.readName() : ourFrequentTypeRefs[frequentIndex];
 
     return new TypeInfo(text, arrayCount, hasEllipsis, ContainerUtil.<PsiAnnotationStub>emptyList());
   }
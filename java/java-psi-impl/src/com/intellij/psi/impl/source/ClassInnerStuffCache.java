@@ -15,14 +15,13 @@
  */
 package com.intellij.psi.impl.source;
 
+import com.intellij.openapi.extensions.Extensions;
 import com.intellij.openapi.util.ModificationTracker;
-import com.intellij.psi.ExternallyDefinedPsiElement;
-import com.intellij.psi.PsiClass;
-import com.intellij.psi.PsiField;
-import com.intellij.psi.PsiMethod;
+import com.intellij.psi.*;
 import com.intellij.psi.augment.PsiAugmentProvider;
 import com.intellij.psi.impl.PsiClassImplUtil;
 import com.intellij.psi.impl.PsiImplUtil;
+import com.intellij.psi.impl.PsiModificationTrackerImpl;
 import com.intellij.psi.util.CachedValue;
 import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValuesManager;
@@ -58,7 +57,7 @@ public class ClassInnerStuffCache {
     CachedValue<PsiMethod[]> cache = myConstructorsCache;
     if (cache == null) {
       final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-      final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+      final Object[] dependencies = getDependencies();
 
       myConstructorsCache = cache = manager.createCachedValue(new CachedValueProvider<PsiMethod[]>() {
         @Override
@@ -77,7 +76,7 @@ public class ClassInnerStuffCache {
     CachedValue<PsiField[]> cache = myFieldsCache;
     if (cache == null) {
       final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-      final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+      final Object[] dependencies = getDependencies();
 
       myFieldsCache = cache = manager.createCachedValue(new CachedValueProvider<PsiField[]>() {
         @Override
@@ -95,7 +94,7 @@ public class ClassInnerStuffCache {
     CachedValue<PsiMethod[]> cache = myMethodsCache;
     if (cache == null) {
       final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-      final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+      final Object[] dependencies = getDependencies();
 
       myMethodsCache = cache = manager.createCachedValue(new CachedValueProvider<PsiMethod[]>() {
         @Override
@@ -113,7 +112,7 @@ public class ClassInnerStuffCache {
     CachedValue<PsiClass[]> cache = myInnerClassesCache;
     if (cache == null) {
       final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-      final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+      final Object[] dependencies = getDependencies();
 
       myInnerClassesCache = cache = manager.createCachedValue(new CachedValueProvider<PsiClass[]>() {
         @Override
@@ -132,7 +131,7 @@ public class ClassInnerStuffCache {
       CachedValue<Map<String, PsiField>> cache = myFieldsMapCache;
       if (cache == null) {
         final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-        final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+        final Object[] dependencies = getDependencies();
 
         myFieldsMapCache = cache = manager.createCachedValue(new CachedValueProvider<Map<String, PsiField>>() {
           @Override
@@ -153,7 +152,7 @@ public class ClassInnerStuffCache {
       CachedValue<Map<String, List<PsiMethod>>> cache = myMethodsMapCache;
       if (cache == null) {
         final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-        final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+        final Object[] dependencies = getDependencies();
 
         myMethodsMapCache = cache = manager.createCachedValue(new CachedValueProvider<Map<String, List<PsiMethod>>>() {
           @Override
@@ -180,7 +179,7 @@ public class ClassInnerStuffCache {
       CachedValue<Map<String, PsiClass>> cache = myInnerClassesMapCache;
       if (cache == null) {
         final CachedValuesManager manager = CachedValuesManager.getManager(myClass.getProject());
-        final Object[] dependencies = {PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+        final Object[] dependencies = getDependencies();
 
         myInnerClassesMapCache = cache = manager.createCachedValue(new CachedValueProvider<Map<String, PsiClass>>() {
           @Override
@@ -196,6 +195,20 @@ public class ClassInnerStuffCache {
     return PsiClassImplUtil.findInnerByName(myClass, name, checkBases);
   }
 
+  /**
+   * Members of a source class depend on its own file only, unless augment providers contribute members which may depend on other files.
+   */
+  @NotNull
+  private Object[] getDependencies() {
+    PsiFile file = myClass.getContainingFile();
+    PsiModificationTracker tracker = myClass.getManager().getModificationTracker();
+    if (file == null || myClass instanceof PsiCompiledElement || !(tracker instanceof PsiModificationTrackerImpl) ||
+        Extensions.getExtensions(PsiAugmentProvider.EP_NAME).length > 0) {
+      return new Object[]{PsiModificationTracker.OUT_OF_CODE_BLOCK_MODIFICATION_COUNT, myTreeChangeTracker};
+    }
+    return new Object[]{((PsiModificationTrackerImpl)tracker).getOutOfCodeBlockModificationTracker(file), myTreeChangeTracker};
+  }
+
   private PsiField[] getAllFields() {
     final List<PsiField> own = myClass.getOwnFields();
     final List<PsiField> ext = PsiAugmentProvider.collectAugments(myClass, PsiField.class);
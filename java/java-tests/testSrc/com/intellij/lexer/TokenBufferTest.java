@@ -0,0 +1,104 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.lexer;
+
+import com.intellij.lang.java.JavaParserDefinition;
+import com.intellij.pom.java.LanguageLevel;
+import junit.framework.TestCase;
+
+public class TokenBufferTest extends TestCase {
+  private static final String TEXT = "package p;\n" +
+                                     "/** doc {@link Foo#bar(int)} */\n" +
+                                     "class Foo<T extends Comparable<T>> {\n" +
+                                     "  // comment\n" +
+                                     "  int bar(int i) { return i << 2 >>> 1; }\n" +
+                                     "  String s = \"a\\\"b\" + 'c' + 0x1FL + 1.5e3f;\n" +
+                                     "  /* unterminated";
+
+  public void testReplayMatchesLexer() {
+    TokenBuffer tokens = lex(TEXT);
+    Lexer expected = JavaParserDefinition.createLexer(LanguageLevel.HIGHEST);
+    expected.start(TEXT);
+    Lexer actual = tokens.createLexer();
+    actual.start(tokens.getText());
+    assertSameTokens(expected, actual);
+
+    actual.start(tokens.getText());
+    for (int i = 0; i < tokens.getTokenCount(); i++) {
+      assertEquals(actual.getTokenType(), tokens.getTokenType(i));
+      assertEquals(actual.getTokenStart(), tokens.getTokenStart(i));
+      assertEquals(actual.getTokenEnd(), tokens.getTokenEnd(i));
+      actual.advance();
+    }
+    assertNull(actual.getTokenType());
+  }
+
+  public void testReplayFromTokenStart() {
+    TokenBuffer tokens = lex(TEXT);
+    int index = tokens.getTokenCount() / 2;
+    int start = tokens.getTokenStart(index);
+    // java lexer has the initial state between tokens
+    Lexer expected = JavaParserDefinition.createLexer(LanguageLevel.HIGHEST);
+    expected.start(TEXT, start, TEXT.length(), 0);
+    Lexer actual = tokens.createLexer();
+    actual.start(tokens.getText(), start, TEXT.length(), 0);
+    assertSameTokens(expected, actual);
+
+    actual.start(tokens.getText(), TEXT.length(), TEXT.length(), 0);
+    assertNull(actual.getTokenType());
+  }
+
+  public void testEmptyText() {
+    TokenBuffer tokens = lex("");
+    assertEquals(0, tokens.getTokenCount());
+    Lexer lexer = tokens.createLexer();
+    lexer.start(tokens.getText());
+    assertNull(lexer.getTokenType());
+  }
+
+  public void testReplayRejectsOtherRanges() {
+    TokenBuffer tokens = lex(TEXT);
+    Lexer lexer = tokens.createLexer();
+    assertRejected(lexer, new StringBuilder(TEXT), 0, TEXT.length());
+    assertRejected(lexer, tokens.getText(), 0, TEXT.length() - 1);
+    assertRejected(lexer, tokens.getText(), 1, TEXT.length()); // inside "package"
+  }
+
+  private static TokenBuffer lex(String text) {
+    return TokenBuffer.lex(JavaParserDefinition.createLexer(LanguageLevel.HIGHEST), text);
+  }
+
+  private static void assertSameTokens(Lexer expected, Lexer actual) {
+    while (expected.getTokenType() != null) {
+      assertEquals(expected.getTokenType(), actual.getTokenType());
+      assertEquals(expected.getTokenStart(), actual.getTokenStart());
+      assertEquals(expected.getTokenEnd(), actual.getTokenEnd());
+      expected.advance();
+      actual.advance();
+    }
+    assertNull(actual.getTokenType());
+    assertEquals(expected.getTokenEnd(), actual.getTokenEnd());
+  }
+
+  private static void assertRejected(Lexer lexer, CharSequence text, int start, int end) {
+    try {
+      lexer.start(text, start, end, 0);
+      fail("Replay of " + start + ".." + end + " should be rejected");
+    }
+    catch (IllegalArgumentException ignored) {
+    }
+  }
+}
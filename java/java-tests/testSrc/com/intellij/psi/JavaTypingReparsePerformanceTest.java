@@ -0,0 +1,117 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.testFramework.LightCodeInsightTestCase;
+import com.intellij.testFramework.PlatformTestUtil;
+import com.intellij.util.ThrowableRunnable;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Typing latency in a 10k lines java file: every typed char is committed, so the time is spent in the incremental reparse.
+ */
+public class JavaTypingReparsePerformanceTest extends LightCodeInsightTestCase {
+  private static final int METHOD_COUNT = 1000;
+
+  public void testTypingInIdentifier() throws Exception {
+    doTest("int local500", "Xyz", 300);
+  }
+
+  public void testTypingInEndOfLineComment() throws Exception {
+    doTest("// comment 500", " more text", 300);
+  }
+
+  public void testTypingInCStyleComment() throws Exception {
+    doTest("/* block 500", " more text", 300);
+  }
+
+  public void testTypingInCodeBlock() throws Exception {
+    doTest("return local500;", "\nlocal500++;", 1000);
+  }
+
+  public void testTypingInClassBody() throws Exception {
+    // a change between members reparses the whole class body, there's no fixed latency to assert here,
+    // only that the incremental reparse ends up with the same tree as a full one
+    int offset = configure("int field500");
+    type(offset, ", f;");
+    checkSameAsFullReparse(offset, ", f;");
+  }
+
+  private void doTest(@NotNull String anchor, @NotNull final String typed, int expectedMs) throws Exception {
+    final int offset = configure(anchor);
+    PlatformTestUtil.startPerformanceTest(getTestName(false), expectedMs, new ThrowableRunnable() {
+      @Override
+      public void run() throws Throwable {
+        type(offset, typed);
+      }
+    }).cpuBound().assertTiming();
+    checkSameAsFullReparse(offset, typed);
+  }
+
+  private int configure(@NotNull String anchor) throws Exception {
+    String text = generateText();
+    configureFromFileText("Big.java", text);
+    int offset = text.indexOf(anchor) + anchor.length();
+    assertTrue(offset >= anchor.length());
+    assertNotNull(getDocument(myFile));
+    return offset;
+  }
+
+  /**
+   * Types the text char by char and then deletes it back with backspace, committing the document after every keystroke.
+   */
+  private void type(int offset, @NotNull String typed) {
+    PsiDocumentManager docManager = PsiDocumentManager.getInstance(ourProject);
+    Document doc = getDocument(myFile);
+    for (int i = 0; i < typed.length(); i++) {
+      doc.insertString(offset + i, typed.substring(i, i + 1));
+      docManager.commitAllDocuments();
+    }
+    for (int i = typed.length(); i > 0; i--) {
+      doc.deleteString(offset + i - 1, offset + i);
+      docManager.commitAllDocuments();
+    }
+  }
+
+  private void checkSameAsFullReparse(int offset, @NotNull String typed) {
+    Document doc = getDocument(myFile);
+    doc.insertString(offset, typed);
+    PsiDocumentManager.getInstance(ourProject).commitAllDocuments();
+    PsiFile reparsed = PsiFileFactory.getInstance(ourProject).createFileFromText("Big.java", myFile.getLanguage(), doc.getText());
+    assertEquals(DebugUtil.psiToString(reparsed, false), DebugUtil.psiToString(myFile, false));
+  }
+
+  @NotNull
+  private static String generateText() {
+    StringBuilder text = new StringBuilder("package p;\n\npublic class Big {\n");
+    for (int i = 0; i < METHOD_COUNT; i++) {
+      text.append("  // comment ").append(i).append("\n");
+      text.append("  int field").append(i).append(" = ").append(i).append(";\n");
+      text.append("  /* block ").append(i).append(" */\n");
+      text.append("  public int method").append(i).append("(int param) {\n");
+      text.append("    int local").append(i).append(" = param + field").append(i).append(";\n");
+      text.append("    if (local").append(i).append(" > 0) {\n");
+      text.append("      local").append(i).append(" = method").append(i).append("(local").append(i).append(" - 1);\n");
+      text.append("    }\n");
+      text.append("    return local").append(i).append(";\n");
+      text.append("  }\n\n");
+    }
+    text.append("}\n");
+    return text.toString();
+  }
+}
@@ -2,9 +2,12 @@ package com.intellij.psi;
 
 import com.intellij.ide.highlighter.JavaFileType;
 import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.SelectionModel;
 import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.impl.PsiModificationTrackerImpl;
 import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.testFramework.IdeaTestCase;
 import com.intellij.testFramework.fixtures.LightPlatformCodeInsightFixtureTestCase;
@@ -143,4 +146,35 @@ public class PsiModificationTrackerTest extends LightPlatformCodeInsightFixtureT
 
     assertEquals(count + 1, modificationTracker.getJavaStructureModificationCount());
   }
+
+  public void testOutOfCodeBlockModificationTrackerIsPerFile() {
+    PsiFile a = myFixture.addFileToProject("A.java", "class A { void foo() { int a; } }");
+    PsiFile b = myFixture.addFileToProject("B.java", "class B { }");
+    PsiModificationTrackerImpl modificationTracker = (PsiModificationTrackerImpl)PsiManager.getInstance(getProject()).getModificationTracker();
+    ModificationTracker aTracker = modificationTracker.getOutOfCodeBlockModificationTracker(a);
+    ModificationTracker bTracker = modificationTracker.getOutOfCodeBlockModificationTracker(b);
+    long aCount = aTracker.getModificationCount();
+    long bCount = bTracker.getModificationCount();
+
+    replaceText(a, "int a;", "int b;");
+    assertEquals(aCount, aTracker.getModificationCount());
+    assertEquals(bCount, bTracker.getModificationCount());
+
+    replaceText(a, "void foo()", "int field; void foo()");
+    assertFalse(aCount == aTracker.getModificationCount());
+    assertEquals(bCount, bTracker.getModificationCount());
+  }
+
+  private void replaceText(final PsiFile file, final String text, final String with) {
+    new WriteCommandAction.Simple(getProject()) {
+      @Override
+      protected void run() throws Throwable {
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(file);
+        assertNotNull(document);
+        int offset = document.getText().indexOf(text);
+        document.replaceString(offset, offset + text.length(), with);
+        PsiDocumentManager.getInstance(getProject()).commitAllDocuments();
+      }
+    }.execute();
+  }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.impl.search;
+
+import junit.framework.TestCase;
+
+import java.util.Set;
+
+public class JavaMethodCallArityIndexTest extends TestCase {
+  public void testCalls() {
+    Set<String> keys = JavaMethodCallArityIndex.collectKeys("class A { void f() { get(); map.get(key); put(a, b(c, d)); run(new int[]{1, 2}); } }");
+    assertTrue(keys.contains("get/0"));
+    assertTrue(keys.contains("get/1"));
+    assertTrue(keys.contains("put/2"));
+    assertTrue(keys.contains("b/2"));
+    assertTrue(keys.contains("run/1"));
+    assertFalse(keys.contains("map/*"));
+    assertFalse(keys.contains("key/*"));
+  }
+
+  public void testUncountableArguments() {
+    Set<String> keys = JavaMethodCallArityIndex.collectKeys("class A { void f() { foo(new Pair<A, B>()); bar(a < b, c > d); } }");
+    assertTrue(keys.contains("foo/*"));
+    assertTrue(keys.contains("bar/*"));
+  }
+
+  public void testNonCallReferences() {
+    Set<String> keys = JavaMethodCallArityIndex.collectKeys(
+      "import static a.B.build;\n" +
+      "/** {@link #make(int)} */\n" +
+      "@Anno(value = 1)\n" +
+      "class A { Runnable r = this::run; String s = \"invoke\"; // create\n }");
+    assertTrue(keys.contains("build/*"));
+    assertTrue(keys.contains("make/*"));
+    assertTrue(keys.contains("value/*"));
+    assertTrue(keys.contains("run/*"));
+    assertTrue(keys.contains("invoke/*"));
+    assertTrue(keys.contains("create/*"));
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.codeInspection.ex;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.registry.Registry;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects time and memory spent by inspection tools, keyed by {@link InspectionToolWrapper#getShortName() tool short name}.
+ * Both on-the-fly highlighting and batch (global) inspection runs are recorded. Runs over a single file and
+ * {@link #recordGlobalRun(String, long, long) whole-scope runs} of global tools are kept apart, so per-file averages
+ * aren't distorted by the latter.
+ * <p/>
+ * The data is used to run historically slow inspections after the fast ones, so the first results appear sooner, and
+ * to {@link #isOverTimeBudget(String) defer} inspections exceeding the configured time budget.
+ * <p/>
+ * Thread-safe.
+ */
+public class InspectionTimeStatistics {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.codeInspection.ex.InspectionTimeStatistics");
+  private static final ConcurrentMap<String, ToolStatistics> ourStatistics = ContainerUtil.newConcurrentMap();
+  private static final ConcurrentMap<String, ToolStatistics> ourGlobalStatistics = ContainerUtil.newConcurrentMap();
+  private static final ThreadMXBean ourThreadBean = getAllocationAwareThreadBean();
+
+  private InspectionTimeStatistics() {
+  }
+
+  /**
+   * Records a run of the given tool over a single file.
+   */
+  public static void record(@NotNull String shortName, long timeNanos, long allocatedBytes) {
+    getOrCreate(ourStatistics, shortName).add(timeNanos, allocatedBytes);
+  }
+
+  /**
+   * Records a run of the given global tool over the whole inspection scope.
+   */
+  public static void recordGlobalRun(@NotNull String shortName, long timeNanos, long allocatedBytes) {
+    getOrCreate(ourGlobalStatistics, shortName).add(timeNanos, allocatedBytes);
+  }
+
+  /**
+   * @return    number of bytes allocated by the current thread so far if the JVM supports such measurements; <code>-1</code> otherwise.
+   *            Only the difference between two values returned for the same thread makes sense
+   */
+  public static long getCurrentThreadAllocatedBytes() {
+    if (ourThreadBean == null) return -1;
+    return ((com.sun.management.ThreadMXBean)ourThreadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * @return    bytes allocated by the current thread since the given {@link #getCurrentThreadAllocatedBytes() measurement};
+   *            <code>0</code> if allocation measurement is not supported
+   */
+  public static long getAllocatedBytesSince(long startAllocatedBytes) {
+    if (startAllocatedBytes < 0) return 0;
+    return Math.max(0, getCurrentThreadAllocatedBytes() - startAllocatedBytes);
+  }
+
+  /**
+   * Checks if the given tool average time exceeds time budget configured by the <code>'daemon.inspection.time.budget.ms'</code>
+   * registry key. Such tools are expected to be run after all other ones.
+   *
+   * @return    <code>true</code> if time budget is configured and the given tool exceeds it; <code>false</code> otherwise
+   */
+  public static boolean isOverTimeBudget(@NotNull String shortName) {
+    int budgetMillis = Registry.intValue("daemon.inspection.time.budget.ms");
+    return budgetMillis > 0 && getAverageTimeNanos(shortName) > budgetMillis * 1000000L;
+  }
+
+  /**
+   * @return    average time (in nanoseconds) per single file inspection run of the given tool, <code>0</code> if the tool was never run
+   */
+  public static long getAverageTimeNanos(@NotNull String shortName) {
+    ToolStatistics statistics = ourStatistics.get(shortName);
+    return statistics == null ? 0 : statistics.getAverageTimeNanos();
+  }
+
+  /**
+   * @return    statistics of single file runs of all tools sorted by total time in descending order
+   */
+  @NotNull
+  public static List<ToolStatistics> getStatistics() {
+    return sortByTotalTime(ourStatistics.values());
+  }
+
+  /**
+   * @return    statistics of whole-scope runs of global tools sorted by total time in descending order
+   */
+  @NotNull
+  public static List<ToolStatistics> getGlobalStatistics() {
+    return sortByTotalTime(ourGlobalStatistics.values());
+  }
+
+  @NotNull
+  private static List<ToolStatistics> sortByTotalTime(@NotNull Collection<ToolStatistics> statistics) {
+    List<ToolStatistics> result = new ArrayList<ToolStatistics>(statistics);
+    Collections.sort(result, new Comparator<ToolStatistics>() {
+      @Override
+      public int compare(ToolStatistics o1, ToolStatistics o2) {
+        long t1 = o1.getTotalTimeNanos();
+        long t2 = o2.getTotalTimeNanos();
+        return t1 > t2 ? -1 : t1 == t2 ? 0 : 1;
+      }
+    });
+    return result;
+  }
+
+  public static void clear() {
+    ourStatistics.clear();
+    ourGlobalStatistics.clear();
+  }
+
+  /**
+   * @return    human-readable report about all recorded inspection runs, the most expensive inspections go first
+   */
+  @NotNull
+  public static String getReport() {
+    StringBuilder result = new StringBuilder();
+    appendReport(result, "Inspection (per file)", getStatistics(), true);
+    List<ToolStatistics> globalStatistics = getGlobalStatistics();
+    if (!globalStatistics.isEmpty()) {
+      result.append(String.format("%n"));
+      appendReport(result, "Global inspection (whole scope)", globalStatistics, false);
+    }
+    return result.toString();
+  }
+
+  private static void appendReport(@NotNull StringBuilder result,
+                                   @NotNull String title,
+                                   @NotNull List<ToolStatistics> statistics,
+                                   boolean checkTimeBudget) {
+    result.append(String.format("%-60s %10s %12s %12s %12s%n", title, "Runs", "Total (ms)", "Average (ms)", "Alloc (KB)"));
+    for (ToolStatistics tool : statistics) {
+      result.append(String.format("%-60s %10d %12d %12.2f %12d%s%n",
+                                  tool.getShortName(),
+                                  tool.getInvocations(),
+                                  tool.getTotalTimeNanos() / 1000000,
+                                  tool.getAverageTimeNanos() / 1000000.0,
+                                  tool.getAllocatedBytes() / 1024,
+                                  checkTimeBudget && isOverTimeBudget(tool.getShortName()) ? " (deferred)" : ""));
+    }
+  }
+
+  private static ThreadMXBean getAllocationAwareThreadBean() {
+    try {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean)bean;
+        if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+          return bean;
+        }
+      }
+    }
+    catch (Throwable e) {
+      LOG.info("Thread allocated memory measurement is not available: " + e);
+    }
+    return null;
+  }
+
+  @NotNull
+  private static ToolStatistics getOrCreate(@NotNull ConcurrentMap<String, ToolStatistics> map, @NotNull String shortName) {
+    ToolStatistics statistics = map.get(shortName);
+    if (statistics == null) {
+      statistics = ConcurrencyUtil.cacheOrGet(map, shortName, new ToolStatistics(shortName));
+    }
+    return statistics;
+  }
+
+  public static class ToolStatistics {
+    @NotNull private final String myShortName;
+    private final AtomicLong myTotalTimeNanos = new AtomicLong();
+    private final AtomicInteger myInvocations = new AtomicInteger();
+    private final AtomicLong myAllocatedBytes = new AtomicLong();
+
+    private ToolStatistics(@NotNull String shortName) {
+      myShortName = shortName;
+    }
+
+    private void add(long timeNanos, long allocatedBytes) {
+      myTotalTimeNanos.addAndGet(timeNanos);
+      myAllocatedBytes.addAndGet(allocatedBytes);
+      myInvocations.incrementAndGet();
+    }
+
+    @NotNull
+    public String getShortName() {
+      return myShortName;
+    }
+
+    public long getTotalTimeNanos() {
+      return myTotalTimeNanos.get();
+    }
+
+    public int getInvocations() {
+      return myInvocations.get();
+    }
+
+    public long getAllocatedBytes() {
+      return myAllocatedBytes.get();
+    }
+
+    public long getAverageTimeNanos() {
+      int invocations = myInvocations.get();
+      return invocations == 0 ? 0 : myTotalTimeNanos.get() / invocations;
+    }
+
+    @Override
+    public String toString() {
+      return myShortName + ": " + getInvocations() + " runs, " + getTotalTimeNanos() / 1000000 + "ms total";
+    }
+  }
+}
@@ -27,6 +27,7 @@ import java.util.List;
  */
 public class Bootstrap {
   private static final String PLUGIN_MANAGER = "com.intellij.ide.plugins.PluginManager";
+  private static final String STARTUP_TRACE = "com.intellij.diagnostic.StartupTrace";
 
   private Bootstrap() { }
 
@@ -35,7 +36,13 @@ public class Bootstrap {
   }
 
   public static void main(String[] args, String mainClass, String methodName, List<URL> classpathElements) throws Exception {
+    long start = System.nanoTime();
     UrlClassLoader newClassLoader = ClassloaderUtil.initClassloader(classpathElements);
+    if (System.getProperty("idea.startup.trace") != null) {
+      // the trace is recorded by the class loaded by the new class loader
+      Class<?> trace = Class.forName(STARTUP_TRACE, true, newClassLoader);
+      trace.getMethod("add", String.class, long.class, long.class).invoke(null, "class loader initialization", start, System.nanoTime());
+    }
     WindowsCommandLineProcessor.ourMirrorClass = Class.forName(WindowsCommandLineProcessor.class.getName(), true, newClassLoader);
 
     Class<?> klass = Class.forName(PLUGIN_MANAGER, true, newClassLoader);
@@ -58,6 +58,7 @@ public class ClassloaderUtil extends ClassUtilCore {
 
     filterClassPath(classpathElements);
     UrlClassLoader newClassLoader = new UrlClassLoader(classpathElements, null, true, true);
+    newClassLoader.enableClassLoadingCache();
 
     // prepare plugins
     if (!isLoadingOfExternalPluginsDisabled()) {
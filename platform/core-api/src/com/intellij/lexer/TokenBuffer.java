@@ -0,0 +1,159 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.lexer;
+
+import com.intellij.psi.tree.IElementType;
+import com.intellij.util.ArrayUtil;
+import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tokens of a whole text produced by a lexer, stored in primitive arrays. Allows to lex a text once and {@link #createLexer() replay}
+ * the tokens to several consumers, e.g. to several indexers of the same file content.
+ * <p/>
+ * Lexer states aren't stored, so the replaying lexer can only be started from a token start with the initial state.
+ */
+public class TokenBuffer {
+  @NotNull private final CharSequence myText;
+  private final int[] myStarts; // token count + 1 elements, the last one is the end of the last token
+  private final short[] myTypes; // indices in myTypeTable
+  private final IElementType[] myTypeTable;
+
+  private TokenBuffer(@NotNull CharSequence text, @NotNull int[] starts, @NotNull short[] types, @NotNull IElementType[] typeTable) {
+    myText = text;
+    myStarts = starts;
+    myTypes = types;
+    myTypeTable = typeTable;
+  }
+
+  @NotNull
+  public static TokenBuffer lex(@NotNull Lexer lexer, @NotNull CharSequence text) {
+    int[] starts = new int[Math.max(10, text.length() / 5)];
+    short[] types = new short[starts.length];
+    List<IElementType> typeTable = new ArrayList<IElementType>();
+    TObjectIntHashMap<IElementType> typeIndices = new TObjectIntHashMap<IElementType>();
+
+    int count = 0;
+    lexer.start(text);
+    IElementType type;
+    while ((type = lexer.getTokenType()) != null) {
+      if (count + 1 >= starts.length) {
+        starts = ArrayUtil.realloc(starts, starts.length * 3 / 2);
+        types = Arrays.copyOf(types, starts.length);
+      }
+      int typeIndex;
+      if (typeIndices.containsKey(type)) {
+        typeIndex = typeIndices.get(type);
+      }
+      else {
+        typeIndex = typeTable.size();
+        typeTable.add(type);
+        typeIndices.put(type, typeIndex);
+      }
+      starts[count] = lexer.getTokenStart();
+      types[count] = (short)typeIndex;
+      count++;
+      lexer.advance();
+    }
+    starts[count] = text.length();
+
+    return new TokenBuffer(text, ArrayUtil.realloc(starts, count + 1), Arrays.copyOf(types, count),
+                           typeTable.toArray(new IElementType[typeTable.size()]));
+  }
+
+  @NotNull
+  public CharSequence getText() {
+    return myText;
+  }
+
+  public int getTokenCount() {
+    return myTypes.length;
+  }
+
+  @NotNull
+  public IElementType getTokenType(int index) {
+    return myTypeTable[myTypes[index]];
+  }
+
+  public int getTokenStart(int index) {
+    return myStarts[index];
+  }
+
+  public int getTokenEnd(int index) {
+    return myStarts[index + 1];
+  }
+
+  /**
+   * @return    lexer which returns the stored tokens when started on the {@link #getText() lexed text}
+   */
+  @NotNull
+  public Lexer createLexer() {
+    return new LexerBase() {
+      private int myIndex;
+
+      @Override
+      public void start(CharSequence buffer, int startOffset, int endOffset, int initialState) {
+        if (buffer != myText || endOffset != getBufferEnd() || initialState != 0) {
+          throw new IllegalArgumentException("Only the lexed text can be replayed from a token start");
+        }
+        int index = startOffset == getBufferEnd() ? getTokenCount() : Arrays.binarySearch(myStarts, 0, getTokenCount(), startOffset);
+        if (index < 0) {
+          throw new IllegalArgumentException("Not a token start: " + startOffset);
+        }
+        myIndex = index;
+      }
+
+      @Override
+      public int getState() {
+        return 0;
+      }
+
+      @Override
+      public IElementType getTokenType() {
+        return myIndex < getTokenCount() ? TokenBuffer.this.getTokenType(myIndex) : null;
+      }
+
+      @Override
+      public int getTokenStart() {
+        return myStarts[myIndex];
+      }
+
+      @Override
+      public int getTokenEnd() {
+        return myIndex < getTokenCount() ? myStarts[myIndex + 1] : myStarts[myIndex];
+      }
+
+      @Override
+      public void advance() {
+        myIndex++;
+      }
+
+      @Override
+      public CharSequence getBufferSequence() {
+        return myText;
+      }
+
+      @Override
+      public int getBufferEnd() {
+        return myStarts[getTokenCount()];
+      }
+    };
+  }
+}
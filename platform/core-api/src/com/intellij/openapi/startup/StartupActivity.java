@@ -28,4 +28,19 @@ public interface StartupActivity {
   ExtensionPointName<StartupActivity> POST_STARTUP_ACTIVITY = ExtensionPointName.create("com.intellij.postStartupActivity");
 
   void runActivity(Project project);
+
+  /**
+   * Marks post-startup activities which don't need the event dispatch thread. They are run on pooled threads under read action
+   * in parallel with each other after the project is opened, so they don't delay the responsive editor. Such an activity shouldn't
+   * hold the read action for long since it blocks write actions.
+   */
+  interface Background extends StartupActivity {
+  }
+
+  /**
+   * Marks post-startup activities which can wait until the IDE has been idle for a while after the project is opened.
+   * May be combined with {@link Background}.
+   */
+  interface Deferred extends StartupActivity {
+  }
 }
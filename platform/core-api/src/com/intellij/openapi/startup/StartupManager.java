@@ -53,6 +53,18 @@ public abstract class StartupManager {
    */
   public abstract void registerPostStartupActivity(@NotNull Runnable runnable);
 
+  /**
+   * Registers an activity which is performed after the project is opened on a pooled thread under read action, in parallel
+   * with other such activities. The activity is run in smart mode unless it is {@link com.intellij.openapi.project.DumbAware}.
+   *
+   * @param runnable the activity to execute.
+   * @param deferred whether the activity may wait until the IDE has been idle for a while.
+   * @see StartupActivity.Background
+   */
+  public void registerBackgroundPostStartupActivity(@NotNull Runnable runnable, boolean deferred) {
+    registerPostStartupActivity(runnable);
+  }
+
   /**
    * Executes the specified runnable immediately if the initialization of the current project
    * is complete, or registers it as a post-startup activity if the project is being initialized.
@@ -17,6 +17,7 @@
 package com.intellij.psi.stubs;
 
 import com.intellij.util.io.*;
+import gnu.trove.TIntObjectHashMap;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.DataInputStream;
@@ -29,6 +30,9 @@ import java.io.InputStream;
 public class StubInputStream extends DataInputStream {
   private final AbstractStringEnumerator myNameStorage;
   private final byte[] myStringIOBuffer = IOUtil.allocReadWriteUTFBuffer();
+  // names repeat a lot in a stub tree (type names, annotation names etc.), so stubs read from one stream share name references;
+  // names are resolved right away, so deserialized stubs don't retain the name storage
+  private final TIntObjectHashMap<StringRef> myNames = new TIntObjectHashMap<StringRef>();
 
   public StubInputStream(@NotNull InputStream in, @NotNull AbstractStringEnumerator nameStorage) {
     super(in);
@@ -40,7 +44,14 @@ public class StubInputStream extends DataInputStream {
   }
 
   public StringRef readName() throws IOException {
-    return DataInputOutputUtil.readNAME(this, myNameStorage);
+    int nameId = DataInputOutputUtil.readINT(this);
+    if (nameId == 0) return null;
+    StringRef name = myNames.get(nameId);
+    if (name == null) {
+      name = StringRef.fromString(myNameStorage.valueOf(nameId));
+      myNames.put(nameId, name);
+    }
+    return name;
   }
 
   public int readVarInt() throws IOException {
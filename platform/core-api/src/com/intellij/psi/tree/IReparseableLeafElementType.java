@@ -0,0 +1,34 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.tree;
+
+import com.intellij.lang.ASTNode;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Element type of a leaf whose text can be changed without reparsing the enclosing block, e.g. an identifier or a comment
+ * being typed in. Allows {@link com.intellij.psi.text.BlockSupport} to replace the single leaf instead of reparsing
+ * the nearest {@link IReparseableElementType reparseable} block or the whole file.
+ */
+public interface IReparseableLeafElementType {
+  /**
+   * @param leaf    the leaf of this type, still attached to the tree
+   * @param newText the new text of the leaf
+   * @return        <code>true</code> if the leaf with the new text would be lexed as a single token of this type and
+   *                the surrounding tokens and tree structure stay the same; <code>false</code> if a regular reparse is needed
+   */
+  boolean isReparseable(@NotNull ASTNode leaf, @NotNull CharSequence newText);
+}
@@ -125,10 +125,20 @@ public class IdeaPluginDescriptorImpl implements IdeaPluginDescriptor {
   }
 
   public void readExternal(@NotNull Document document, @NotNull URL url) throws InvalidDataException, FileNotFoundException {
-    document = JDOMXIncluder.resolve(document, url.toExternalForm());
-    Element rootElement = document.getRootElement();
+    readResolvedExternal(resolveIncludes(document, url));
+  }
+
+  @NotNull
+  static Element resolveIncludes(@NotNull Document document, @NotNull URL url) {
+    return JDOMXIncluder.resolve(document, url.toExternalForm()).getRootElement();
+  }
+
+  /**
+   * @param rootElement descriptor root element with xi:includes already {@link #resolveIncludes(Document, URL) resolved}
+   */
+  void readResolvedExternal(@NotNull Element rootElement) {
     internJDOMElement(rootElement);
-    readExternal(document.getRootElement());
+    readExternal(rootElement);
   }
 
   public void readExternal(@NotNull URL url) throws InvalidDataException, FileNotFoundException {
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.ide.plugins;
+
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Plugin descriptors read from jars during the previous startup, with xi:includes resolved. Allows to skip opening jars
+ * and parsing XML when nothing changed: an entry is valid as long as its jar has the same timestamp and length.
+ * Jars without the descriptor are remembered as well, which is the case of most library jars on the classpath.
+ * <p/>
+ * Elements are stored in a compact binary form and restored as fresh JDOM trees on every {@link #get(File, String) request}.
+ * Only entries requested or added during the current startup are {@link #save() saved}, so the cache doesn't grow
+ * with removed plugins.
+ */
+class PluginDescriptorCache {
+  static final Element NO_DESCRIPTOR = new Element("no-descriptor");
+
+  private static final int VERSION = 1;
+
+  private final File myFile;
+  private final String myBuildNumber;
+  private final Map<String, CachedDescriptor> myDescriptors = new THashMap<String, CachedDescriptor>();
+  private final Set<String> myUsedKeys = new THashSet<String>();
+  private boolean myModified;
+  private int myHits;
+  private int myMisses;
+
+  PluginDescriptorCache(@NotNull File file, @NotNull String buildNumber) {
+    myFile = file;
+    myBuildNumber = buildNumber;
+    if (myFile.exists()) {
+      try {
+        load();
+      }
+      catch (IOException e) {
+        PluginManagerCore.getLogger().info("Cannot read plugin descriptors cache: " + e);
+        myDescriptors.clear();
+        myModified = true;
+      }
+    }
+  }
+
+  /**
+   * @return restored root element of the descriptor, {@link #NO_DESCRIPTOR} if the jar is known to have no such descriptor,
+   *         <code>null</code> if the jar has changed or wasn't cached
+   */
+  @Nullable
+  synchronized Element get(@NotNull File jar, @NotNull String fileName) {
+    String key = getKey(jar, fileName);
+    CachedDescriptor descriptor = myDescriptors.get(key);
+    if (descriptor != null && descriptor.myTimestamp == jar.lastModified() && descriptor.myLength == jar.length()) {
+      try {
+        Element result = descriptor.myData == null
+                         ? NO_DESCRIPTOR
+                         : JDOMUtil.readBinaryElement(new DataInputStream(new ByteArrayInputStream(descriptor.myData)));
+        myUsedKeys.add(key);
+        myHits++;
+        return result;
+      }
+      catch (IOException e) {
+        PluginManagerCore.getLogger().info("Cannot restore cached descriptor " + key + ": " + e);
+      }
+    }
+    myMisses++;
+    return null;
+  }
+
+  /**
+   * @param rootElement the descriptor root element with xi:includes resolved or <code>null</code> if the jar has no such descriptor
+   */
+  synchronized void put(@NotNull File jar, @NotNull String fileName, @Nullable Element rootElement) {
+    byte[] data = null;
+    if (rootElement != null) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try {
+        if (!JDOMUtil.writeBinaryElement(rootElement, new DataOutputStream(bytes))) return;
+      }
+      catch (IOException e) {
+        return;
+      }
+      data = bytes.toByteArray();
+    }
+    String key = getKey(jar, fileName);
+    myDescriptors.put(key, new CachedDescriptor(jar.lastModified(), jar.length(), data));
+    myUsedKeys.add(key);
+    myModified = true;
+  }
+
+  synchronized int getHits() {
+    return myHits;
+  }
+
+  synchronized int getMisses() {
+    return myMisses;
+  }
+
+  synchronized void save() {
+    if (!myModified && myUsedKeys.size() == myDescriptors.size()) return;
+
+    File tempFile = new File(myFile.getPath() + ".tmp");
+    try {
+      FileUtil.createParentDirs(tempFile);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        out.writeInt(VERSION);
+        out.writeUTF(myBuildNumber);
+        out.writeInt(myUsedKeys.size());
+        for (String key : myUsedKeys) {
+          CachedDescriptor descriptor = myDescriptors.get(key);
+          out.writeUTF(key);
+          out.writeLong(descriptor.myTimestamp);
+          out.writeLong(descriptor.myLength);
+          if (descriptor.myData == null) {
+            out.writeInt(-1);
+          }
+          else {
+            out.writeInt(descriptor.myData.length);
+            out.write(descriptor.myData);
+          }
+        }
+      }
+      finally {
+        out.close();
+      }
+      FileUtil.delete(myFile);
+      if (!tempFile.renameTo(myFile)) {
+        throw new IOException("Cannot rename " + tempFile + " to " + myFile);
+      }
+      myModified = false;
+    }
+    catch (IOException e) {
+      PluginManagerCore.getLogger().info("Cannot save plugin descriptors cache: " + e);
+      FileUtil.delete(tempFile);
+    }
+  }
+
+  private void load() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(myFile)));
+    try {
+      if (in.readInt() != VERSION || !myBuildNumber.equals(in.readUTF())) {
+        myModified = true;
+        return;
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String key = in.readUTF();
+        long timestamp = in.readLong();
+        long length = in.readLong();
+        int dataLength = in.readInt();
+        byte[] data = null;
+        if (dataLength >= 0) {
+          data = new byte[dataLength];
+          in.readFully(data);
+        }
+        myDescriptors.put(key, new CachedDescriptor(timestamp, length, data));
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  @NotNull
+  private static String getKey(@NotNull File jar, @NotNull String fileName) {
+    return jar.getPath() + "!/" + fileName;
+  }
+
+  private static class CachedDescriptor {
+    private final long myTimestamp;
+    private final long myLength;
+    @Nullable private final byte[] myData; // null if there's no such descriptor in the jar
+
+    private CachedDescriptor(long timestamp, long length, @Nullable byte[] data) {
+      myTimestamp = timestamp;
+      myLength = length;
+      myData = data;
+    }
+  }
+}
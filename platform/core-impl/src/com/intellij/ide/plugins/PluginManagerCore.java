@@ -15,6 +15,7 @@
  */
 package com.intellij.ide.plugins;
 
+import com.intellij.diagnostic.StartupTrace;
 import com.intellij.ide.ClassUtilCore;
 import com.intellij.ide.IdeBundle;
 import com.intellij.ide.StartupProgress;
@@ -34,6 +35,7 @@ import com.intellij.util.ArrayUtil;
 import com.intellij.util.Function;
 import com.intellij.util.PlatformUtilsCore;
 import com.intellij.util.ReflectionUtil;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.graph.CachingSemiGraph;
 import com.intellij.util.graph.DFSTBuilder;
 import com.intellij.util.graph.Graph;
@@ -42,6 +44,7 @@ import com.intellij.util.lang.JarMemoryLoader;
 import com.intellij.util.xmlb.XmlSerializationException;
 import gnu.trove.THashMap;
 import org.jdom.Document;
+import org.jdom.Element;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -76,6 +79,8 @@ public class PluginManagerCore {
   static LinkedHashSet<String> myPlugins2Enable = null;
   public static String BUILD_NUMBER;
   private static BuildNumber ourBuildNumber;
+  private static final boolean DESCRIPTOR_CACHE_ENABLED = SystemProperties.getBooleanProperty("idea.plugins.descriptor.cache", true);
+  @Nullable private static PluginDescriptorCache ourDescriptorCache; // is set while descriptors are loaded on startup
 
   /**
    * do not call this method during bootstrap, should be called in a copy of PluginManager, loaded by IdeaClassLoader
@@ -523,6 +528,17 @@ public class PluginManagerCore {
       );
 
       IdeaPluginDescriptorImpl descriptor = new IdeaPluginDescriptorImpl(file);
+      PluginDescriptorCache cache = ourDescriptorCache;
+      if (cache != null) {
+        Element cached = cache.get(file, fileName);
+        if (cached == PluginDescriptorCache.NO_DESCRIPTOR) return null;
+        if (cached != null) {
+          descriptor.readResolvedExternal(cached);
+          return descriptor;
+        }
+      }
+
+      Document document = null;
       FileInputStream in = new FileInputStream(file);
       ZipInputStream zipStream = new ZipInputStream(in);
       try {
@@ -531,9 +547,7 @@ public class PluginManagerCore {
           entry = zipStream.getNextEntry();
           if (entry.getName().equals("META-INF/" + fileName)) {
             byte[] content = FileUtil.loadBytes(zipStream, (int)entry.getSize());
-            Document document = JDOMUtil.loadDocument(new ByteArrayInputStream(content));
-            descriptor.readExternal(document, jarURL);
-            return descriptor;
+            document = JDOMUtil.loadDocument(new ByteArrayInputStream(content));
           }
         }
       }
@@ -542,7 +556,18 @@ public class PluginManagerCore {
         in.close();
       }
 
-      descriptor.readExternal(jarURL);
+      if (document == null) {
+        try {
+          document = JDOMUtil.loadDocument(jarURL);
+        }
+        catch (FileNotFoundException e) {
+          if (cache != null) cache.put(file, fileName, null);
+          throw e;
+        }
+      }
+      Element rootElement = IdeaPluginDescriptorImpl.resolveIncludes(document, jarURL);
+      if (cache != null) cache.put(file, fileName, rootElement);
+      descriptor.readResolvedExternal(rootElement);
       return descriptor;
     }
     catch (XmlSerializationException e) {
@@ -988,10 +1013,31 @@ public class PluginManagerCore {
     return shouldSkipPlugin(descriptor, ourPlugins);
   }
 
+  @Nullable
+  private static PluginDescriptorCache createDescriptorCache() {
+    if (!DESCRIPTOR_CACHE_ENABLED || isUnitTestMode()) return null;
+    return new PluginDescriptorCache(new File(PathManager.getSystemPath(), "plugins/descriptors.dat"), getBuildNumber().asString());
+  }
+
   static void initializePlugins(@Nullable StartupProgress progress) {
     configureExtensions();
 
-    final IdeaPluginDescriptorImpl[] pluginDescriptors = loadDescriptors(progress);
+    long start = System.currentTimeMillis();
+    final PluginDescriptorCache cache = createDescriptorCache();
+    ourDescriptorCache = cache;
+    final IdeaPluginDescriptorImpl[] pluginDescriptors;
+    StartupTrace.Phase descriptorsPhase = StartupTrace.start("plugin descriptors loading");
+    try {
+      pluginDescriptors = loadDescriptors(progress);
+    }
+    finally {
+      ourDescriptorCache = null;
+      descriptorsPhase.end();
+    }
+    if (cache != null) {
+      cache.save();
+    }
+    long descriptorsLoaded = System.currentTimeMillis();
 
     final Class callerClass = ReflectionUtil.findCallerClass(1);
     assert callerClass != null;
@@ -1041,8 +1087,14 @@ public class PluginManagerCore {
       ourId2Index.put(result.get(i).getPluginId(), i);
     }
 
+    long pluginsSorted = System.currentTimeMillis();
+    long classLoadersNanos = 0;
+    long extensionsNanos = 0;
     int i = 0;
     for (final IdeaPluginDescriptorImpl pluginDescriptor : result) {
+      StartupTrace.Phase pluginPhase =
+        StartupTrace.isEnabled() ? StartupTrace.start("plugin " + pluginDescriptor.getPluginId().getIdString()) : StartupTrace.NO_PHASE;
+      long pluginStart = System.nanoTime();
       if (pluginDescriptor.getPluginId().getIdString().equals(CORE_PLUGIN_ID) || pluginDescriptor.isUseCoreClassLoader()) {
         pluginDescriptor.setLoader(parentLoader, true);
       }
@@ -1056,18 +1108,29 @@ public class PluginManagerCore {
                                                                       pluginDescriptor);
         pluginDescriptor.setLoader(pluginClassLoader, true);
       }
+      long loaderCreated = System.nanoTime();
+      classLoadersNanos += loaderCreated - pluginStart;
 
       pluginDescriptor.registerExtensions();
+      extensionsNanos += System.nanoTime() - loaderCreated;
+      pluginPhase.end();
       if (progress != null) {
         progress.showProgress("", PLUGINS_PROGRESS_MAX_VALUE + (i++ / (float)result.size()) * 0.35f);
       }
     }
 
     ourPlugins = pluginDescriptors;
+
+    getLogger().info("Plugin descriptors loaded in " + (descriptorsLoaded - start) + " ms" +
+                     (cache != null ? " (" + cache.getHits() + " from cache, " + cache.getMisses() + " from jars)" : "") +
+                     ", filtered and sorted in " + (pluginsSorted - descriptorsLoaded) + " ms" +
+                     ", class loaders created in " + classLoadersNanos / 1000000 + " ms" +
+                     ", extensions registered in " + extensionsNanos / 1000000 + " ms");
   }
 
   public static void initPlugins(@Nullable StartupProgress progress) {
     long start = System.currentTimeMillis();
+    StartupTrace.Phase phase = StartupTrace.start("plugins initialization");
     try {
       initializePlugins(progress);
     }
@@ -1075,6 +1138,9 @@ public class PluginManagerCore {
       getLogger().error(e);
       throw e;
     }
+    finally {
+      phase.end();
+    }
     getLogger().info(ourPlugins.length + " plugins initialized in " + (System.currentTimeMillis() - start) + " ms");
     logPlugins();
     ClassUtilCore.clearJarURLCache();
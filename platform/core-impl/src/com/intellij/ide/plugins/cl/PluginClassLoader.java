@@ -38,6 +38,10 @@ import java.util.List;
  */
 @SuppressWarnings({"UseOfSystemOutOrSystemErr"})
 public class PluginClassLoader extends UrlClassLoader {
+  static {
+    registerAsParallelCapable(PluginClassLoader.class);
+  }
+
   private final ClassLoader[] myParents;
   private final PluginId myPluginId;
   private final String myPluginVersion;
@@ -93,7 +97,14 @@ public class PluginClassLoader extends UrlClassLoader {
   }
 
   @Nullable
-  private synchronized Class loadClassInsideSelf(@NotNull String name) {
+  private Class loadClassInsideSelf(@NotNull String name) {
+    synchronized (getClassNameLock(name)) {
+      return doLoadClassInsideSelf(name);
+    }
+  }
+
+  @Nullable
+  private Class doLoadClassInsideSelf(@NotNull String name) {
     Class c = findLoadedClass(name);
     if (c != null) {
       return c;
@@ -16,6 +16,8 @@
 package com.intellij.openapi.components.impl;
 
 import com.intellij.diagnostic.PluginException;
+import com.intellij.diagnostic.StartupTrace;
+import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.*;
 import com.intellij.openapi.components.ex.ComponentManagerEx;
@@ -24,18 +26,22 @@ import com.intellij.openapi.extensions.PluginDescriptor;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.util.Comparing;
 import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.util.UserDataHolderBase;
 import com.intellij.util.ArrayUtil;
+import com.intellij.util.ConcurrencyUtil;
 import com.intellij.util.IncorrectOperationException;
 import com.intellij.util.ReflectionCache;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.ConcurrentHashMap;
 import com.intellij.util.messages.MessageBus;
 import com.intellij.util.messages.MessageBusFactory;
 import com.intellij.util.pico.IdeaPicoContainer;
 import gnu.trove.THashMap;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -43,11 +49,14 @@ import org.jetbrains.annotations.TestOnly;
 import org.picocontainer.*;
 import org.picocontainer.defaults.CachingComponentAdapter;
 import org.picocontainer.defaults.ConstructorInjectionComponentAdapter;
+import org.picocontainer.defaults.CyclicDependencyException;
 
 import java.lang.reflect.Array;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author mike
@@ -55,7 +64,27 @@ import java.util.Map;
 public abstract class ComponentManagerImpl extends UserDataHolderBase implements ComponentManagerEx, Disposable {
   private static final Logger LOG = Logger.getInstance("#com.intellij.components.ComponentManager");
 
-  private final Map<Class, Object> myInitializedComponents = new ConcurrentHashMap<Class, Object>();
+  /**
+   * When set, components which don't depend on each other via constructor parameters are created and initialized
+   * on a thread pool, see {@link #createComponentsInParallel(Class[])}.
+   */
+  private static final boolean PARALLEL_INIT = SystemProperties.getBooleanProperty("idea.parallel.components.init", false);
+  private static final int SLOWEST_COMPONENTS_TO_REPORT = 20;
+  private static final long SLOW_COMPONENTS_CREATION_NANOS = 100 * 1000000L;
+
+  // time spent by creation of nested components on the current thread, is subtracted from the outer component init time
+  private static final ThreadLocal<long[]> ourNestedInitTime = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[1];
+    }
+  };
+
+  private final ConcurrentMap<Class, Object> myInitializedComponents = new ConcurrentHashMap<Class, Object>();
+  private final Map<String, Long> myComponentInitTimes = new ConcurrentHashMap<String, Long>(); // nanoseconds
+  private final InitializationLock myParallelStateLoadingLock = new InitializationLock();
+  private volatile boolean myParallelInitialization = false;
+  private boolean myParallelInitForced = false;
 
   private boolean myComponentsCreated = false;
 
@@ -106,17 +135,158 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
     try {
       myComponentsRegistry.loadClasses();
 
-      Class[] componentInterfaces = myComponentsRegistry.getComponentInterfaces();
-      for (Class componentInterface : componentInterfaces) {
-        ProgressIndicatorProvider.checkCanceled();
-        createComponent(componentInterface);
+      long startTime = System.nanoTime();
+      StartupTrace.Phase phase = StartupTrace.isEnabled() ? StartupTrace.start(this + " components creation") : StartupTrace.NO_PHASE;
+      try {
+        Class[] componentInterfaces = myComponentsRegistry.getComponentInterfaces();
+        if (isParallelInitEnabled(componentInterfaces)) {
+          createComponentsInParallel(componentInterfaces);
+        }
+        // creates the rest of components and the ones which failed in parallel, the created ones are just taken from the container
+        for (Class componentInterface : componentInterfaces) {
+          ProgressIndicatorProvider.checkCanceled();
+          createComponent(componentInterface);
+        }
+      }
+      finally {
+        phase.end();
       }
+      reportComponentInitTimes(System.nanoTime() - startTime);
     }
     finally {
       myComponentsCreated = true;
     }
   }
 
+  private boolean isParallelInitEnabled(@NotNull Class[] componentInterfaces) {
+    if (myParallelInitForced) return true;
+    if (!PARALLEL_INIT || componentInterfaces.length < 2 || Runtime.getRuntime().availableProcessors() < 2) return false;
+    Application application = ApplicationManager.getApplication();
+    return application == null || !application.isUnitTestMode();
+  }
+
+  /**
+   * Creates components in waves: every wave consists of components whose constructor dependencies from this manager
+   * are already created, components of the same wave are created and initialized concurrently. Components involved
+   * in dependency cycles or depending on failed ones are left to the usual sequential creation.
+   * <p/>
+   * Component instantiation and initialization code may run concurrently in this mode, state loading is serialized.
+   * Components obtained via {@link #getComponent(Class)} from another component initialization code are created on demand.
+   * Every component is created and initialized by a single thread holding its adapter lock, other threads requesting
+   * the component wait for that. A thread which would wait for itself (cyclic initialization across threads) gets
+   * the not yet initialized instance, like in case of cyclic initialization on a single thread.
+   */
+  private void createComponentsInParallel(@NotNull Class[] componentInterfaces) {
+    Map<Class, Set<Class>> dependencies = myComponentsRegistry.getConstructorDependencies();
+    List<Class> pending = new ArrayList<Class>(Arrays.asList(componentInterfaces));
+    Set<Class> created = new THashSet<Class>();
+    final ProgressIndicator indicator = getProgressIndicator();
+
+    int threads = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+    ExecutorService executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                                      ConcurrencyUtil.newNamedThreadFactory("Components initialization", true,
+                                                                                            Thread.NORM_PRIORITY));
+    myParallelInitialization = true;
+    try {
+      int waves = 0;
+      while (!pending.isEmpty()) {
+        List<Class> wave = new ArrayList<Class>();
+        for (Class componentInterface : pending) {
+          if (created.containsAll(dependencies.get(componentInterface))) {
+            wave.add(componentInterface);
+          }
+        }
+        if (wave.isEmpty()) break;
+        pending.removeAll(wave);
+        waves++;
+
+        List<Future<?>> futures = new ArrayList<Future<?>>(wave.size());
+        for (final Class componentInterface : wave) {
+          futures.add(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+              Runnable createComponent = new Runnable() {
+                @Override
+                public void run() {
+                  Object component = getPicoContainer().getComponentInstance(componentInterface.getName());
+                  LOG.assertTrue(component != null, "Can't instantiate component for: " + componentInterface);
+                }
+              };
+              if (indicator != null) {
+                ProgressManager.getInstance().runProcess(createComponent, indicator);
+              }
+              else {
+                createComponent.run();
+              }
+            }
+          }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+          try {
+            futures.get(i).get();
+            created.add(wave.get(i));
+          }
+          catch (ExecutionException e) {
+            if (e.getCause() instanceof ProcessCanceledException) throw (ProcessCanceledException)e.getCause();
+            LOG.error(e.getCause());
+          }
+          catch (InterruptedException e) {
+            throw new ProcessCanceledException(e);
+          }
+        }
+      }
+
+      LOG.info(this + ": " + created.size() + " of " + componentInterfaces.length + " components created in parallel in " +
+               waves + " waves");
+    }
+    finally {
+      myParallelInitialization = false;
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Makes components be created in parallel regardless of the system property and unit test mode.
+   * Is expected to be called before components creation.
+   */
+  @TestOnly
+  void setParallelInitForced(boolean forced) {
+    myParallelInitForced = forced;
+  }
+
+  /**
+   * @return    own init time in nanoseconds (constructor, state loading and {@link BaseComponent#initComponent()}, excluding
+   *            creation of other components it depends on) of components created so far, keyed by implementation class name
+   */
+  @NotNull
+  public Map<String, Long> getComponentInitTimes() {
+    return Collections.unmodifiableMap(myComponentInitTimes);
+  }
+
+  private void reportComponentInitTimes(long totalTime) {
+    if (!PARALLEL_INIT && !logSlowComponents() || totalTime < SLOW_COMPONENTS_CREATION_NANOS) return;
+
+    List<Map.Entry<String, Long>> times = new ArrayList<Map.Entry<String, Long>>(myComponentInitTimes.entrySet());
+    Collections.sort(times, new Comparator<Map.Entry<String, Long>>() {
+      @Override
+      public int compare(Map.Entry<String, Long> o1, Map.Entry<String, Long> o2) {
+        return o2.getValue().compareTo(o1.getValue());
+      }
+    });
+
+    long ownTimeSum = 0;
+    for (Map.Entry<String, Long> entry : times) {
+      ownTimeSum += entry.getValue();
+    }
+    StringBuilder report = new StringBuilder();
+    report.append(this).append(": ").append(times.size()).append(" components created in ").append(totalTime / 1000000)
+      .append(" ms (").append(ownTimeSum / 1000000).append(" ms in total), the slowest ones:");
+    for (int i = 0; i < times.size() && i < SLOWEST_COMPONENTS_TO_REPORT; i++) {
+      report.append("\n  ").append(times.get(i).getKey()).append(": ").append(times.get(i).getValue() / 1000000).append(" ms");
+    }
+    LOG.info(report.toString());
+  }
+
   protected synchronized Object createComponent(Class componentInterface) {
     final Object component = getPicoContainer().getComponentInstance(componentInterface.getName());
     LOG.assertTrue(component != null, "Can't instantiate component for: " + componentInterface);
@@ -149,6 +319,7 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
   protected <T> T getComponentFromContainer(Class<T> interfaceClass) {
     final T initializedComponent = (T)myInitializedComponents.get(interfaceClass);
     if (initializedComponent != null) return initializedComponent;
+    if (myParallelInitialization) return getComponentFromContainerConcurrently(interfaceClass);
 
     synchronized (this) {
       if (myComponentsRegistry == null || !myComponentsRegistry.containsInterface(interfaceClass)) {
@@ -181,6 +352,34 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
     }
   }
 
+  /**
+   * Is used while components are created in parallel. The manager isn't locked while the component is created since
+   * the component initialization code may request other components being created by other threads. Concurrent creation
+   * of the same component is prevented by its adapter.
+   */
+  @SuppressWarnings({"unchecked"})
+  @Nullable
+  private <T> T getComponentFromContainerConcurrently(Class<T> interfaceClass) {
+    synchronized (this) {
+      if (myComponentsRegistry == null || !myComponentsRegistry.containsInterface(interfaceClass)) {
+        return null;
+      }
+    }
+
+    T component = (T)getPicoContainer().getComponentInstance(interfaceClass.getName());
+    if (component == null) {
+      throw new IncorrectOperationException("Can't instantiate component for: " + interfaceClass);
+    }
+
+    T previous = (T)myInitializedComponents.putIfAbsent(interfaceClass, component);
+    if (previous != null) return previous;
+
+    if (component instanceof com.intellij.openapi.Disposable) {
+      Disposer.register(this, (com.intellij.openapi.Disposable)component);
+    }
+    return component;
+  }
+
   @Override
   public <T> T getComponent(@NotNull Class<T> interfaceClass) {
     assert !myDisposeCompleted : "Already disposed: "+this;
@@ -381,6 +580,22 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
     return LOG.isDebugEnabled();
   }
 
+  @Nullable
+  private static Constructor getGreediestPublicConstructor(@NotNull Class<?> implementationClass) {
+    Constructor result = null;
+    try {
+      for (Constructor constructor : implementationClass.getConstructors()) {
+        if (result == null || constructor.getParameterTypes().length > result.getParameterTypes().length) {
+          result = constructor;
+        }
+      }
+    }
+    catch (Throwable e) {
+      LOG.info("Can't get constructors of " + implementationClass + ": " + e);
+    }
+    return result != null && Modifier.isPublic(result.getModifiers()) ? result : null;
+  }
+
   protected class ComponentsRegistry {
     private final Map<Class, Object> myInterfaceToLockMap = new THashMap<Class, Object>();
     private final Map<Class, Class> myInterfaceToClassMap = new THashMap<Class, Class>();
@@ -444,7 +659,32 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
       return ((float)myImplementations.size()) / myComponentConfigs.size();
     }
 
-    private void registerComponentInstance(final Object component) {
+    /**
+     * @return    for every component interface, interfaces of this manager components whose implementations
+     *            may be injected into the greediest public constructor of the component implementation
+     */
+    @NotNull
+    private Map<Class, Set<Class>> getConstructorDependencies() {
+      assert myClassesLoaded;
+      Map<Class, Set<Class>> result = new THashMap<Class, Set<Class>>();
+      for (Class componentInterface : myComponentInterfaces) {
+        Set<Class> dependencies = new THashSet<Class>();
+        Constructor constructor = getGreediestPublicConstructor(myInterfaceToClassMap.get(componentInterface));
+        if (constructor != null) {
+          for (Class parameterType : constructor.getParameterTypes()) {
+            for (Class candidate : myComponentInterfaces) {
+              if (candidate != componentInterface && ReflectionCache.isAssignable(parameterType, myInterfaceToClassMap.get(candidate))) {
+                dependencies.add(candidate);
+              }
+            }
+          }
+        }
+        result.put(componentInterface, dependencies);
+      }
+      return result;
+    }
+
+    private synchronized void registerComponentInstance(final Object component) {
       myImplementations.add(component);
 
       if (component instanceof BaseComponent) {
@@ -510,14 +750,36 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
     private final ComponentAdapter myDelegate;
     private boolean myInitialized = false;
     private boolean myInitializing = false;
+    // guards creation and initialization while components are created in parallel
+    private final InitializationLock myParallelInitLock = new InitializationLock();
+    private volatile Object myInstance;
 
-    public ComponentConfigComponentAdapter(final ComponentConfig config, Class<?> implementationClass) {
+    public ComponentConfigComponentAdapter(final ComponentConfig config, final Class<?> implementationClass) {
       myConfig = config;
 
       final String componentKey = config.getInterfaceClass();
       myDelegate = new CachingComponentAdapter(new ConstructorInjectionComponentAdapter(componentKey, implementationClass, null, true)) {
         @Override
         public Object getComponentInstance(PicoContainer picoContainer) throws PicoInitializationException, PicoIntrospectionException {
+          if (!myParallelInitialization) {
+            return getInitializedComponentInstance(picoContainer);
+          }
+
+          if (!myParallelInitLock.lockOrDetectCycle()) {
+            reportCyclicInitialization();
+            Object instance = myInstance;
+            if (instance == null) throw new CyclicDependencyException(implementationClass);
+            return instance;
+          }
+          try {
+            return getInitializedComponentInstance(picoContainer);
+          }
+          finally {
+            myParallelInitLock.unlock();
+          }
+        }
+
+        private Object getInitializedComponentInstance(PicoContainer picoContainer) {
           ProgressIndicator indicator = getProgressIndicator();
           if (indicator != null) {
             indicator.checkCanceled();
@@ -525,39 +787,28 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
 
           Object componentInstance = null;
           try {
-            long startTime = myInitialized ? 0 : System.nanoTime();
-
-            componentInstance = super.getComponentInstance(picoContainer);
-
-            if (!myInitialized) {
-              if (myInitializing) {
-                if (myConfig.pluginDescriptor != null) {
-                  LOG.error(new PluginException("Cyclic component initialization: " + componentKey, myConfig.pluginDescriptor.getPluginId()));
-                }
-                else {
-                  LOG.error(new Throwable("Cyclic component initialization: " + componentKey));
-                }
-              }
-
+            if (myInitialized) {
+              componentInstance = super.getComponentInstance(picoContainer);
+            }
+            else {
+              long[] nestedTime = ourNestedInitTime.get();
+              long outerNestedTime = nestedTime[0];
+              nestedTime[0] = 0;
+              long startTime = System.nanoTime();
+              StartupTrace.Phase phase = StartupTrace.start(componentKey);
               try {
-                myInitializing = true;
-                myComponentsRegistry.registerComponentInstance(componentInstance);
-
-                initializeComponent(componentInstance, false);
-                if (componentInstance instanceof BaseComponent) {
-                  ((BaseComponent)componentInstance).initComponent();
-                }
-
-                long ms = (System.nanoTime() - startTime) / 1000000;
-                if (ms > 10 && logSlowComponents()) {
-                  LOG.info(componentInstance.getClass().getName() + " initialized in " + ms + " ms");
-                }
+                componentInstance = super.getComponentInstance(picoContainer);
+                myInstance = componentInstance;
+                initialize(componentInstance, startTime);
               }
               finally {
-                myInitializing = false;
+                long time = System.nanoTime() - startTime;
+                if (myInitialized) {
+                  myComponentInitTimes.put(componentInstance.getClass().getName(), time - nestedTime[0]);
+                }
+                nestedTime[0] = outerNestedTime + time;
+                phase.end();
               }
-
-              myInitialized = true;
             }
           }
           catch (ProcessCanceledException e) {
@@ -575,6 +826,53 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
       };
     }
 
+    private void initialize(@NotNull Object componentInstance, long startTime) {
+      if (myInitializing) {
+        reportCyclicInitialization();
+      }
+
+      try {
+        myInitializing = true;
+        myComponentsRegistry.registerComponentInstance(componentInstance);
+
+        if (myParallelInitialization) {
+          myParallelStateLoadingLock.lock();
+          try {
+            initializeComponent(componentInstance, false);
+          }
+          finally {
+            myParallelStateLoadingLock.unlock();
+          }
+        }
+        else {
+          initializeComponent(componentInstance, false);
+        }
+        if (componentInstance instanceof BaseComponent) {
+          ((BaseComponent)componentInstance).initComponent();
+        }
+
+        long ms = (System.nanoTime() - startTime) / 1000000;
+        if (ms > 10 && logSlowComponents()) {
+          LOG.info(componentInstance.getClass().getName() + " initialized in " + ms + " ms");
+        }
+      }
+      finally {
+        myInitializing = false;
+      }
+
+      myInitialized = true;
+    }
+
+    private void reportCyclicInitialization() {
+      String componentKey = myConfig.getInterfaceClass();
+      if (myConfig.pluginDescriptor != null) {
+        LOG.error(new PluginException("Cyclic component initialization: " + componentKey, myConfig.pluginDescriptor.getPluginId()));
+      }
+      else {
+        LOG.error(new Throwable("Cyclic component initialization: " + componentKey));
+      }
+    }
+
     @Override
     public Object getComponentKey() {
       return myConfig.getInterfaceClass();
@@ -601,4 +899,67 @@ public abstract class ComponentManagerImpl extends UserDataHolderBase implements
       myDelegate.accept(visitor);
     }
   }
+
+  /**
+   * Lock used while components are created in parallel. Threads waiting for such locks are tracked, so a thread which would
+   * wait for itself through a chain of lock owners may {@link #lockOrDetectCycle() give up} instead of blocking forever.
+   */
+  private static class InitializationLock {
+    private static final long CYCLE_CHECK_INTERVAL_MS = 10;
+    private static final ConcurrentMap<Thread, InitializationLock> ourAwaitedLocks = new ConcurrentHashMap<Thread, InitializationLock>();
+
+    private final ReentrantLock myLock = new ReentrantLock();
+    private volatile Thread myOwner;
+
+    /**
+     * @return    <code>false</code> if the lock isn't acquired since its owner (transitively) waits for the current thread
+     */
+    private boolean lockOrDetectCycle() {
+      return lock(true);
+    }
+
+    private void lock() {
+      lock(false);
+    }
+
+    private boolean lock(boolean detectCycle) {
+      Thread currentThread = Thread.currentThread();
+      if (!myLock.tryLock()) {
+        ourAwaitedLocks.put(currentThread, this);
+        try {
+          while (!myLock.tryLock(CYCLE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+            if (detectCycle && isOwnedTransitivelyBy(currentThread)) return false;
+          }
+        }
+        catch (InterruptedException e) {
+          throw new ProcessCanceledException(e);
+        }
+        finally {
+          ourAwaitedLocks.remove(currentThread);
+        }
+      }
+      myOwner = currentThread;
+      return true;
+    }
+
+    private void unlock() {
+      if (myLock.getHoldCount() == 1) {
+        myOwner = null;
+      }
+      myLock.unlock();
+    }
+
+    private boolean isOwnedTransitivelyBy(@NotNull Thread thread) {
+      InitializationLock lock = this;
+      // the chain length is bounded in case it's modified concurrently
+      for (int i = 0; i <= ourAwaitedLocks.size(); i++) {
+        Thread owner = lock.myOwner;
+        if (owner == null) return false;
+        if (owner == thread) return true;
+        lock = ourAwaitedLocks.get(owner);
+        if (lock == null) return false;
+      }
+      return false;
+    }
+  }
 }
@@ -86,6 +86,6 @@ public abstract class AbstractModificationTracker implements PsiTreeChangePrepro
   }
 
   protected void processOutOfCodeBlockModification(final PsiTreeChangeEventImpl event) {
-    myModificationTracker.incOutOfCodeBlockModificationCounter();
+    myModificationTracker.incOutOfCodeBlockModificationCounter(event.getFile());
   }
 }
@@ -18,11 +18,17 @@ package com.intellij.psi.impl;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.DumbService;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
 import com.intellij.psi.PsiDirectory;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.containers.ConcurrentWeakHashMap;
 import com.intellij.util.messages.MessageBus;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -33,6 +39,9 @@ public class PsiModificationTrackerImpl implements PsiModificationTracker, PsiTr
   private final AtomicLong myModificationCount = new AtomicLong(0);
   private final AtomicLong myOutOfCodeBlockModificationCount = new AtomicLong(0);
   private final AtomicLong myJavaStructureModificationCount = new AtomicLong(0);
+  // out of code block modifications which can't be attributed to a single file, they affect trackers of all files
+  private final AtomicLong myUnattributedModificationCount = new AtomicLong(0);
+  private final ConcurrentMap<PsiFile, FileModificationTracker> myFileTrackers = new ConcurrentWeakHashMap<PsiFile, FileModificationTracker>();
   private final Listener myPublisher;
 
   public PsiModificationTrackerImpl(Project project) {
@@ -58,23 +67,51 @@ public class PsiModificationTrackerImpl implements PsiModificationTracker, PsiTr
   }
 
   public void incCounter() {
+    incCounter(null);
+  }
+
+  /**
+   * @param context   changed element, is used to update {@link #getOutOfCodeBlockModificationTracker(PsiFile) its file tracker} only;
+   *                  <code>null</code> means that trackers of all files should be updated
+   */
+  public void incCounter(@Nullable PsiElement context) {
     myModificationCount.getAndIncrement();
     myJavaStructureModificationCount.getAndIncrement();
     myOutOfCodeBlockModificationCount.getAndIncrement();
+    incFileCounter(context);
     myPublisher.modificationCountChanged();
   }
 
   public void incOutOfCodeBlockModificationCounter() {
+    incOutOfCodeBlockModificationCounter(null);
+  }
+
+  /**
+   * @see #incCounter(PsiElement)
+   */
+  public void incOutOfCodeBlockModificationCounter(@Nullable PsiElement context) {
     myModificationCount.getAndIncrement();
     myOutOfCodeBlockModificationCount.getAndIncrement();
+    incFileCounter(context);
     myPublisher.modificationCountChanged();
   }
 
+  private void incFileCounter(@Nullable PsiElement context) {
+    PsiFile file = context == null || context instanceof PsiDirectory || !context.isValid() ? null : context.getContainingFile();
+    if (file == null) {
+      myUnattributedModificationCount.getAndIncrement();
+    }
+    else {
+      getFileTracker(file).myCount.getAndIncrement();
+    }
+  }
+
   @Override
   public void treeChanged(@NotNull PsiTreeChangeEventImpl event) {
     myModificationCount.getAndIncrement();
     if (event.getParent() instanceof PsiDirectory) {
       myOutOfCodeBlockModificationCount.getAndIncrement();
+      myUnattributedModificationCount.getAndIncrement();
     }
 
     myPublisher.modificationCountChanged();
@@ -94,4 +131,36 @@ public class PsiModificationTrackerImpl implements PsiModificationTracker, PsiTr
   public long getJavaStructureModificationCount() {
     return myJavaStructureModificationCount.get();
   }
+
+  /**
+   * Tracks out of code block modifications of the given file only, as well as the modifications which can't be attributed to
+   * a single file (e.g. project roots change). Can be used as a dependency of cached values which are computed from the given
+   * file structure only, so they aren't dropped when other files are edited. Unlike {@link #OUT_OF_CODE_BLOCK_MODIFICATION_COUNT},
+   * it's not suitable for values which depend on other files, e.g. on resolve results.
+   */
+  @NotNull
+  public ModificationTracker getOutOfCodeBlockModificationTracker(@NotNull PsiFile file) {
+    return getFileTracker(file);
+  }
+
+  @NotNull
+  private FileModificationTracker getFileTracker(@NotNull PsiFile file) {
+    FileModificationTracker tracker = myFileTrackers.get(file);
+    if (tracker == null) {
+      FileModificationTracker newTracker = new FileModificationTracker();
+      tracker = myFileTrackers.putIfAbsent(file, newTracker);
+      if (tracker == null) tracker = newTracker;
+    }
+    return tracker;
+  }
+
+  private class FileModificationTracker implements ModificationTracker {
+    private final AtomicLong myCount = new AtomicLong(0);
+
+    @Override
+    public long getModificationCount() {
+      // both summands only grow, so the sum changes on each modification of either
+      return myCount.get() + myUnattributedModificationCount.get();
+    }
+  }
 }
@@ -73,7 +73,7 @@ public abstract class PsiTreeChangePreprocessorBase implements PsiTreeChangePrep
     }
 
     if (!changedInsideCodeBlock) {
-      myModificationTracker.incOutOfCodeBlockModificationCounter();
+      myModificationTracker.incOutOfCodeBlockModificationCounter(event.getFile());
     }
   }
 
@@ -26,19 +26,43 @@ import com.intellij.psi.*;
 import com.intellij.psi.impl.AnyPsiChangeListener;
 import com.intellij.psi.impl.PsiManagerImpl;
 import com.intellij.reference.SoftReference;
+import com.intellij.util.SystemProperties;
 import com.intellij.util.containers.ConcurrentWeakHashMap;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.messages.MessageBus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Caches reference resolve results until the next PSI modification.
+ * <p/>
+ * By default results are held by soft references, so the whole cache may be flushed by the GC under memory pressure.
+ * When <code>'idea.resolve.cache.max.size'</code> system property is set to a positive number, results are held strongly
+ * instead and the number of cached results is bounded by that value: when it's exceeded, results which weren't requested
+ * since the previous eviction are dropped (clock eviction) until the cache is 3/4 full.
+ * <p/>
+ * Hits and misses are counted only when <code>'idea.resolve.cache.statistics'</code> system property is set.
+ */
 public class ResolveCache {
   private static final Logger LOG = Logger.getInstance("#com.intellij.psi.impl.source.resolve.ResolveCache");
+  private static final int MAX_SIZE = SystemProperties.getIntProperty("idea.resolve.cache.max.size", 0);
+  private static final boolean COLLECT_STATISTICS = Boolean.getBoolean("idea.resolve.cache.statistics");
+
   private final ConcurrentMap[] myMaps = new ConcurrentMap[2*2*2]; //boolean physical, boolean incompleteCode, boolean isPoly
   private final RecursionGuard myGuard = RecursionManager.createGuard("resolveCache");
+  private final int myMaxSize;
+  private final AtomicInteger mySize = new AtomicInteger(); // approximate, maintained in bounded mode only
+  private final AtomicBoolean myEvicting = new AtomicBoolean();
+  private final AtomicLong myHits = new AtomicLong();
+  private final AtomicLong myMisses = new AtomicLong();
+  private final AtomicLong myEvictions = new AtomicLong();
 
   public static ResolveCache getInstance(Project project) {
     ProgressIndicatorProvider.checkCanceled(); // We hope this method is being called often enough to cancel daemon processes smoothly
@@ -58,6 +82,14 @@ public class ResolveCache {
   }
 
   public ResolveCache(@NotNull MessageBus messageBus) {
+    this(messageBus, MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize   maximum number of cached results; non-positive value means that results are held by soft references
+   */
+  ResolveCache(@NotNull MessageBus messageBus, int maxSize) {
+    myMaxSize = maxSize;
     for (int i = 0; i < myMaps.length; i++) {
       myMaps[i] = createWeakMap();
     }
@@ -80,6 +112,40 @@ public class ResolveCache {
   public void clearCache(boolean isPhysical) {
     int startIndex = isPhysical ? 0 : 1;
     for (int i=startIndex;i<2;i++)for (int j=0;j<2;j++)for (int k=0;k<2;k++) myMaps[i*4+j*2+k].clear();
+    if (isBounded()) {
+      mySize.set(countEntries());
+    }
+  }
+
+  /**
+   * @return    number of cached results returned; always <code>0</code> unless statistics are collected
+   */
+  public long getHitCount() {
+    return myHits.get();
+  }
+
+  /**
+   * @return    number of results computed because they weren't cached; always <code>0</code> unless statistics are collected
+   */
+  public long getMissCount() {
+    return myMisses.get();
+  }
+
+  /**
+   * @return    number of results dropped because of the cache size limit; always <code>0</code> for unbounded cache
+   */
+  public long getEvictionCount() {
+    return myEvictions.get();
+  }
+
+  @Override
+  public String toString() {
+    return "ResolveCache(" + (isBounded() ? "max size: " + myMaxSize + ", size: " + mySize.get() + ", " : "") +
+           "hits: " + getHitCount() + ", misses: " + getMissCount() + ", evictions: " + getEvictionCount() + ")";
+  }
+
+  private boolean isBounded() {
+    return myMaxSize > 0;
   }
 
   @Nullable
@@ -96,8 +162,13 @@ public class ResolveCache {
     Getter<TResult> reference = map.get(ref);
     TResult result = reference == null ? null : reference.get();
     if (result != null) {
+      if (COLLECT_STATISTICS) myHits.incrementAndGet();
+      if (reference instanceof BoundedGetter && !((BoundedGetter)reference).myAccessed) {
+        ((BoundedGetter)reference).myAccessed = true;
+      }
       return result;
     }
+    if (COLLECT_STATISTICS) myMisses.incrementAndGet();
 
     RecursionGuard.StackStamp stamp = myGuard.markStack();
     result = needToPreventRecursion ? myGuard.doPreventingRecursion(Trinity.create(ref, incompleteCode, isPoly), true, new Computable<TResult>() {
@@ -164,17 +235,31 @@ public class ResolveCache {
       super(referent);
     }
   }
+
+  private static class BoundedGetter<T> extends StaticGetter<T> {
+    private volatile boolean myAccessed;
+
+    public BoundedGetter(T value) {
+      super(value);
+    }
+  }
   private static final Getter<ResolveResult[]> EMPTY_POLY_RESULT = new StaticGetter<ResolveResult[]>(ResolveResult.EMPTY_ARRAY);
   private static final Getter<Object> NULL_RESULT = new StaticGetter<Object>(null);
-  private static <TRef extends PsiReference, TResult> void cache(@NotNull TRef ref,
-                                                                 @NotNull ConcurrentMap<TRef, Getter<TResult>> map,
-                                                                 TResult result,
-                                                                 boolean isPoly) {
+  private <TRef extends PsiReference, TResult> void cache(@NotNull TRef ref,
+                                                          @NotNull ConcurrentMap<TRef, Getter<TResult>> map,
+                                                          TResult result,
+                                                          boolean isPoly) {
     // optimization: less contention
     Getter<TResult> cached = map.get(ref);
     if (cached != null && cached.get() == result) {
       return;
     }
+    if (isBounded()) {
+      if (map.put(ref, new BoundedGetter<TResult>(result)) == null && mySize.incrementAndGet() > myMaxSize) {
+        evict();
+      }
+      return;
+    }
     if (result == null) {
       // no use in creating SoftReference to null
       //noinspection unchecked
@@ -190,4 +275,45 @@ public class ResolveCache {
     }
     map.put(ref, cached);
   }
+
+  private void evict() {
+    if (!myEvicting.compareAndSet(false, true)) return;
+    try {
+      // the counter doesn't notice entries removed because their references were garbage collected
+      int size = countEntries();
+      int target = myMaxSize * 3 / 4;
+      int evicted = 0;
+      // the first pass drops results not requested since the previous eviction and resets 'accessed' mark of others
+      for (int pass = 0; pass < 2 && size - evicted > target; pass++) {
+        for (ConcurrentMap<?, ?> map : myMaps) {
+          for (Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator(); iterator.hasNext() && size - evicted > target; ) {
+            Object getter = iterator.next().getValue();
+            if (getter instanceof BoundedGetter && ((BoundedGetter)getter).myAccessed) {
+              ((BoundedGetter)getter).myAccessed = false;
+            }
+            else {
+              iterator.remove();
+              evicted++;
+            }
+          }
+        }
+      }
+      mySize.set(size - evicted);
+      myEvictions.addAndGet(evicted);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Evicted " + evicted + " results: " + this);
+      }
+    }
+    finally {
+      myEvicting.set(false);
+    }
+  }
+
+  private int countEntries() {
+    int result = 0;
+    for (ConcurrentMap<?, ?> map : myMaps) {
+      result += map.size();
+    }
+    return result;
+  }
 }
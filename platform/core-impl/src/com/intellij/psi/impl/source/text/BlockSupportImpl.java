@@ -16,6 +16,7 @@
 
 package com.intellij.psi.impl.source.text;
 
+import com.intellij.lang.ASTFactory;
 import com.intellij.lang.ASTNode;
 import com.intellij.lang.Language;
 import com.intellij.openapi.application.ApplicationManager;
@@ -40,6 +41,7 @@ import com.intellij.psi.templateLanguages.ITemplateDataElementType;
 import com.intellij.psi.text.BlockSupport;
 import com.intellij.psi.tree.IElementType;
 import com.intellij.psi.tree.IReparseableElementType;
+import com.intellij.psi.tree.IReparseableLeafElementType;
 import com.intellij.testFramework.LightVirtualFile;
 import com.intellij.util.CharTable;
 import com.intellij.util.IncorrectOperationException;
@@ -94,9 +96,20 @@ public class BlockSupportImpl extends BlockSupport {
 
     final ASTNode leafAtStart = treeFileElement.findLeafElementAt(Math.max(0, changedPsiRange.getStartOffset() - 1));
     final ASTNode leafAtEnd = treeFileElement.findLeafElementAt(changedPsiRange.getEndOffset());
-    ASTNode node = leafAtStart != null && leafAtEnd != null ? TreeUtil.findCommonParent(leafAtStart, leafAtEnd) : treeFileElement;
     Language baseLanguage = file.getViewProvider().getBaseLanguage();
 
+    // the most frequent case of typing inside an identifier or a comment: replace the single leaf
+    DiffLog leafLog = leafAtStart == null ? null : tryReparseLeaf(fileImpl, leafAtStart, changedPsiRange, newFileText, lengthShift);
+    if (leafLog == null) {
+      ASTNode leafAfterStart = treeFileElement.findLeafElementAt(changedPsiRange.getStartOffset());
+      if (leafAfterStart != null && leafAfterStart != leafAtStart) {
+        leafLog = tryReparseLeaf(fileImpl, leafAfterStart, changedPsiRange, newFileText, lengthShift);
+      }
+    }
+    if (leafLog != null) return leafLog;
+
+    ASTNode node = leafAtStart != null && leafAtEnd != null ? TreeUtil.findCommonParent(leafAtStart, leafAtEnd) : treeFileElement;
+
     while (node != null && !(node instanceof FileElement)) {
       IElementType elementType = node.getElementType();
       if (elementType instanceof IReparseableElementType) {
@@ -134,6 +147,39 @@ public class BlockSupportImpl extends BlockSupport {
     return makeFullParse(node, newFileText, textLength, fileImpl, indicator);
   }
 
+  /**
+   * @return diff replacing the given leaf with a new one if the changed range lies within the leaf and the leaf
+   *         {@link IReparseableLeafElementType#isReparseable(ASTNode, CharSequence) allows} that; <code>null</code> otherwise
+   */
+  @Nullable
+  private static DiffLog tryReparseLeaf(@NotNull PsiFileImpl file,
+                                        @NotNull ASTNode leaf,
+                                        @NotNull TextRange changedPsiRange,
+                                        @NotNull CharSequence newFileText,
+                                        int lengthShift) {
+    IElementType elementType = leaf.getElementType();
+    if (!(elementType instanceof IReparseableLeafElementType) || leaf instanceof ForeignLeafPsiElement) return null;
+    if (!file.getViewProvider().getBaseLanguage().isKindOf(elementType.getLanguage())) return null;
+
+    TextRange leafRange = leaf.getTextRange();
+    if (!leafRange.contains(changedPsiRange)) return null;
+    int start = leafRange.getStartOffset();
+    int end = leafRange.getEndOffset() + lengthShift;
+    if (end <= start || end > newFileText.length()) return null;
+
+    CharSequence newText = newFileText.subSequence(start, end);
+    if (!((IReparseableLeafElementType)elementType).isReparseable(leaf, newText)) return null;
+
+    CharTable charTable = file.getTreeElement().getCharTable();
+    LeafElement newLeaf = ASTFactory.leaf(elementType, charTable.intern(newText));
+    DummyHolder holder = DummyHolderFactory.createHolder(file.getManager(), null, leaf.getPsi(), charTable);
+    holder.getTreeElement().rawAddChildren(newLeaf);
+
+    DiffLog diffLog = new DiffLog();
+    diffLog.nodeReplaced(leaf, newLeaf);
+    return diffLog;
+  }
+
   private static void assertFileLength(PsiFile file, CharSequence newFileText, ASTNode node, IElementType elementType, int start, int end) {
     if (end > newFileText.length() && ApplicationManager.getApplication().isInternal()) {
       String newTextBefore = newFileText.subSequence(0, start).toString();
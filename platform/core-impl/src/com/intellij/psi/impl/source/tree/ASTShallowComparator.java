@@ -19,6 +19,7 @@ package com.intellij.psi.impl.source.tree;
 import com.intellij.lang.ASTNode;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiErrorElement;
 import com.intellij.util.ThreeState;
 import com.intellij.util.diff.ShallowNodeComparator;
@@ -41,9 +42,10 @@ public class ASTShallowComparator implements ShallowNodeComparator<ASTNode, ASTN
 
   private ThreeState textMatches(ASTNode oldNode, ASTNode newNode) {
     myIndicator.checkCanceled();
-    String oldText = TreeUtil.isCollapsedChameleon(oldNode) ? oldNode.getText() : null;
-    String newText = TreeUtil.isCollapsedChameleon(newNode) ? newNode.getText() : null;
-    if (oldText != null && newText != null) return oldText.equals(newText) ? ThreeState.YES : ThreeState.UNSURE;
+    // getChars() doesn't copy the text of leaves and collapsed chameleons, unlike getText()
+    CharSequence oldText = TreeUtil.isCollapsedChameleon(oldNode) ? oldNode.getChars() : null;
+    CharSequence newText = TreeUtil.isCollapsedChameleon(newNode) ? newNode.getChars() : null;
+    if (oldText != null && newText != null) return StringUtil.equals(oldText, newText) ? ThreeState.YES : ThreeState.UNSURE;
 
     if (oldText != null) {
       return compareTreeToText((TreeElement)newNode, oldText) ? ThreeState.YES : ThreeState.UNSURE;
@@ -53,16 +55,18 @@ public class ASTShallowComparator implements ShallowNodeComparator<ASTNode, ASTN
     }
 
     if (oldNode instanceof ForeignLeafPsiElement) {
-      return newNode instanceof ForeignLeafPsiElement && oldNode.getText().equals(newNode.getText()) ? ThreeState.YES : ThreeState.NO;
+      return newNode instanceof ForeignLeafPsiElement && StringUtil.equals(oldNode.getChars(), newNode.getChars()) ? ThreeState.YES : ThreeState.NO;
     }
     
     if (newNode instanceof ForeignLeafPsiElement) return ThreeState.NO;
 
     if (oldNode instanceof LeafElement) {
-      return ((LeafElement)oldNode).textMatches(newNode.getText()) ? ThreeState.YES : ThreeState.NO;
+      if (oldNode.getTextLength() != newNode.getTextLength()) return ThreeState.NO;
+      return ((LeafElement)oldNode).textMatches(newNode.getChars()) ? ThreeState.YES : ThreeState.NO;
     }
     if (newNode instanceof LeafElement) {
-      return ((LeafElement)newNode).textMatches(oldNode.getText()) ? ThreeState.YES : ThreeState.NO;
+      if (oldNode.getTextLength() != newNode.getTextLength()) return ThreeState.NO;
+      return ((LeafElement)newNode).textMatches(oldNode.getChars()) ? ThreeState.YES : ThreeState.NO;
     }
 
     if (oldNode instanceof PsiErrorElement && newNode instanceof PsiErrorElement) {
@@ -75,7 +79,7 @@ public class ASTShallowComparator implements ShallowNodeComparator<ASTNode, ASTN
   }
 
   // have to perform tree walking by hand here to be able to interrupt ourselves
-  private boolean compareTreeToText(@NotNull TreeElement root, @NotNull final String text) {
+  private boolean compareTreeToText(@NotNull TreeElement root, @NotNull final CharSequence text) {
     final int[] curOffset = {0};
     root.acceptTree(new RecursiveTreeElementWalkingVisitor() {
       @Override
@@ -194,6 +194,10 @@ public abstract class CachedValueBase<T> {
       return value == ObjectUtils.NULL ? null : value;
     }
 
+    if (CachedValueStatistics.ENABLED) {
+      CachedValueStatistics.recordComputation(getValueProvider(), getRecomputationReason());
+    }
+
     RecursionGuard.StackStamp stamp = RecursionManager.createGuard("cachedValue").markStack();
 
     // compute outside lock to avoid deadlock
@@ -207,4 +211,19 @@ public abstract class CachedValueBase<T> {
 
   protected abstract <P> CachedValueProvider.Result<T> doCompute(P param);
 
+  public abstract Object getValueProvider();
+
+  @NotNull
+  private String getRecomputationReason() {
+    Data<T> data = getData();
+    if (data == null || data.myDependencies == null) return CachedValueStatistics.NO_VALUE;
+    for (int i = 0; i < data.myDependencies.length; i++) {
+      Object dependency = data.myDependencies[i];
+      if (dependency != null && isDependencyOutOfDate(dependency, data.myTimeStamps[i])) {
+        return dependency instanceof Key ? dependency.toString() : dependency.getClass().getName();
+      }
+    }
+    return "other";
+  }
+
 }
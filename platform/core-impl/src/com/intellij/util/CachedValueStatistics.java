@@ -0,0 +1,96 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util;
+
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts cached value computations per {@link com.intellij.psi.util.CachedValueProvider provider} class along with the reasons
+ * of recomputation: the first dependency found out of date or {@link #NO_VALUE} if there was no value (first computation or
+ * the value was garbage collected).
+ * <p/>
+ * Collecting is disabled unless <code>'idea.cached.value.statistics'</code> system property is set to true.
+ * <p/>
+ * Thread-safe.
+ */
+public class CachedValueStatistics {
+  public static final boolean ENABLED = SystemProperties.getBooleanProperty("idea.cached.value.statistics", false);
+  public static final String NO_VALUE = "no value";
+
+  private static final ConcurrentMap<String, ProviderStatistics> ourStatistics = ContainerUtil.newConcurrentMap();
+
+  private CachedValueStatistics() {
+  }
+
+  public static void recordComputation(@NotNull Object provider, @NotNull String reason) {
+    String name = provider.getClass().getName();
+    ProviderStatistics statistics = ourStatistics.get(name);
+    if (statistics == null) {
+      statistics = ConcurrencyUtil.cacheOrGet(ourStatistics, name, new ProviderStatistics(name));
+    }
+    statistics.add(reason);
+  }
+
+  public static void clear() {
+    ourStatistics.clear();
+  }
+
+  /**
+   * @return    human-readable report, the most often recomputed providers go first
+   */
+  @NotNull
+  public static String getReport() {
+    List<ProviderStatistics> statistics = new ArrayList<ProviderStatistics>(ourStatistics.values());
+    Collections.sort(statistics, new Comparator<ProviderStatistics>() {
+      @Override
+      public int compare(ProviderStatistics o1, ProviderStatistics o2) {
+        return o2.myComputations.get() - o1.myComputations.get();
+      }
+    });
+    StringBuilder result = new StringBuilder();
+    for (ProviderStatistics providerStatistics : statistics) {
+      result.append(providerStatistics.myProviderClass).append(": ").append(providerStatistics.myComputations.get()).append(" computations\n");
+      for (Map.Entry<String, AtomicInteger> entry : providerStatistics.myReasons.entrySet()) {
+        result.append("    ").append(entry.getKey()).append(": ").append(entry.getValue().get()).append('\n');
+      }
+    }
+    return result.toString();
+  }
+
+  private static class ProviderStatistics {
+    private final String myProviderClass;
+    private final AtomicInteger myComputations = new AtomicInteger();
+    private final ConcurrentMap<String, AtomicInteger> myReasons = ContainerUtil.newConcurrentMap();
+
+    private ProviderStatistics(@NotNull String providerClass) {
+      myProviderClass = providerClass;
+    }
+
+    private void add(@NotNull String reason) {
+      myComputations.incrementAndGet();
+      AtomicInteger count = myReasons.get(reason);
+      if (count == null) {
+        count = ConcurrencyUtil.cacheOrGet(myReasons, reason, new AtomicInteger());
+      }
+      count.incrementAndGet();
+    }
+  }
+}
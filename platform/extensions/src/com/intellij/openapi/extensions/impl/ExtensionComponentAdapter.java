@@ -32,7 +32,7 @@ import org.picocontainer.defaults.NotConcreteRegistrationException;
  */
 public class ExtensionComponentAdapter implements LoadingOrder.Orderable, AssignableToComponentAdapter {
   public static final ExtensionComponentAdapter[] EMPTY_ARRAY = new ExtensionComponentAdapter[0];
-  private Object myComponentInstance;
+  private volatile Object myComponentInstance;
   private final String myImplementationClassName;
   private final Element myExtensionElement;
   private final PicoContainer myContainer;
@@ -64,18 +64,19 @@ public class ExtensionComponentAdapter implements LoadingOrder.Orderable, Assign
   }
 
   @Override
-  public Object getComponentInstance(final PicoContainer container) throws PicoInitializationException, PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
+  public synchronized Object getComponentInstance(final PicoContainer container) throws PicoInitializationException, PicoIntrospectionException, AssignabilityRegistrationException, NotConcreteRegistrationException {
     //assert myContainer == container : "Different containers: " + myContainer + " - " + container;
-    if (myComponentInstance == null) {
+    Object instance = myComponentInstance;
+    if (instance == null) {
       if (Element.class.equals(getComponentImplementation())) {
-        myComponentInstance = myExtensionElement;
+        instance = myExtensionElement;
       }
       else {
-        Object componentInstance = getDelegate().getComponentInstance(container);
+        instance = getDelegate().getComponentInstance(container);
 
         if (myDeserializeInstance) {
           try {
-            XmlSerializer.deserializeInto(componentInstance, myExtensionElement);
+            XmlSerializer.deserializeInto(instance, myExtensionElement);
           }
           catch (Exception e) {
             throw new PicoInitializationException(e);
@@ -84,17 +85,18 @@ public class ExtensionComponentAdapter implements LoadingOrder.Orderable, Assign
 
         ExtensionInitializer initializer = (ExtensionInitializer)container.getComponentInstance(ExtensionInitializer.class);
         if (initializer != null) {
-          initializer.initExtension(componentInstance);
+          initializer.initExtension(instance);
         }
-        myComponentInstance = componentInstance;
       }
-      if (myComponentInstance instanceof PluginAware) {
-        PluginAware pluginAware = (PluginAware) myComponentInstance;
+      if (instance instanceof PluginAware) {
+        PluginAware pluginAware = (PluginAware) instance;
         pluginAware.setPluginDescriptor(myPluginDescriptor);
       }
+      // published only when fully initialized: isExtensionCreated() is checked without the lock
+      myComponentInstance = instance;
     }
 
-    return myComponentInstance;
+    return instance;
   }
 
   @Override
@@ -111,6 +113,10 @@ public class ExtensionComponentAdapter implements LoadingOrder.Orderable, Assign
     return getComponentInstance(myContainer);
   }
 
+  boolean isExtensionCreated() {
+    return myComponentInstance != null;
+  }
+
   @Override
   public LoadingOrder getOrder() {
     return LoadingOrder.readOrder(myExtensionElement.getAttributeValue("order"));
@@ -18,6 +18,7 @@ package com.intellij.openapi.extensions.impl;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.*;
+import com.intellij.openapi.util.Condition;
 import com.intellij.openapi.util.Disposer;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.ArrayUtilRt;
@@ -48,6 +49,7 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
 
   private final List<T> myExtensions = new ArrayList<T>();
   private volatile T[] myExtensionsCache;
+  private volatile ExtensionComponentAdapter[] mySortedAdaptersCache;
 
   private final ExtensionsAreaImpl myOwner;
   private final PluginDescriptor myDescriptor;
@@ -58,6 +60,10 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
 
   private Class<T> myExtensionClass;
 
+  // guarded by this
+  private long myInstantiationNanos;
+  private int myInstantiatedCount;
+
   private static final StringInterner INTERNER = new StringInterner();
 
   public ExtensionPointImpl(@NotNull String name,
@@ -238,7 +244,7 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
       LoadingOrder.sort(adapters);
       final List<T> extensions = new ArrayList<T>(adapters.length);
       for (ExtensionComponentAdapter adapter : adapters) {
-        @SuppressWarnings("unchecked") T extension = (T)adapter.getExtension();
+        @SuppressWarnings("unchecked") T extension = (T)createExtension(adapter);
         assertClass(extension.getClass());
         extensions.add(extension);
       }
@@ -251,6 +257,143 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
     }
   }
 
+  /**
+   * Returns extensions in the loading order creating them lazily during the iteration, so a caller which needs
+   * only the first suitable extension doesn't pay for creation of the rest ones. Extensions whose declaring elements
+   * aren't accepted by the given filter (see {@link #declaredAttributeFilter(String, Collection)}) aren't created
+   * and their classes aren't loaded at all. Extensions registered at runtime are always returned.
+   * <p/>
+   * Unlike {@link #getExtensions()}, this method doesn't fully load the point, so {@link Extension#extensionAdded(ExtensionPoint)}
+   * and listeners notifications about the created extensions are delayed until it's loaded by other means.
+   */
+  @NotNull
+  public Iterable<T> iterateExtensions(@Nullable final Condition<Element> declarationFilter) {
+    final ExtensionComponentAdapter[] adapters = getSortedAdapters();
+    return new Iterable<T>() {
+      @Override
+      public Iterator<T> iterator() {
+        return new Iterator<T>() {
+          private int myIndex;
+          private T myNext;
+
+          @Override
+          public boolean hasNext() {
+            while (myNext == null && myIndex < adapters.length) {
+              myNext = createIfAccepted(adapters[myIndex++], declarationFilter);
+            }
+            return myNext != null;
+          }
+
+          @Override
+          public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            T result = myNext;
+            myNext = null;
+            return result;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * @return    filter accepting extensions which either don't declare the given attribute or declare one of the given values,
+   *            e.g. <code>declaredAttributeFilter("language", Arrays.asList("JAVA", "any"))</code>
+   */
+  @NotNull
+  public static Condition<Element> declaredAttributeFilter(@NotNull final String attributeName, @NotNull final Collection<String> values) {
+    return new Condition<Element>() {
+      @Override
+      public boolean value(Element element) {
+        String value = element.getAttributeValue(attributeName);
+        return value == null || values.contains(value);
+      }
+    };
+  }
+
+  @NotNull
+  private ExtensionComponentAdapter[] getSortedAdapters() {
+    ExtensionComponentAdapter[] result = mySortedAdaptersCache;
+    if (result == null) {
+      synchronized (this) {
+        result = mySortedAdaptersCache;
+        if (result == null) {
+          List<ExtensionComponentAdapter> allAdapters = new ArrayList<ExtensionComponentAdapter>(myExtensionAdapters);
+          allAdapters.addAll(myLoadedAdapters);
+          result = allAdapters.toArray(new ExtensionComponentAdapter[allAdapters.size()]);
+          if (!myExtensionAdapters.isEmpty()) {
+            LoadingOrder.sort(result);
+          }
+          mySortedAdaptersCache = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Isn't synchronized on the point: extensions are created under their adapters' locks only, so a slow extension
+   * doesn't block other threads using the point, and only the statistics are published under the point's lock.
+   */
+  @Nullable
+  private T createIfAccepted(@NotNull ExtensionComponentAdapter adapter, @Nullable Condition<Element> declarationFilter) {
+    if (declarationFilter != null && !(adapter instanceof ObjectComponentAdapter) && !declarationFilter.value(adapter.getDescribingElement())) {
+      return null;
+    }
+
+    Object extension = createExtension(adapter);
+    Class<T> extensionClass = getExtensionClass();
+    if (!extensionClass.isInstance(extension)) {
+      LOG.error("Extension '" + extension.getClass() + "' must be an instance of '" + extensionClass + "'",
+                new ExtensionException(extension.getClass()));
+      return null;
+    }
+    @SuppressWarnings("unchecked") T result = (T)extension;
+    return result;
+  }
+
+  @NotNull
+  private Object createExtension(@NotNull ExtensionComponentAdapter adapter) {
+    if (adapter.isExtensionCreated()) {
+      return adapter.getExtension();
+    }
+
+    Object extension;
+    long duration;
+    synchronized (adapter) {
+      if (adapter.isExtensionCreated()) {
+        return adapter.getExtension();
+      }
+      long startTime = System.nanoTime();
+      extension = adapter.getExtension();
+      duration = System.nanoTime() - startTime;
+    }
+    extensionCreated(duration);
+    return extension;
+  }
+
+  private synchronized void extensionCreated(long durationNanos) {
+    myInstantiationNanos += durationNanos;
+    myInstantiatedCount++;
+  }
+
+  /**
+   * @return    total time spent in creation of extensions of this point (including creation of other objects they
+   *            request during initialization) in nanoseconds
+   */
+  public synchronized long getInstantiationTimeNanos() {
+    return myInstantiationNanos;
+  }
+
+  public synchronized int getInstantiatedExtensionsCount() {
+    return myInstantiatedCount;
+  }
+
   @Override
   @Nullable
   public T getExtension() {
@@ -368,6 +511,7 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
   public synchronized void reset() {
     myOwner.removeAllComponents(myExtensionAdapters);
     myExtensionAdapters.clear();
+    clearCache();
     for (T extension : getExtensions()) {
       unregisterExtension(extension);
     }
@@ -410,6 +554,7 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
 
   private void clearCache() {
     myExtensionsCache = null;
+    mySortedAdaptersCache = null;
   }
 
   synchronized boolean unregisterComponentAdapter(@NotNull ExtensionComponentAdapter componentAdapter) {
@@ -460,6 +605,11 @@ public class ExtensionPointImpl<T> implements ExtensionPoint<T> {
       return myExtension;
     }
 
+    @Override
+    boolean isExtensionCreated() {
+      return true;
+    }
+
     @Override
     public LoadingOrder getOrder() {
       return myLoadingOrder;
@@ -417,6 +417,31 @@ public class ExtensionsAreaImpl implements ExtensionsArea {
     return myExtensionPoints.values().toArray(new ExtensionPoint[myExtensionPoints.size()]);
   }
 
+  /**
+   * @return    human-readable report about time spent in creation of extensions, the most expensive extension points go first
+   */
+  @NotNull
+  public String getInstantiationStatistics(int maxPoints) {
+    List<ExtensionPointImpl> points = new ArrayList<ExtensionPointImpl>(myExtensionPoints.values());
+    Collections.sort(points, new Comparator<ExtensionPointImpl>() {
+      @Override
+      public int compare(ExtensionPointImpl o1, ExtensionPointImpl o2) {
+        long t1 = o1.getInstantiationTimeNanos();
+        long t2 = o2.getInstantiationTimeNanos();
+        return t1 > t2 ? -1 : t1 == t2 ? 0 : 1;
+      }
+    });
+
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < points.size() && i < maxPoints; i++) {
+      ExtensionPointImpl point = points.get(i);
+      if (point.getInstantiatedExtensionsCount() == 0) break;
+      result.append(String.format("%-60s %6d extensions %8d ms%n", point.getName(), point.getInstantiatedExtensionsCount(),
+                                  point.getInstantiationTimeNanos() / 1000000));
+    }
+    return result.toString();
+  }
+
   @Override
   public void unregisterExtensionPoint(@NotNull final String extensionPointName) {
     ExtensionPoint extensionPoint = myExtensionPoints.get(extensionPointName);
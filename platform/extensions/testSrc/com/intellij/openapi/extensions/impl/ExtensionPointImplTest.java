@@ -20,6 +20,9 @@ import junit.framework.TestCase;
 import org.jetbrains.annotations.NotNull;
 import org.picocontainer.defaults.DefaultPicoContainer;
 
+import java.util.Collections;
+import java.util.Iterator;
+
 /**
  * @author AKireyev
  */
@@ -139,4 +142,23 @@ public class ExtensionPointImplTest extends TestCase {
     });
     assertTrue(added[0]);
   }
+
+  public void testLazyIterationWithDeclarationFilter() {
+    ExtensionPointImpl<Object> extensionPoint = new ExtensionPointImpl<Object>("an.extension.point", Object.class.getName(), ExtensionPoint.Kind.INTERFACE, buildExtensionArea(), null, new Extensions.SimpleLogProvider(), new UndefinedPluginDescriptor());
+    Integer runtimeExtension = new Integer(123);
+    extensionPoint.registerExtension(runtimeExtension, LoadingOrder.FIRST);
+    extensionPoint.registerExtensionAdapter(createAdapter(NonCreatableClass.class, "<extension language=\"XML\"/>"));
+    extensionPoint.registerExtensionAdapter(createAdapter(TestExtensionClassOne.class, "<extension language=\"JAVA\"/>"));
+    extensionPoint.registerExtensionAdapter(createAdapter(NonCreatableClass.class, "<extension/>"));
+
+    Iterator<Object> iterator = extensionPoint.iterateExtensions(ExtensionPointImpl.declaredAttributeFilter("language", Collections.singleton("JAVA"))).iterator();
+    assertSame(runtimeExtension, iterator.next());
+    assertTrue(iterator.next() instanceof TestExtensionClassOne);
+    assertEquals(1, extensionPoint.getInstantiatedExtensionsCount());
+  }
+
+  private static ExtensionComponentAdapter createAdapter(Class<?> implementationClass, String text) {
+    return new ExtensionComponentAdapter(implementationClass.getName(), ExtensionComponentAdapterTest.readElement(text), new DefaultPicoContainer(),
+                                         new DefaultPluginDescriptor("test"), false);
+  }
 }
@@ -22,6 +22,8 @@ import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.application.ReadActionProcessor;
 import com.intellij.openapi.application.Result;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressIndicatorProvider;
@@ -38,7 +40,9 @@ import com.intellij.psi.impl.cache.impl.id.IdIndexEntry;
 import com.intellij.psi.search.*;
 import com.intellij.psi.util.PsiUtilCore;
 import com.intellij.util.CommonProcessors;
+import com.intellij.util.Function;
 import com.intellij.util.Processor;
+import com.intellij.util.SmartList;
 import com.intellij.util.codeInsight.CommentUtilCore;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.containers.MultiMap;
@@ -202,7 +206,13 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
       progress.setText(PsiBundle.message("psi.search.for.word.progress", text));
     }
 
-    final AsyncFuture<Boolean> result = processPsiFileRootsAsync(fileSet, new Processor<PsiElement>() {
+    final List<StringSearcher> searchers = Collections.singletonList(searcher);
+    final AsyncFuture<Boolean> result = processPsiFileRootsAsync(fileSet, new Function<VirtualFile, Collection<StringSearcher>>() {
+      @Override
+      public Collection<StringSearcher> fun(VirtualFile file) {
+        return searchers;
+      }
+    }, new Processor<PsiElement>() {
       @Override
       public boolean process(final PsiElement psiRoot) {
         return ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
@@ -222,14 +232,20 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
     });
   }
 
+  /**
+   * @param searchers         words searched in the given file; files whose text contains none of them are skipped without building
+   *                          PSI, as the index may report files which don't contain the word (e.g. due to word hash collisions)
+   */
   @NotNull
   private AsyncFuture<Boolean> processPsiFileRootsAsync(@NotNull List<VirtualFile> files,
+                                                        @NotNull final Function<VirtualFile, Collection<StringSearcher>> searchers,
                                                         @NotNull final Processor<PsiElement> psiRootProcessor,
                                                         final ProgressIndicator progress) {
     myManager.startBatchFilesProcessingMode();
     final AtomicInteger counter = new AtomicInteger(0);
     final AtomicBoolean canceled = new AtomicBoolean(false);
     final AtomicBoolean pceThrown = new AtomicBoolean(false);
+    final AtomicInteger skippedFilesCount = new AtomicInteger(0);
 
     final int size = files.size();
     AsyncFuture<Boolean>
@@ -245,6 +261,10 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
         if (file != null && !(file instanceof PsiBinaryFile)) {
           file.getViewProvider().getContents(); // load contents outside readaction
           try {
+            if (!mayContainAnyWord(file, searchers.fun(vfile), progress)) {
+              skippedFilesCount.incrementAndGet();
+              return countProcessedFile();
+            }
             if (myManager.getProject().isDisposed()) throw new ProcessCanceledException();
             List<PsiFile> psiRoots = ApplicationManager.getApplication().runReadAction(new Computable<List<PsiFile>>() {
               public List<PsiFile> compute() {
@@ -275,6 +295,10 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
             pceThrown.set(true);
           }
         }
+        return countProcessedFile();
+      }
+
+      private boolean countProcessedFile() {
         if (progress != null && progress.isRunning()) {
           double fraction = (double)counter.incrementAndGet() / size;
           progress.setFraction(fraction);
@@ -305,10 +329,45 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
       @Override
       public void run() {
         myManager.finishBatchFilesProcessingMode();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(skippedFilesCount.get() + " of " + size + " candidate files skipped as not containing searched words");
+        }
       }
     });
   }
 
+  /**
+   * Checks the file text under read action, so it isn't changed while being scanned and matches the PSI to be searched.
+   * Files with uncommitted documents are never skipped since their text may differ from the PSI.
+   */
+  private boolean mayContainAnyWord(@NotNull final PsiFile file,
+                                    @NotNull final Collection<StringSearcher> searchers,
+                                    @Nullable final ProgressIndicator progress) {
+    return ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
+      @Override
+      public Boolean compute() {
+        FileViewProvider viewProvider = file.getViewProvider();
+        Document document = FileDocumentManager.getInstance().getCachedDocument(viewProvider.getVirtualFile());
+        if (document != null && PsiDocumentManager.getInstance(myManager.getProject()).isUncommited(document)) {
+          return true;
+        }
+        return containsAnyWord(viewProvider.getContents(), searchers, progress);
+      }
+    });
+  }
+
+  private static boolean containsAnyWord(@NotNull CharSequence text,
+                                         @NotNull Collection<StringSearcher> searchers,
+                                         @Nullable ProgressIndicator progress) {
+    char[] textArray = CharArrayUtil.fromSequenceWithoutCopying(text);
+    for (StringSearcher searcher : searchers) {
+      if (LowLevelSearchUtil.searchWord(text, textArray, 0, text.length(), searcher, progress) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @NotNull
   private List<VirtualFile> getFilesWithText(@NotNull GlobalSearchScope scope,
                                              final short searchContext,
@@ -652,7 +711,16 @@ public class PsiSearchHelperImpl implements PsiSearchHelper {
     }
 
     final AsyncFuture<Boolean> result =
-      processPsiFileRootsAsync(new ArrayList<VirtualFile>(candidateFiles.keySet()), new Processor<PsiElement>() {
+      processPsiFileRootsAsync(new ArrayList<VirtualFile>(candidateFiles.keySet()), new Function<VirtualFile, Collection<StringSearcher>>() {
+        @Override
+        public Collection<StringSearcher> fun(VirtualFile file) {
+          List<StringSearcher> result = new SmartList<StringSearcher>();
+          for (RequestWithProcessor singleRequest : candidateFiles.get(file)) {
+            result.add(searchers.get(singleRequest));
+          }
+          return result;
+        }
+      }, new Processor<PsiElement>() {
         @Override
         public boolean process(final PsiElement psiRoot) {
           TooManyUsagesStatus.getFrom(progress).pauseProcessingIfTooManyUsages();
@@ -67,6 +67,7 @@ import com.intellij.util.ui.UIUtil;
 import com.intellij.xml.util.XmlStringUtil;
 import gnu.trove.THashMap;
 import gnu.trove.THashSet;
+import gnu.trove.TObjectLongHashMap;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -225,15 +226,24 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
                                    true, FILE_FILTER);
 
     MultiMap<LocalInspectionToolWrapper, String> tools = getToolsForElements(toolWrappers, checkDumbAwareness, inside, outside);
+    MultiMap<LocalInspectionToolWrapper, String> deferredTools = extractToolsOverTimeBudget(tools);
 
-    setProgressLimit(1L * tools.size() * 2);
+    setProgressLimit(1L * (tools.size() + deferredTools.size()) * 2);
     final LocalInspectionToolSession session = new LocalInspectionToolSession(myFile, myStartOffset, myEndOffset);
 
     List<InspectionContext> init =
-      visitPriorityElementsAndInit(tools, iManager, isOnTheFly, indicator, inside, session, toolWrappers, checkDumbAwareness);
+      visitPriorityElementsAndInit(tools, iManager, isOnTheFly, indicator, inside, session, toolWrappers, checkDumbAwareness, true);
     visitRestElementsAndCleanup(indicator, outside, session, init);
     inspectInjectedPsi(outside, isOnTheFly, indicator, iManager, false, checkDumbAwareness, toolWrappers);
 
+    if (!deferredTools.isEmpty()) {
+      // inspections exceeding the time budget are run only when all other results are ready
+      List<InspectionContext> deferred =
+        visitPriorityElementsAndInit(deferredTools, iManager, isOnTheFly, indicator, inside, session, toolWrappers, checkDumbAwareness,
+                                     false);
+      visitRestElementsAndCleanup(indicator, outside, session, deferred);
+    }
+
     indicator.checkCanceled();
 
     myInfos = new ArrayList<HighlightInfo>();
@@ -308,6 +318,20 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
     return map;
   }
 
+  @NotNull
+  private static MultiMap<LocalInspectionToolWrapper, String> extractToolsOverTimeBudget(@NotNull MultiMap<LocalInspectionToolWrapper, String> tools) {
+    MultiMap<LocalInspectionToolWrapper, String> result = new MultiMap<LocalInspectionToolWrapper, String>();
+    for (Map.Entry<LocalInspectionToolWrapper, Collection<String>> entry : tools.entrySet()) {
+      if (InspectionTimeStatistics.isOverTimeBudget(entry.getKey().getShortName())) {
+        result.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (LocalInspectionToolWrapper wrapper : result.keySet()) {
+      tools.remove(wrapper);
+    }
+    return result;
+  }
+
   @NotNull
   private List<InspectionContext> visitPriorityElementsAndInit(@NotNull MultiMap<LocalInspectionToolWrapper, String> tools,
                                                                @NotNull final InspectionManagerEx iManager,
@@ -316,9 +340,17 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
                                                                @NotNull final List<PsiElement> elements,
                                                                @NotNull final LocalInspectionToolSession session,
                                                                @NotNull List<LocalInspectionToolWrapper> wrappers,
-                                                               boolean checkDumbAwareness) {
+                                                               boolean checkDumbAwareness,
+                                                               boolean inspectInjected) {
     final List<InspectionContext> init = new ArrayList<InspectionContext>();
     List<Map.Entry<LocalInspectionToolWrapper, Collection<String>>> entries = new ArrayList<Map.Entry<LocalInspectionToolWrapper, Collection<String>>>(tools.entrySet());
+    // run historically slow inspections last so results of the fast ones are shown sooner
+    sortByAverageTime(entries, new Function<Map.Entry<LocalInspectionToolWrapper, Collection<String>>, LocalInspectionToolWrapper>() {
+      @Override
+      public LocalInspectionToolWrapper fun(Map.Entry<LocalInspectionToolWrapper, Collection<String>> entry) {
+        return entry.getKey();
+      }
+    });
     Processor<Map.Entry<LocalInspectionToolWrapper, Collection<String>>> processor =
       new Processor<Map.Entry<LocalInspectionToolWrapper, Collection<String>>>() {
         @Override
@@ -328,7 +360,9 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
       };
     boolean result = JobLauncher.getInstance().invokeConcurrentlyUnderProgress(entries, indicator, myFailFastOnAcquireReadAction, processor);
     if (!result) throw new ProcessCanceledException();
-    inspectInjectedPsi(elements, isOnTheFly, indicator, iManager, true, checkDumbAwareness, wrappers);
+    if (inspectInjected) {
+      inspectInjectedPsi(elements, isOnTheFly, indicator, iManager, true, checkDumbAwareness, wrappers);
+    }
     return init;
   }
 
@@ -354,10 +388,15 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
           }
         }
     };
+    long start = System.nanoTime();
+    long startAllocated = InspectionTimeStatistics.getCurrentThreadAllocatedBytes();
     PsiElementVisitor visitor = InspectionEngine.createVisitorAndAcceptElements(tool, holder, isOnTheFly, session, elements, languages);
 
+    InspectionContext context = new InspectionContext(toolWrapper, holder, visitor, languages);
+    context.timeNanos = System.nanoTime() - start;
+    context.allocatedBytes = InspectionTimeStatistics.getAllocatedBytesSince(startAllocated);
     synchronized (init) {
-      init.add(new InspectionContext(toolWrapper, holder, visitor, languages));
+      init.add(context);
     }
     advanceProgress(1);
 
@@ -372,15 +411,25 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
                                            @NotNull final List<PsiElement> elements,
                                            @NotNull final LocalInspectionToolSession session,
                                            @NotNull List<InspectionContext> init) {
+    sortByAverageTime(init, new Function<InspectionContext, LocalInspectionToolWrapper>() {
+      @Override
+      public LocalInspectionToolWrapper fun(InspectionContext context) {
+        return context.tool;
+      }
+    });
     Processor<InspectionContext> processor =
       new Processor<InspectionContext>() {
         @Override
         public boolean process(InspectionContext context) {
           indicator.checkCanceled();
           ApplicationManager.getApplication().assertReadAccessAllowed();
+          long start = System.nanoTime();
+          long startAllocated = InspectionTimeStatistics.getCurrentThreadAllocatedBytes();
           InspectionEngine.acceptElements(elements, context.visitor, context.languageIds);
           advanceProgress(1);
           context.tool.getTool().inspectionFinished(session, context.holder);
+          InspectionTimeStatistics.record(context.tool.getShortName(), context.timeNanos + System.nanoTime() - start,
+                                          context.allocatedBytes + InspectionTimeStatistics.getAllocatedBytesSince(startAllocated));
 
           if (context.holder.hasResults()) {
             appendDescriptors(myFile, context.holder.getResults(), context.tool);
@@ -394,6 +443,26 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
     }
   }
 
+  /**
+   * Sorts the given items so that historically fast inspections go first. Average times are taken before sorting since
+   * the statistics are updated concurrently, and the sort fails if comparison results change while it runs.
+   */
+  private static <T> void sortByAverageTime(@NotNull List<T> items, @NotNull final Function<T, LocalInspectionToolWrapper> toolGetter) {
+    final TObjectLongHashMap<String> averageTimes = new TObjectLongHashMap<String>();
+    for (T item : items) {
+      String shortName = toolGetter.fun(item).getShortName();
+      averageTimes.put(shortName, InspectionTimeStatistics.getAverageTimeNanos(shortName));
+    }
+    Collections.sort(items, new Comparator<T>() {
+      @Override
+      public int compare(T o1, T o2) {
+        long time1 = averageTimes.get(toolGetter.fun(o1).getShortName());
+        long time2 = averageTimes.get(toolGetter.fun(o2).getShortName());
+        return time1 < time2 ? -1 : time1 == time2 ? 0 : 1;
+      }
+    });
+  }
+
   void inspectInjectedPsi(@NotNull final List<PsiElement> elements,
                           final boolean onTheFly,
                           @NotNull final ProgressIndicator indicator,
@@ -820,5 +889,7 @@ public class LocalInspectionsPass extends ProgressableTextEditorHighlightingPass
     @NotNull final ProblemsHolder holder;
     @NotNull final PsiElementVisitor visitor;
     @Nullable final Collection<String> languageIds;
+    long timeNanos; // time spent by the tool on elements inside the priority range
+    long allocatedBytes; // memory allocated by the tool on elements inside the priority range
   }
 }
@@ -270,6 +270,13 @@ public abstract class PassExecutorService implements Disposable {
   }
 
   private void submit(final ScheduledPass pass) {
+    if (!pass.myUpdateProgress.isCanceled() && pass.myPass.getClass() == ProgressableTextEditorHighlightingPass.EmptyPass.class) {
+      // the factory found no dirty range for the pass in FileStatusMap, so there is nothing to collect:
+      // don't occupy a job thread, just apply it (i.e. mark the file up to date) and let the successors go
+      mySubmittedPasses.put(pass, JobImpl.NULL_JOB);
+      pass.completeWithoutCollecting();
+      return;
+    }
     if (!pass.myUpdateProgress.isCanceled()) {
       Job<Void> job = JobLauncher.getInstance().submitToJobThread(pass.myJobPriority, pass, new Consumer<Future>() {
         @Override
@@ -334,13 +341,9 @@ public abstract class PassExecutorService implements Disposable {
       if (myUpdateProgress.isCanceled()) return;
 
       log(myUpdateProgress, myPass, "Started. ");
+      final long start = System.currentTimeMillis();
 
-      for (ScheduledPass successor : mySuccessorsOnSubmit) {
-        int predecessorsToRun = successor.myRunningPredecessorsCount.decrementAndGet();
-        if (predecessorsToRun == 0) {
-          submit(successor);
-        }
-      }
+      releaseSuccessors(mySuccessorsOnSubmit);
 
       ((ProgressManagerImpl)ProgressManager.getInstance()).executeProcessUnderProgress(new Runnable(){
         @Override
@@ -381,15 +384,30 @@ public abstract class PassExecutorService implements Disposable {
         }
       },myUpdateProgress);
 
-      log(myUpdateProgress, myPass, "Finished. ");
+      log(myUpdateProgress, myPass, "Finished in ", System.currentTimeMillis() - start, "ms. ");
 
       if (!myUpdateProgress.isCanceled()) {
         applyInformationToEditorsLater(myFileEditors, myPass, myUpdateProgress, myThreadsToStartCountdown);
-        for (ScheduledPass successor : mySuccessorsOnCompletion) {
-          int predecessorsToRun = successor.myRunningPredecessorsCount.decrementAndGet();
-          if (predecessorsToRun == 0) {
-            submit(successor);
-          }
+        releaseSuccessors(mySuccessorsOnCompletion);
+      }
+    }
+
+    /**
+     * Does the same as {@link #run()} minus collecting information, so it neither takes the read action nor blocks the caller,
+     * which may be the EDT. Applying is still done later on the EDT as for any other pass.
+     */
+    private void completeWithoutCollecting() {
+      log(myUpdateProgress, myPass, "Up to date, not submitted. ");
+      releaseSuccessors(mySuccessorsOnSubmit);
+      applyInformationToEditorsLater(myFileEditors, myPass, myUpdateProgress, myThreadsToStartCountdown);
+      releaseSuccessors(mySuccessorsOnCompletion);
+    }
+
+    private void releaseSuccessors(@NotNull Collection<ScheduledPass> successors) {
+      for (ScheduledPass successor : successors) {
+        int predecessorsToRun = successor.myRunningPredecessorsCount.decrementAndGet();
+        if (predecessorsToRun == 0) {
+          submit(successor);
         }
       }
     }
@@ -328,7 +328,11 @@ public class GlobalInspectionContextImpl extends GlobalInspectionContextBase imp
           if (tool.isGraphNeeded()) {
             ((RefManagerImpl)getRefManager()).findAllDeclarations();
           }
+          long start = System.nanoTime();
+          long startAllocated = InspectionTimeStatistics.getCurrentThreadAllocatedBytes();
           tool.runInspection(scope, inspectionManager, this, toolPresentation);
+          InspectionTimeStatistics.recordGlobalRun(toolWrapper.getShortName(), System.nanoTime() - start,
+                                                   InspectionTimeStatistics.getAllocatedBytesSince(startAllocated));
           if (tool.queryExternalUsagesRequests(inspectionManager, this, toolPresentation)) {
             needRepeatSearchRequest.add(toolWrapper);
           }
@@ -402,7 +406,11 @@ public class GlobalInspectionContextImpl extends GlobalInspectionContextBase imp
               GlobalSimpleInspectionTool tool = (GlobalSimpleInspectionTool)toolWrapper.getTool();
               ProblemsHolder problemsHolder = new ProblemsHolder(inspectionManager, file, false);
               ProblemDescriptionsProcessor problemDescriptionProcessor = getProblemDescriptionProcessor(toolWrapper, map);
+              long start = System.nanoTime();
+              long startAllocated = InspectionTimeStatistics.getCurrentThreadAllocatedBytes();
               tool.checkFile(file, inspectionManager, problemsHolder, GlobalInspectionContextImpl.this, problemDescriptionProcessor);
+              InspectionTimeStatistics.record(toolWrapper.getShortName(), System.nanoTime() - start,
+                                              InspectionTimeStatistics.getAllocatedBytesSince(startAllocated));
               InspectionToolPresentation toolPresentation = getPresentation(toolWrapper);
               LocalDescriptorsUtil.addProblemDescriptors(problemsHolder.getResults(), false, GlobalInspectionContextImpl.this, null,
                                                          CONVERT, toolPresentation);
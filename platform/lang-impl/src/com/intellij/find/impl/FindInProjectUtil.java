@@ -17,6 +17,7 @@
 package com.intellij.find.impl;
 
 import com.intellij.BundleBase;
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.find.*;
 import com.intellij.find.ngrams.TrigramIndex;
 import com.intellij.navigation.ItemPresentation;
@@ -29,6 +30,7 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.impl.LoadTextUtil;
 import com.intellij.openapi.fileTypes.FileTypeManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
@@ -43,10 +45,13 @@ import com.intellij.openapi.roots.*;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.util.Factory;
 import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.Ref;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.util.Trinity;
 import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.util.text.TrigramBuilder;
+import com.intellij.openapi.util.text.TrigramQuery;
 import com.intellij.openapi.vfs.*;
 import com.intellij.openapi.vfs.ex.VirtualFileManagerEx;
 import com.intellij.psi.*;
@@ -73,12 +78,16 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.*;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 public class FindInProjectUtil {
   private static final int USAGES_PER_READ_ACTION = 100;
   private static final int FILES_SIZE_LIMIT = 70 * 1024 * 1024; // megabytes.
   private static final int SINGLE_FILE_SIZE_LIMIT = 5 * 1024 * 1024; // megabytes.
+  private static final int FILES_PER_CONCURRENT_BATCH = 100;
 
   private FindInProjectUtil() {}
 
@@ -210,15 +219,10 @@ public class FindInProjectUtil {
     final Collection<PsiFile> psiFiles = getFilesToSearchIn(findModel, project, psiDirectory);
     try {
       final Set<PsiFile> largeFiles = new THashSet<PsiFile>();
-
-      int i = 0;
-      long totalFilesSize = 0;
-      int count = 0;
-      final boolean[] warningShown = {false};
+      final List<Trinity<PsiFile, Long, Integer>> filesToScan = new ArrayList<Trinity<PsiFile, Long, Integer>>(psiFiles.size());
 
       for (final PsiFile psiFile : psiFiles) {
         final VirtualFile virtualFile = psiFile.getVirtualFile();
-        final int index = i++;
         if (virtualFile == null) continue;
 
         long fileLength = UsageViewManagerImpl.getFileLength(virtualFile);
@@ -230,30 +234,70 @@ public class FindInProjectUtil {
           largeFiles.add(psiFile);
           continue;
         }
+        filesToScan.add(Trinity.create(psiFile, fileLength, filesToScan.size()));
+      }
 
-        if (progress != null) {
-          progress.checkCanceled();
-          progress.setFraction((double)index / psiFiles.size());
-          String text = FindBundle.message("find.searching.for.string.in.file.progress",
-                                           findModel.getStringToFind(), virtualFile.getPresentableUrl());
-          progress.setText(text);
-          progress.setText2(FindBundle.message("find.searching.for.string.in.file.occurrences.progress", count));
-        }
+      final AtomicInteger processedFiles = new AtomicInteger();
+      final AtomicInteger count = new AtomicInteger();
+      final AtomicLong totalFilesSize = new AtomicLong();
+      final AtomicBoolean warningShown = new AtomicBoolean();
+      final boolean concurrent = canSearchConcurrently(findModel);
+      final OrderedUsageConsumer orderedConsumer = concurrent ? new OrderedUsageConsumer(consumer, filesToScan.size()) : null;
+
+      Processor<Trinity<PsiFile, Long, Integer>> fileProcessor = new Processor<Trinity<PsiFile, Long, Integer>>() {
+        @Override
+        public boolean process(Trinity<PsiFile, Long, Integer> file) {
+          PsiFile psiFile = file.first;
+          long fileLength = file.second;
+          int index = processedFiles.getAndIncrement();
+          if (progress != null) {
+            progress.checkCanceled();
+            progress.setFraction((double)index / filesToScan.size());
+            String text = FindBundle.message("find.searching.for.string.in.file.progress",
+                                             findModel.getStringToFind(), psiFile.getVirtualFile().getPresentableUrl());
+            progress.setText(text);
+            progress.setText2(FindBundle.message("find.searching.for.string.in.file.occurrences.progress", count.get()));
+          }
 
-        int countInFile = processUsagesInFile(psiFile, findModel, consumer);
+          int countInFile;
+          if (orderedConsumer == null) {
+            countInFile = processUsagesInFile(psiFile, findModel, consumer);
+          }
+          else {
+            CommonProcessors.CollectProcessor<UsageInfo> usages = new CommonProcessors.CollectProcessor<UsageInfo>();
+            countInFile = processUsagesInFile(psiFile, findModel, usages);
+            if (!orderedConsumer.fileProcessed(file.third, usages.getResults())) return false;
+          }
 
-        count += countInFile;
-        if (countInFile > 0) {
-          totalFilesSize += fileLength;
-          if (totalFilesSize > FILES_SIZE_LIMIT && !warningShown[0]) {
-            warningShown[0] = true;
-            String message = FindBundle.message("find.excessive.total.size.prompt", UsageViewManagerImpl.presentableSize(totalFilesSize),
-                                                ApplicationNamesInfo.getInstance().getProductName());
-            UsageLimitUtil.showAndCancelIfAborted(project, message);
+          count.addAndGet(countInFile);
+          if (countInFile > 0) {
+            totalFilesSize.addAndGet(fileLength);
+            if (orderedConsumer == null) {
+              checkFilesSizeLimit(project, totalFilesSize, warningShown);
+            }
+          }
+          return true;
+        }
+      };
+
+      if (concurrent) {
+        // the batches are processed one by one, so the size limit is checked (and the user is asked) only by this thread,
+        // and a slow file holds back usages of the rest files of its batch only
+        for (int start = 0; start < filesToScan.size(); start += FILES_PER_CONCURRENT_BATCH) {
+          List<Trinity<PsiFile, Long, Integer>> batch =
+            filesToScan.subList(start, Math.min(start + FILES_PER_CONCURRENT_BATCH, filesToScan.size()));
+          if (!JobLauncher.getInstance().invokeConcurrentlyUnderProgress(batch, progress, false, fileProcessor)) {
+            if (orderedConsumer.isStopped()) break;
+            // the jobs were canceled or one of them has failed, some files weren't searched: don't report the search as completed
+            if (progress != null) progress.cancel();
+            throw new ProcessCanceledException();
           }
+          checkFilesSizeLimit(project, totalFilesSize, warningShown);
         }
       }
-
+      else {
+        ContainerUtil.process(filesToScan, fileProcessor);
+      }
 
       if (!largeFiles.isEmpty()) {
         processPresentation.setLargeFilesWereNotScanned(largeFiles);
@@ -268,6 +312,69 @@ public class FindInProjectUtil {
     }
   }
 
+  private static void checkFilesSizeLimit(@NotNull Project project, @NotNull AtomicLong totalFilesSize, @NotNull AtomicBoolean warningShown) {
+    long size = totalFilesSize.get();
+    if (size > FILES_SIZE_LIMIT && warningShown.compareAndSet(false, true)) {
+      String message = FindBundle.message("find.excessive.total.size.prompt", UsageViewManagerImpl.presentableSize(size),
+                                          ApplicationNamesInfo.getInstance().getProductName());
+      UsageLimitUtil.showAndCancelIfAborted(project, message);
+    }
+  }
+
+  /**
+   * Searching in comments and string literals keeps lexer state in the {@link FindModel} user data, so such searches are
+   * performed sequentially. Other searches don't share mutable state and process files concurrently.
+   */
+  private static boolean canSearchConcurrently(@NotNull FindModel findModel) {
+    return !findModel.isInCommentsOnly() && !findModel.isInStringLiteralsOnly();
+  }
+
+  /**
+   * Passes usages found in concurrently processed files to the consumer in the order of the files, so the results don't
+   * depend on the thread scheduling. Usages of a file are held back until all the preceding files are processed.
+   */
+  private static class OrderedUsageConsumer {
+    private final Processor<UsageInfo> myConsumer;
+    private final List<Collection<UsageInfo>> myFileUsages; // null for files which aren't processed yet, guarded by this
+    private int myNextFile;
+    private boolean myStopped;
+
+    private OrderedUsageConsumer(@NotNull Processor<UsageInfo> consumer, int fileCount) {
+      myConsumer = consumer;
+      myFileUsages = new ArrayList<Collection<UsageInfo>>(Collections.<Collection<UsageInfo>>nCopies(fileCount, null));
+    }
+
+    private synchronized boolean isStopped() {
+      return myStopped;
+    }
+
+    /**
+     * @return <code>false</code> if the consumer has stopped the search
+     */
+    private boolean fileProcessed(final int index, @NotNull final Collection<UsageInfo> usages) {
+      // consumers are called under read action like the sequential search does, the lock is taken inside it to avoid deadlocks
+      return ApplicationManager.getApplication().runReadAction(new Computable<Boolean>() {
+        @Override
+        public Boolean compute() {
+          synchronized (OrderedUsageConsumer.this) {
+            if (myStopped) return false;
+            myFileUsages.set(index, usages);
+            while (myNextFile < myFileUsages.size() && myFileUsages.get(myNextFile) != null) {
+              for (UsageInfo info : myFileUsages.get(myNextFile)) {
+                if (!myConsumer.process(info)) {
+                  myStopped = true;
+                  return false;
+                }
+              }
+              myFileUsages.set(myNextFile++, Collections.<UsageInfo>emptyList());
+            }
+            return true;
+          }
+        }
+      });
+    }
+  }
+
   private static int processUsagesInFile(@NotNull final PsiFile psiFile,
                                          @NotNull final FindModel findModel,
                                          @NotNull final Processor<UsageInfo> consumer) {
@@ -285,8 +392,7 @@ public class FindInProjectUtil {
     final VirtualFile virtualFile = psiFile.getVirtualFile();
     if (virtualFile == null) return 0;
     if (virtualFile.getFileType().isBinary()) return 0; // do not decompile .class files
-    final Document document = FileDocumentManager.getInstance().getDocument(virtualFile);
-    if (document == null) return 0;
+    final Ref<TextSnapshot> snapshot = Ref.create();
     final int[] offset = {0};
     int count = 0;
     int found;
@@ -296,7 +402,12 @@ public class FindInProjectUtil {
         @NotNull
         public Integer compute() {
           if (!psiFile.isValid()) return 0;
-          return addToUsages(document, consumer, findModel, psiFile, offset, USAGES_PER_READ_ACTION);
+          // the text is taken under the same read action as the usages, it's retaken if the file has changed since then
+          TextSnapshot text = snapshot.get();
+          if (text == null || text.myStamp != getModificationStamp(virtualFile)) {
+            snapshot.set(text = new TextSnapshot(virtualFile));
+          }
+          return addToUsages(text.myText, consumer, findModel, psiFile, offset, USAGES_PER_READ_ACTION);
         }
       });
       count += found;
@@ -305,6 +416,26 @@ public class FindInProjectUtil {
     return count;
   }
 
+  private static long getModificationStamp(@NotNull VirtualFile virtualFile) {
+    Document document = FileDocumentManager.getInstance().getCachedDocument(virtualFile);
+    return document != null ? document.getModificationStamp() : virtualFile.getModificationStamp();
+  }
+
+  private static class TextSnapshot {
+    private final CharSequence myText;
+    private final long myStamp;
+
+    /**
+     * Takes text of the document if it's already loaded (it may contain unsaved changes), otherwise the file content is
+     * loaded without creating a document as most of the searched files don't contain any occurrences
+     */
+    private TextSnapshot(@NotNull VirtualFile virtualFile) {
+      Document document = FileDocumentManager.getInstance().getCachedDocument(virtualFile);
+      myText = document != null ? document.getText() : LoadTextUtil.loadText(virtualFile);
+      myStamp = document != null ? document.getModificationStamp() : virtualFile.getModificationStamp();
+    }
+  }
+
   @NotNull
   private static Collection<PsiFile> getFilesToSearchIn(@NotNull final FindModel findModel,
                                                         @NotNull final Project project,
@@ -437,6 +568,10 @@ public class FindInProjectUtil {
       scope = ProjectScope.getContentScope(project);
     }
 
+    if (findModel.isRegularExpressions()) {
+      return getFilesForRegExpSearch(findModel, pm, scope, fileMaskRegExp);
+    }
+
     Set<Integer> keys = new THashSet<Integer>(30);
     final Set<PsiFile> resultFiles = new THashSet<PsiFile>();
     boolean fast = false;
@@ -519,6 +654,75 @@ public class FindInProjectUtil {
     return new Pair<Boolean, Collection<PsiFile>>(fast, resultFiles);
   }
 
+  /**
+   * Uses {@link TrigramIndex} to find files which may contain occurrences of the regular expression being searched.
+   *
+   * @return    <code>(true, files)</code> if the files to scan were narrowed by the index; <code>(false, empty list)</code> if all
+   *            files are to be scanned (no trigrams can be extracted from the regular expression or the index is disabled)
+   */
+  @NotNull
+  private static Pair<Boolean, Collection<PsiFile>> getFilesForRegExpSearch(@NotNull FindModel findModel,
+                                                                           @NotNull PsiManager pm,
+                                                                           @NotNull GlobalSearchScope scope,
+                                                                           @Nullable Pattern fileMaskRegExp) {
+    if (!TrigramIndex.ENABLED) {
+      return new Pair<Boolean, Collection<PsiFile>>(false, Collections.<PsiFile>emptyList());
+    }
+    TrigramQuery query = TrigramQuery.forRegExp(findModel.getStringToFind());
+    Set<VirtualFile> hits = findFilesByTrigramQuery(query, scope);
+    if (hits == null) {
+      return new Pair<Boolean, Collection<PsiFile>>(false, Collections.<PsiFile>emptyList());
+    }
+
+    Set<PsiFile> resultFiles = new THashSet<PsiFile>();
+    for (VirtualFile hit : hits) {
+      ContainerUtil.addIfNotNull(resultFiles, pm.findFile(hit));
+    }
+    filterMaskedFiles(resultFiles, fileMaskRegExp);
+    return new Pair<Boolean, Collection<PsiFile>>(true, resultFiles);
+  }
+
+  /**
+   * @return    files which satisfy given query; <code>null</code> if the query doesn't restrict files
+   */
+  @Nullable
+  private static Set<VirtualFile> findFilesByTrigramQuery(@NotNull TrigramQuery query, @NotNull GlobalSearchScope scope) {
+    if (query.isAll()) return null;
+
+    if (query.isDisjunction()) {
+      Set<VirtualFile> result = new THashSet<VirtualFile>();
+      for (TrigramQuery subQuery : query.getSubQueries()) {
+        Set<VirtualFile> files = findFilesByTrigramQuery(subQuery, scope);
+        if (files == null) return null;
+        result.addAll(files);
+      }
+      return result;
+    }
+
+    Set<VirtualFile> result = null;
+    int[] trigrams = query.getTrigrams();
+    if (trigrams.length > 0) {
+      Set<Integer> keys = new THashSet<Integer>(trigrams.length);
+      for (int trigram : trigrams) {
+        keys.add(trigram);
+      }
+      result = new THashSet<VirtualFile>();
+      FileBasedIndex.getInstance().getFilesWithKey(TrigramIndex.INDEX_ID, keys, new CommonProcessors.CollectProcessor<VirtualFile>(result), scope);
+    }
+    for (TrigramQuery subQuery : query.getSubQueries()) {
+      if (result != null && result.isEmpty()) break;
+      Set<VirtualFile> files = findFilesByTrigramQuery(subQuery, scope);
+      if (files == null) continue;
+      if (result == null) {
+        result = files;
+      }
+      else {
+        result.retainAll(files);
+      }
+    }
+    return result;
+  }
+
   private static void filterMaskedFiles(@NotNull final Set<PsiFile> resultFiles, @Nullable final Pattern fileMaskRegExp) {
     if (fileMaskRegExp != null) {
       for (Iterator<PsiFile> iterator = resultFiles.iterator(); iterator.hasNext();) {
@@ -531,15 +735,14 @@ public class FindInProjectUtil {
   }
 
   private static boolean canOptimizeForFastWordSearch(@NotNull final FindModel findModel) {
-    return !findModel.isRegularExpressions()
-           && (findModel.getCustomScope() == null || findModel.getCustomScope() instanceof GlobalSearchScope);
+    // regular expression searches are optimized only when trigram index narrows files to scan, see getFilesForRegExpSearch()
+    return findModel.getCustomScope() == null || findModel.getCustomScope() instanceof GlobalSearchScope;
   }
 
-  private static int addToUsages(@NotNull Document document, @NotNull Processor<UsageInfo> consumer, @NotNull FindModel findModel,
+  private static int addToUsages(@NotNull CharSequence text, @NotNull Processor<UsageInfo> consumer, @NotNull FindModel findModel,
                                  @NotNull final PsiFile psiFile, int[] offsetRef, int maxUsages) {
     int count = 0;
-    CharSequence text = document.getCharsSequence();
-    int textLength = document.getTextLength();
+    int textLength = text.length();
     int offset = offsetRef[0];
 
     Project project = psiFile.getProject();
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.internal;
+
+import com.intellij.codeInspection.ex.InspectionTimeStatistics;
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.util.io.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes {@link InspectionTimeStatistics time and memory spent by inspections} to a file in the temp directory.
+ */
+public class DumpInspectionTimingsAction extends AnAction implements DumbAware {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.internal.DumpInspectionTimingsAction");
+
+  public DumpInspectionTimingsAction() {
+    super("Dump inspection timings");
+  }
+
+  @Override
+  public void actionPerformed(AnActionEvent e) {
+    File file = new File(FileUtil.getTempDirectory(), "inspection_timings.txt");
+    String report = InspectionTimeStatistics.getReport();
+    try {
+      FileUtil.writeToFile(file, report);
+    }
+    catch (IOException ex) {
+      LOG.error(ex);
+      return;
+    }
+    LOG.info("Inspection timings:\n" + report);
+    Notifications.Bus.notify(new Notification("Actions", "Inspection timings dumped",
+                                              "Inspection timings dumped to\n" + file.getAbsolutePath(), NotificationType.INFORMATION));
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.internal;
+
+import com.intellij.codeInspection.ex.InspectionTimeStatistics;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.ScrollPaneFactory;
+import com.intellij.ui.table.JBTable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.event.ActionEvent;
+import java.util.List;
+
+/**
+ * Shows {@link InspectionTimeStatistics time and memory spent by inspections} in a table which can be sorted by any column.
+ */
+public class ShowInspectionTimingsAction extends AnAction implements DumbAware {
+  public ShowInspectionTimingsAction() {
+    super("Show inspection timings");
+  }
+
+  @Override
+  public void actionPerformed(AnActionEvent e) {
+    new InspectionTimingsDialog(getEventProject(e)).show();
+  }
+
+  private static class InspectionTimingsDialog extends DialogWrapper {
+    private static final String[] COLUMNS = {"Inspection", "Scope", "Runs", "Total (ms)", "Average (ms)", "Alloc (KB)", "Deferred"};
+    private static final Class[] COLUMN_CLASSES = {String.class, String.class, Integer.class, Long.class, Double.class, Long.class, Boolean.class};
+
+    private final DefaultTableModel myModel = new DefaultTableModel(COLUMNS, 0) {
+      @Override
+      public Class<?> getColumnClass(int columnIndex) {
+        return COLUMN_CLASSES[columnIndex];
+      }
+
+      @Override
+      public boolean isCellEditable(int row, int column) {
+        return false;
+      }
+    };
+
+    private InspectionTimingsDialog(@Nullable Project project) {
+      super(project, true);
+      setModal(false); // inspections keep running while the dialog is shown, so the data may be refreshed
+      setTitle("Inspection Timings");
+      refresh();
+      init();
+    }
+
+    private void refresh() {
+      myModel.setRowCount(0);
+      addRows(InspectionTimeStatistics.getStatistics(), "file", true);
+      addRows(InspectionTimeStatistics.getGlobalStatistics(), "whole scope", false);
+    }
+
+    private void addRows(@NotNull List<InspectionTimeStatistics.ToolStatistics> statistics, @NotNull String scope, boolean checkTimeBudget) {
+      for (InspectionTimeStatistics.ToolStatistics tool : statistics) {
+        myModel.addRow(new Object[]{
+          tool.getShortName(),
+          scope,
+          tool.getInvocations(),
+          tool.getTotalTimeNanos() / 1000000,
+          tool.getAverageTimeNanos() / 1000000.0,
+          tool.getAllocatedBytes() / 1024,
+          checkTimeBudget && InspectionTimeStatistics.isOverTimeBudget(tool.getShortName())
+        });
+      }
+    }
+
+    @Override
+    protected JComponent createCenterPanel() {
+      JBTable table = new JBTable(myModel);
+      table.setAutoCreateRowSorter(true);
+      table.getColumnModel().getColumn(0).setPreferredWidth(300);
+      return ScrollPaneFactory.createScrollPane(table);
+    }
+
+    @NotNull
+    @Override
+    protected Action[] createLeftSideActions() {
+      return new Action[]{
+        new DialogWrapperAction("&Refresh") {
+          @Override
+          protected void doAction(ActionEvent e) {
+            refresh();
+          }
+        },
+        new DialogWrapperAction("C&lear") {
+          @Override
+          protected void doAction(ActionEvent e) {
+            InspectionTimeStatistics.clear();
+            refresh();
+          }
+        }
+      };
+    }
+
+    @NotNull
+    @Override
+    protected Action[] createActions() {
+      return new Action[]{getOKAction()};
+    }
+
+    @Override
+    protected String getDimensionServiceKey() {
+      return "ide.internal.inspection.timings.dialog";
+    }
+  }
+}
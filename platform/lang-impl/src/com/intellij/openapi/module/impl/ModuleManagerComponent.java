@@ -21,10 +21,12 @@ import com.intellij.notification.NotificationType;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.Application;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.PathManager;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
 import com.intellij.openapi.components.StoragePathMacros;
 import com.intellij.openapi.components.StorageScheme;
+import com.intellij.openapi.components.impl.stores.StorageDocumentsPreloader;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleType;
@@ -37,7 +39,10 @@ import com.intellij.openapi.project.impl.ProjectLifecycleListener;
 import com.intellij.util.messages.MessageBus;
 import com.intellij.util.messages.MessageBusConnection;
 import com.intellij.util.messages.MessageHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.List;
@@ -121,6 +126,23 @@ public class ModuleManagerComponent extends ModuleManagerImpl {
     return module;
   }
 
+  @Nullable
+  @Override
+  protected Runnable preloadModuleFiles(@NotNull List<String> filePaths) {
+    Application application = ApplicationManager.getApplication();
+    File snapshotFile = application.isUnitTestMode()
+                        ? null
+                        : new File(PathManager.getSystemPath(), "modules/" + myProject.getName() + "." + myProject.getLocationHash() + ".dat");
+    final StorageDocumentsPreloader preloader = StorageDocumentsPreloader.start(filePaths, snapshotFile);
+    if (preloader == null) return null;
+    return new Runnable() {
+      @Override
+      public void run() {
+        preloader.finish();
+      }
+    };
+  }
+
   @Override
   protected boolean isUnknownModuleType(Module module) {
     return ModuleType.get(module) instanceof UnknownModuleType;
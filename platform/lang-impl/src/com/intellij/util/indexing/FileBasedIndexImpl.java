@@ -1170,12 +1170,34 @@ public class FileBasedIndexImpl extends FileBasedIndex {
         @Nullable
         @Override
         public TIntHashSet convert(@NotNull UpdatableIndex<K, V, FileContent> index) throws StorageException {
+          // intersect smaller id sets first: the intersection never grows, so the rest of containers are only probed for
+          // already found ids instead of copying their (possibly huge, e.g. for frequent trigrams) id sets
+          final List<Pair<ValueContainer<V>, Integer>> containers = new ArrayList<Pair<ValueContainer<V>, Integer>>(dataKeys.size());
+          for (K dataKey : dataKeys) {
+            ProgressManager.checkCanceled();
+            final ValueContainer<V> container = index.getData(dataKey);
+            int idsCount = 0;
+            for (final Iterator<V> valueIt = container.getValueIterator(); valueIt.hasNext(); ) {
+              idsCount += container.getInputIdsIterator(valueIt.next()).size();
+            }
+            if (idsCount == 0) {
+              return new TIntHashSet();
+            }
+            containers.add(Pair.create(container, idsCount));
+          }
+          Collections.sort(containers, new Comparator<Pair<ValueContainer<V>, Integer>>() {
+            @Override
+            public int compare(Pair<ValueContainer<V>, Integer> o1, Pair<ValueContainer<V>, Integer> o2) {
+              return o1.second - o2.second;
+            }
+          });
+
           TIntHashSet mainIntersection = null;
 
-          for (K dataKey : dataKeys) {
+          for (Pair<ValueContainer<V>, Integer> pair : containers) {
             ProgressManager.checkCanceled();
             final TIntHashSet copy = new TIntHashSet();
-            final ValueContainer<V> container = index.getData(dataKey);
+            final ValueContainer<V> container = pair.first;
 
             for (final Iterator<V> valueIt = container.getValueIterator(); valueIt.hasNext(); ) {
               final V value = valueIt.next();
@@ -1252,94 +1274,9 @@ public class FileBasedIndexImpl extends FileBasedIndex {
                                         @NotNull final Set<K> dataKeys,
                                         @NotNull Processor<VirtualFile> processor,
                                         @NotNull GlobalSearchScope filter) {
-    try {
-      final UpdatableIndex<K, V, FileContent> index = getIndex(indexId);
-      if (index == null) {
-        return true;
-      }
-      final Project project = filter.getProject();
-      //assert project != null : "GlobalSearchScope#getProject() should be not-null for all index queries";
-      ensureUpToDate(indexId, project, filter);
-
-      try {
-        index.getReadLock().lock();
-        final List<TIntHashSet> locals = new ArrayList<TIntHashSet>();
-        for (K dataKey : dataKeys) {
-          TIntHashSet local = new TIntHashSet();
-          locals.add(local);
-          final ValueContainer<V> container = index.getData(dataKey);
-
-          for (final Iterator<V> valueIt = container.getValueIterator(); valueIt.hasNext(); ) {
-            final V value = valueIt.next();
-            for (final ValueContainer.IntIterator inputIdsIterator = container.getInputIdsIterator(value); inputIdsIterator.hasNext(); ) {
-              final int id = inputIdsIterator.next();
-              local.add(id);
-            }
-          }
-        }
-
-        if (locals.isEmpty()) {
-          return true;
-        }
-
-        Collections.sort(locals, new Comparator<TIntHashSet>() {
-          @Override
-          public int compare(TIntHashSet o1, TIntHashSet o2) {
-            return o1.size() - o2.size();
-          }
-        });
-
-        final PersistentFS fs = (PersistentFS)ManagingFS.getInstance();
-        TIntIterator ids = join(locals).iterator();
-        ProjectIndexableFilesFilter projectIndexableFilesFilter = projectIndexableFiles(project);
-        while (ids.hasNext()) {
-          int id = ids.next();
-          if (projectIndexableFilesFilter != null && !projectIndexableFilesFilter.contains(id)) continue;
-          //VirtualFile file = IndexInfrastructure.findFileById(fs, id);
-          VirtualFile file = IndexInfrastructure.findFileByIdIfCached(fs, id);
-          if (file != null && filter.accept(file)) {
-            if (!processor.process(file)) {
-              return false;
-            }
-          }
-        }
-      }
-      finally {
-        index.getReadLock().unlock();
-      }
-    }
-    catch (StorageException e) {
-      scheduleRebuild(indexId, e);
-    }
-    catch (RuntimeException e) {
-      final Throwable cause = e.getCause();
-      if (cause instanceof StorageException || cause instanceof IOException) {
-        scheduleRebuild(indexId, cause);
-      }
-      else {
-        throw e;
-      }
-    }
-    return true;
-  }
-
-  @NotNull
-  private static TIntHashSet join(@NotNull List<TIntHashSet> locals) {
-    TIntHashSet result = locals.get(0);
-    if (locals.size() > 1) {
-      TIntIterator it = result.iterator();
-
-      while (it.hasNext()) {
-        int id = it.next();
-        for (int i = 1; i < locals.size(); i++) {
-          if (!locals.get(i).contains(id)) {
-            it.remove();
-            break;
-          }
-        }
-      }
-    }
-    return result;
+    ProjectIndexableFilesFilter filesSet = projectIndexableFiles(filter.getProject());
+    final TIntHashSet set = collectFileIdsContainingAllKeys(indexId, dataKeys, filter, null, filesSet);
+    return set == null || processVirtualFiles(set, filter, processor);
   }
 
   @Override
@@ -19,6 +19,7 @@ import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
 import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.components.impl.stores.BinaryStateStorage;
 import com.intellij.openapi.project.Project;
 import com.intellij.util.xmlb.XmlSerializer;
 import org.jdom.Element;
@@ -31,8 +32,10 @@ import java.util.Set;
 @SuppressWarnings({"NonPrivateFieldAccessedInSynchronizedContext"})
 @State(
     name = "FeatureUsageStatistics",
-    storages = {@Storage(
-        file = StoragePathMacros.APP_CONFIG + "/feature.usage.statistics.xml")})
+    storages = {
+      @Storage(file = StoragePathMacros.APP_CONFIG + "/feature.usage.statistics.dat", storageClass = BinaryStateStorage.class),
+      @Storage(file = StoragePathMacros.APP_CONFIG + "/feature.usage.statistics.xml")},
+    storageChooser = BinaryStateStorage.MigratingStorageChooser.class)
 public class FeatureUsageTrackerImpl extends FeatureUsageTracker implements PersistentStateComponent<Element> {
   private static final int HOUR = 1000 * 60 * 60;
   private static final long DAY = HOUR * 24;
@@ -21,7 +21,7 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.StartupActivity;
 import com.intellij.openapi.wm.ToolWindowManager;
 
-public class TipOfTheDayManager implements StartupActivity, DumbAware {
+public class TipOfTheDayManager implements StartupActivity.Deferred, DumbAware {
   private boolean myVeryFirstProjectOpening = true;
 
   @Override
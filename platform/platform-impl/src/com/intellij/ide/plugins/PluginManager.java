@@ -15,6 +15,7 @@
  */
 package com.intellij.ide.plugins;
 
+import com.intellij.diagnostic.StartupTrace;
 import com.intellij.ide.ClassUtilCore;
 import com.intellij.ide.IdeBundle;
 import com.intellij.idea.IdeaApplication;
@@ -62,7 +63,9 @@ public class PluginManager extends PluginManagerCore {
     Main.setFlags(args);
 
     if (!Main.isHeadless()) {
+      StartupTrace.Phase phase = StartupTrace.start("look and feel initialization");
       UIUtil.initDefaultLAF();
+      phase.end();
     }
 
     ThreadGroup threadGroup = new ThreadGroup("Idea Thread Group") {
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.ide.startup.impl;
+
+import com.intellij.diagnostic.StartupTrace;
+import com.intellij.ide.IdeEventQueue;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs post-startup activities which don't have to delay a responsive editor after the project is opened:
+ * <ul>
+ *   <li>background activities are run on pooled threads under read action, in parallel with each other and with the EDT;</li>
+ *   <li>deferred activities are run only when the IDE has been idle for a while (on the EDT unless they are background ones).</li>
+ * </ul>
+ * Activities which are not {@link com.intellij.openapi.project.DumbAware dumb-aware} are run in smart mode.
+ * Durations of slow activities are logged, as well as the total time when all activities are done.
+ * <p/>
+ * In unit test mode activities are run synchronously and deferred ones are run right after the rest ones.
+ */
+class PostStartupActivityScheduler {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.ide.startup.impl.PostStartupActivityScheduler");
+  private static final int IDLE_TIMEOUT_MS = 5000;
+  private static final long SLOW_ACTIVITY_NANOS = 100 * 1000000L;
+
+  private final Project myProject;
+  private final List<Activity> myActivities = new ArrayList<Activity>(); // guarded by this
+  private boolean myStarted; // guarded by this
+
+  private final AtomicInteger myPendingCount = new AtomicInteger();
+  private final AtomicLong myEdtTimeNanos = new AtomicLong();
+  private final AtomicLong myBackgroundTimeNanos = new AtomicLong();
+
+  PostStartupActivityScheduler(@NotNull Project project) {
+    myProject = project;
+  }
+
+  /**
+   * Activities added after the scheduler is {@link #start() started} are scheduled right away, without waiting for the IDE to be idle.
+   */
+  void add(@NotNull String name, @NotNull Runnable runnable, boolean background, boolean deferred, boolean dumbAware) {
+    Activity activity = new Activity(name, runnable, background, deferred, dumbAware);
+    synchronized (this) {
+      if (!myStarted) {
+        myActivities.add(activity);
+        return;
+      }
+    }
+    myPendingCount.incrementAndGet();
+    schedule(activity);
+  }
+
+  /**
+   * Is expected to be called on the EDT once the project is opened and the regular post-startup activities are run.
+   */
+  void start() {
+    List<Activity> activities;
+    synchronized (this) {
+      if (myStarted) return;
+      myStarted = true;
+      activities = new ArrayList<Activity>(myActivities);
+      myActivities.clear();
+    }
+    if (activities.isEmpty() || myProject.isDisposed()) return;
+    myPendingCount.addAndGet(activities.size());
+
+    final List<Activity> deferred = new ArrayList<Activity>();
+    for (Activity activity : activities) {
+      if (activity.myDeferred) {
+        deferred.add(activity);
+      }
+      else {
+        schedule(activity);
+      }
+    }
+    if (deferred.isEmpty()) return;
+
+    if (ApplicationManager.getApplication().isUnitTestMode()) {
+      // the rest activities are already done, as if the IDE became idle right after them
+      for (Activity activity : deferred) {
+        schedule(activity);
+      }
+      return;
+    }
+
+    IdeEventQueue.getInstance().addIdleListener(new Runnable() {
+      @Override
+      public void run() {
+        IdeEventQueue.getInstance().removeIdleListener(this);
+        for (Activity activity : deferred) {
+          schedule(activity);
+        }
+      }
+    }, IDLE_TIMEOUT_MS);
+  }
+
+  private void schedule(@NotNull final Activity activity) {
+    final Application application = ApplicationManager.getApplication();
+    if (myProject.isDisposed()) {
+      run(activity); // doesn't run the activity, only counts it as done
+      return;
+    }
+    if (application.isUnitTestMode()) {
+      runSynchronously(activity);
+      return;
+    }
+
+    final Runnable runnable = new Runnable() {
+      @Override
+      public void run() {
+        if (activity.myBackground) {
+          application.executeOnPooledThread(new Runnable() {
+            @Override
+            public void run() {
+              PostStartupActivityScheduler.this.run(activity);
+            }
+          });
+        }
+        else if (application.isDispatchThread()) {
+          PostStartupActivityScheduler.this.run(activity);
+        }
+        else {
+          application.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+              PostStartupActivityScheduler.this.run(activity);
+            }
+          });
+        }
+      }
+    };
+    if (activity.myDumbAware) {
+      runnable.run();
+    }
+    else {
+      DumbService.getInstance(myProject).runWhenSmart(runnable);
+    }
+  }
+
+  /**
+   * Background activities are still run on a pooled thread, so tests see them off the EDT, but the caller waits for them.
+   * The pooled thread couldn't get the read action if the caller holds the write one, then the activity is run in place.
+   */
+  private void runSynchronously(@NotNull final Activity activity) {
+    Application application = ApplicationManager.getApplication();
+    if (!activity.myBackground || application.isWriteAccessAllowed()) {
+      run(activity);
+      return;
+    }
+
+    Future<?> future = application.executeOnPooledThread(new Runnable() {
+      @Override
+      public void run() {
+        PostStartupActivityScheduler.this.run(activity);
+      }
+    });
+    try {
+      future.get();
+    }
+    catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+    catch (ExecutionException e) {
+      LOG.error(e);
+    }
+  }
+
+  private void run(@NotNull final Activity activity) {
+    long start = System.nanoTime();
+    StartupTrace.Phase phase = StartupTrace.start(activity.myName);
+    try {
+      if (!myProject.isDisposed()) {
+        if (activity.myBackground) {
+          ApplicationManager.getApplication().runReadAction(new Runnable() {
+            @Override
+            public void run() {
+              if (!myProject.isDisposed()) {
+                activity.myRunnable.run();
+              }
+            }
+          });
+        }
+        else {
+          activity.myRunnable.run();
+        }
+      }
+    }
+    catch (ProcessCanceledException ignored) {
+    }
+    catch (Throwable e) {
+      LOG.error(e);
+    }
+    finally {
+      phase.end();
+      long time = System.nanoTime() - start;
+      (activity.myBackground ? myBackgroundTimeNanos : myEdtTimeNanos).addAndGet(time);
+      if (time > SLOW_ACTIVITY_NANOS) {
+        LOG.info(activity + " took " + time / 1000000 + " ms");
+      }
+      if (myPendingCount.decrementAndGet() == 0) {
+        LOG.info("Scheduled post-startup activities of " + myProject.getName() + " done: " +
+                 myEdtTimeNanos.get() / 1000000 + " ms on the EDT, " + myBackgroundTimeNanos.get() / 1000000 + " ms in background");
+      }
+    }
+  }
+
+  private static class Activity {
+    private final String myName;
+    private final Runnable myRunnable;
+    private final boolean myBackground;
+    private final boolean myDeferred;
+    private final boolean myDumbAware;
+
+    private Activity(@NotNull String name, @NotNull Runnable runnable, boolean background, boolean deferred, boolean dumbAware) {
+      myName = name;
+      myRunnable = runnable;
+      myBackground = background;
+      myDeferred = deferred;
+      myDumbAware = dumbAware;
+    }
+
+    @Override
+    public String toString() {
+      return (myDeferred ? "deferred " : "") + (myBackground ? "background " : "") + "post-startup activity " + myName;
+    }
+  }
+}
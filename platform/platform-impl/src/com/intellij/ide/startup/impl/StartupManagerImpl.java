@@ -15,6 +15,7 @@
  */
 package com.intellij.ide.startup.impl;
 
+import com.intellij.diagnostic.StartupTrace;
 import com.intellij.ide.caches.CacheUpdater;
 import com.intellij.ide.startup.StartupManagerEx;
 import com.intellij.openapi.application.Application;
@@ -65,9 +66,11 @@ public class StartupManagerImpl extends StartupManagerEx {
   private volatile boolean myStartupActivitiesPassed = false;
 
   private final Project myProject;
+  private final PostStartupActivityScheduler myScheduler;
 
   public StartupManagerImpl(Project project) {
     myProject = project;
+    myScheduler = new PostStartupActivityScheduler(project);
   }
 
   @Override
@@ -88,6 +91,11 @@ public class StartupManagerImpl extends StartupManagerEx {
     (DumbService.isDumbAware(runnable) ? myDumbAwarePostStartupActivities : myNotDumbAwarePostStartupActivities).add(runnable);
   }
 
+  @Override
+  public void registerBackgroundPostStartupActivity(@NotNull Runnable runnable, boolean deferred) {
+    myScheduler.add(runnable.getClass().getName(), runnable, true, deferred, DumbService.isDumbAware(runnable));
+  }
+
   @Override
   public void registerCacheUpdater(@NotNull CacheUpdater updater) {
     LOG.assertTrue(!myStartupActivitiesPassed, CacheUpdater.class.getSimpleName() + " must be registered before startup activity finished");
@@ -114,11 +122,11 @@ public class StartupManagerImpl extends StartupManagerEx {
       public void run() {
         HeavyProcessLatch.INSTANCE.processStarted();
         try {
-          runActivities(myPreStartupActivities);
+          runActivities(myPreStartupActivities, "pre-startup activities");
           myPreStartupActivitiesPassed = true;
 
           myStartupActivitiesRunning = true;
-          runActivities(myStartupActivities);
+          runActivities(myStartupActivities, "startup activities");
 
           myStartupActivitiesRunning = false;
 
@@ -147,7 +155,11 @@ public class StartupManagerImpl extends StartupManagerEx {
           }
         }
       };
-      if (extension instanceof DumbAware) {
+      if (extension instanceof StartupActivity.Background || extension instanceof StartupActivity.Deferred) {
+        myScheduler.add(extension.getClass().getName(), runnable, extension instanceof StartupActivity.Background,
+                        extension instanceof StartupActivity.Deferred, extension instanceof DumbAware);
+      }
+      else if (extension instanceof DumbAware) {
         dumbAwareActivities.add(runnable);
       }
       else {
@@ -155,13 +167,13 @@ public class StartupManagerImpl extends StartupManagerEx {
       }
     }
 
-    runActivities(dumbAwareActivities);
+    runActivities(dumbAwareActivities, "dumb-aware post-startup activities from extensions");
 
     if (!normalActivities.isEmpty()) {
       DumbService.getInstance(myProject).runWhenSmart(new Runnable() {
         public void run() {
           if (!myProject.isDisposed()) {
-            runActivities(normalActivities);
+            runActivities(normalActivities, "post-startup activities from extensions");
           }
         }
       });
@@ -173,17 +185,21 @@ public class StartupManagerImpl extends StartupManagerEx {
 
     if (myPostStartupActivitiesPassed) return;
 
-    runActivities(myDumbAwarePostStartupActivities);
+    runActivities(myDumbAwarePostStartupActivities, "dumb-aware post-startup activities");
     DumbService.getInstance(myProject).runWhenSmart(new Runnable() {
       public void run() {
         synchronized (StartupManagerImpl.this) {
           app.assertIsDispatchThread();
           if (myProject.isDisposed()) return;
-          runActivities(myDumbAwarePostStartupActivities); // they can register activities while in the dumb mode
-          runActivities(myNotDumbAwarePostStartupActivities);
+          // they can register activities while in the dumb mode
+          runActivities(myDumbAwarePostStartupActivities, "dumb-aware post-startup activities");
+          runActivities(myNotDumbAwarePostStartupActivities, "post-startup activities");
 
           myPostStartupActivitiesPassed = true;
         }
+        // background and deferred activities go after the regular ones: those are expected to be done when the project is opened
+        myScheduler.start();
+        StartupTrace.write();
       }
     });
 
@@ -249,22 +265,34 @@ public class StartupManagerImpl extends StartupManagerEx {
     }
   }
 
-  private static void runActivities(@NotNull List<Runnable> activities) {
+  private static void runActivities(@NotNull List<Runnable> activities, @NotNull String phaseName) {
+    if (activities.isEmpty()) return;
+
+    StartupTrace.Phase phase = StartupTrace.start(phaseName);
     final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
-    while (!activities.isEmpty()) {
-      final Runnable runnable = activities.remove(0);
-      if (indicator != null) indicator.checkCanceled();
+    try {
+      while (!activities.isEmpty()) {
+        final Runnable runnable = activities.remove(0);
+        if (indicator != null) indicator.checkCanceled();
 
-      try {
-        runnable.run();
-      }
-      catch (ProcessCanceledException e) {
-        throw e;
-      }
-      catch (Throwable ex) {
-        LOG.error(ex);
+        StartupTrace.Phase activityPhase = StartupTrace.start(runnable.getClass().getName());
+        try {
+          runnable.run();
+        }
+        catch (ProcessCanceledException e) {
+          throw e;
+        }
+        catch (Throwable ex) {
+          LOG.error(ex);
+        }
+        finally {
+          activityPhase.end();
+        }
       }
     }
+    finally {
+      phase.end();
+    }
   }
 
   public synchronized void runWhenProjectIsInitialized(@NotNull final Runnable action) {
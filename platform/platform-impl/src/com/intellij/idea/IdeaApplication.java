@@ -18,6 +18,7 @@ package com.intellij.idea;
 import com.intellij.ExtensionPoints;
 import com.intellij.Patches;
 import com.intellij.concurrency.JobScheduler;
+import com.intellij.diagnostic.StartupTrace;
 import com.intellij.ide.AppLifecycleListener;
 import com.intellij.ide.CommandLineProcessor;
 import com.intellij.ide.IdeEventQueue;
@@ -33,8 +34,8 @@ import com.intellij.openapi.application.ex.ApplicationInfoEx;
 import com.intellij.openapi.application.ex.ApplicationManagerEx;
 import com.intellij.openapi.application.impl.ApplicationInfoImpl;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.extensions.ExtensionPoint;
 import com.intellij.openapi.extensions.Extensions;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.updateSettings.impl.UpdateChecker;
 import com.intellij.openapi.updateSettings.impl.UpdateSettings;
@@ -171,10 +172,11 @@ public class IdeaApplication {
     if (myArgs.length > 0) {
       PluginManagerCore.getPlugins();
 
-      ExtensionPoint<ApplicationStarter> point = Extensions.getRootArea().getExtensionPoint(ExtensionPoints.APPLICATION_STARTER);
-      ApplicationStarter[] starters = point.getExtensions();
+      // starters are created one by one until the requested one is found, the rest ones aren't needed at startup
+      ExtensionPointImpl<ApplicationStarter> point =
+        (ExtensionPointImpl<ApplicationStarter>)Extensions.getRootArea().<ApplicationStarter>getExtensionPoint(ExtensionPoints.APPLICATION_STARTER);
       String key = myArgs[0];
-      for (ApplicationStarter o : starters) {
+      for (ApplicationStarter o : point.iterateExtensions(null)) {
         if (Comparing.equal(o.getCommandName(), key)) return o;
       }
     }
@@ -269,7 +271,9 @@ public class IdeaApplication {
 
       Ref<Boolean> willOpenProject = new Ref<Boolean>(Boolean.FALSE);
       AppLifecycleListener lifecyclePublisher = app.getMessageBus().syncPublisher(AppLifecycleListener.TOPIC);
+      StartupTrace.Phase phase = StartupTrace.start("app frame creation");
       lifecyclePublisher.appFrameCreated(args, willOpenProject);
+      phase.end();
 
       LOG.info("App initialization took " + (System.nanoTime() - PluginManager.startupStart) / 1000000 + " ms");
       PluginManagerCore.dumpPluginClassStatistics();
@@ -277,6 +281,7 @@ public class IdeaApplication {
       if (!willOpenProject.get()) {
         WelcomeFrame.showNow();
         lifecyclePublisher.welcomeScreenDisplayed();
+        StartupTrace.write();
       }
       else {
         windowManager.showFrame();
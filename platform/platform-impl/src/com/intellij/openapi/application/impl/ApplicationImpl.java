@@ -38,6 +38,8 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.ExtensionPoint;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.extensions.Extensions;
+import com.intellij.openapi.extensions.ExtensionsArea;
+import com.intellij.openapi.extensions.impl.ExtensionsAreaImpl;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.progress.EmptyProgressIndicator;
 import com.intellij.openapi.progress.ProcessCanceledException;
@@ -62,6 +64,7 @@ import com.intellij.ui.Splash;
 import com.intellij.util.*;
 import com.intellij.util.containers.Stack;
 import com.intellij.util.io.storage.HeavyProcessLatch;
+import com.intellij.util.messages.impl.MessageBusStatistics;
 import com.intellij.util.ui.UIUtil;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -531,6 +534,11 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
     }
     myLoaded = true;
 
+    ExtensionsArea rootArea = Extensions.getRootArea();
+    if (logSlowComponents() && rootArea instanceof ExtensionsAreaImpl) {
+      LOG.info("Extensions created during application loading:\n" + ((ExtensionsAreaImpl)rootArea).getInstantiationStatistics(20));
+    }
+
     File locatorFile = new File(PathManager.getSystemPath() + "/" + ApplicationEx.LOCATOR_FILE_NAME);
     try {
       byte[] data = PathManager.getHomePath().getBytes("UTF-8");
@@ -587,6 +595,10 @@ public class ApplicationImpl extends ComponentManagerImpl implements Application
   public void dispose() {
     fireApplicationExiting();
 
+    if (MessageBusStatistics.ENABLED) {
+      LOG.info("Message bus statistics:\n" + MessageBusStatistics.getReport());
+    }
+
     ShutDownTracker.getInstance().ensureStopperThreadsFinished();
 
     disposeComponents();
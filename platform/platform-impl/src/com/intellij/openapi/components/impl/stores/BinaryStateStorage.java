@@ -0,0 +1,439 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.components.impl.stores;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.*;
+import com.intellij.openapi.components.TrackingPathMacroSubstitutor;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.EmptyRunnable;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.ShutDownTracker;
+import com.intellij.openapi.util.WriteExternalException;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.fs.FileSystem;
+import com.intellij.util.io.fs.IFile;
+import gnu.trove.THashMap;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps component states in a single binary file. Is intended for workspace- or cache-like state which doesn't need to be
+ * human-readable or shared via VCS, e.g.
+ * <pre>
+ * &#064;Storage(file = StoragePathMacros.WORKSPACE_FILE + "/../caches.dat", storageClass = BinaryStateStorage.class)
+ * </pre>
+ * <p/>
+ * Component elements are kept in the compact {@link JDOMUtil#writeBinaryElement binary form}. The file is a log of
+ * <code>(component name, state)</code> records where the last record for a component wins: saving appends records only
+ * for components whose state has actually changed, and the file is compacted when it gets much bigger than the live states.
+ * Converting states to the binary form and writing the file happen on a background thread, only
+ * {@link com.intellij.openapi.components.PersistentStateComponent#getState() getting states} from components is done
+ * by the saving thread.
+ * <p/>
+ * A component moved here from an XML file should declare the binary storage first, keep the old one second and use
+ * {@link MigratingStorageChooser}.
+ */
+public class BinaryStateStorage implements StateStorage {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.components.impl.stores.BinaryStateStorage");
+
+  private static final int VERSION = 3;
+  private static final byte BINARY_STATE = 0;
+  private static final byte XML_STATE = 1;
+  private static final int MIN_COMPACTION_SIZE = 64 * 1024;
+
+  private static final ExecutorService ourWriter = ConcurrencyUtil.newSingleThreadExecutor("Binary state storage writer");
+  static {
+    ShutDownTracker.getInstance().registerShutdownTask(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          ourWriter.submit(EmptyRunnable.INSTANCE).get(10, TimeUnit.SECONDS);
+        }
+        catch (Exception e) {
+          LOG.info("Pending component states may be not saved: " + e);
+        }
+      }
+    });
+  }
+
+  private final File myFile;
+  @Nullable private final TrackingPathMacroSubstitutor myPathMacroSubstitutor;
+
+  // guarded by this
+  private Map<String, byte[]> myStates;
+  private long myFileLength;
+  private long myLiveLength;
+  private Future<?> myPendingWrite;
+
+  private Object mySession;
+
+  public BinaryStateStorage(@NotNull String filePath, @Nullable TrackingPathMacroSubstitutor pathMacroSubstitutor) {
+    myFile = new File(filePath);
+    myPathMacroSubstitutor = pathMacroSubstitutor;
+  }
+
+  @NotNull
+  public String getFilePath() {
+    return myFile.getPath();
+  }
+
+  @Override
+  @Nullable
+  public <T> T getState(Object component, String componentName, Class<T> stateClass, @Nullable T mergeInto) throws StateStorageException {
+    byte[] data = getStateData(componentName);
+    if (data == null) return mergeInto;
+
+    Element element;
+    try {
+      element = decode(data);
+    }
+    catch (IOException e) {
+      LOG.info("Cannot read " + componentName + " state from " + myFile + ": " + e);
+      return mergeInto;
+    }
+    if (myPathMacroSubstitutor != null) {
+      myPathMacroSubstitutor.expandPaths(element);
+    }
+    // the state saved here is complete, so it replaces rather than updates the state read from the old storages
+    return DefaultStateSerializer.deserializeState(element, stateClass, null);
+  }
+
+  @Override
+  public boolean hasState(Object component, String componentName, Class<?> aClass, boolean reloadData) throws StateStorageException {
+    return getStateData(componentName) != null;
+  }
+
+  @Nullable
+  private byte[] getStateData(@NotNull String componentName) {
+    waitForPendingWrite();
+    synchronized (this) {
+      return getStates().get(componentName);
+    }
+  }
+
+  @NotNull
+  @Override
+  public ExternalizationSession startExternalization() {
+    final MyExternalizationSession session = new MyExternalizationSession();
+    mySession = session;
+    return session;
+  }
+
+  @NotNull
+  @Override
+  public SaveSession startSave(@NotNull final ExternalizationSession externalizationSession) {
+    assert mySession == externalizationSession;
+    final Map<String, Element> elements = ((MyExternalizationSession)externalizationSession).myElements;
+    SaveSession session = new SaveSession() {
+      @Override
+      public void save() throws StateStorageException {
+        if (elements.isEmpty()) return;
+
+        Runnable write = new Runnable() {
+          @Override
+          public void run() {
+            writeStates(elements);
+          }
+        };
+        if (ApplicationManager.getApplication().isUnitTestMode()) {
+          write.run();
+        }
+        else {
+          synchronized (BinaryStateStorage.this) {
+            myPendingWrite = ourWriter.submit(write);
+          }
+        }
+      }
+
+      @Nullable
+      @Override
+      public Set<String> analyzeExternalChanges(@NotNull Set<Pair<VirtualFile, StateStorage>> changedFiles) {
+        return Collections.emptySet();
+      }
+
+      @NotNull
+      @Override
+      public Collection<IFile> getStorageFilesToSave() throws StateStorageException {
+        return Collections.emptySet(); // the file isn't expected to be under VCS, so there's no need to make it writable beforehand
+      }
+
+      @NotNull
+      @Override
+      public List<IFile> getAllStorageFiles() {
+        return Collections.singletonList(FileSystem.FILE_SYSTEM.createFile(myFile.getPath()));
+      }
+    };
+    mySession = session;
+    return session;
+  }
+
+  @Override
+  public void finishSave(@NotNull SaveSession saveSession) {
+    assert mySession == saveSession;
+    mySession = null;
+  }
+
+  @Override
+  public void reload(@NotNull Set<String> changedComponents) throws StateStorageException {
+    waitForPendingWrite();
+    synchronized (this) {
+      myStates = null;
+    }
+  }
+
+  private void waitForPendingWrite() {
+    Future<?> pendingWrite;
+    synchronized (this) {
+      pendingWrite = myPendingWrite;
+    }
+    if (pendingWrite == null) return;
+    try {
+      pendingWrite.get(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      LOG.info(e);
+    }
+    catch (ExecutionException e) {
+      LOG.error(e.getCause());
+    }
+    catch (TimeoutException e) {
+      LOG.info("Component states are still being written to " + myFile);
+    }
+  }
+
+  private synchronized void writeStates(@NotNull Map<String, Element> elements) {
+    Map<String, byte[]> states = getStates();
+    Map<String, byte[]> changed = new LinkedHashMap<String, byte[]>();
+    for (Map.Entry<String, Element> entry : elements.entrySet()) {
+      String componentName = entry.getKey();
+      byte[] data;
+      try {
+        data = encode(entry.getValue());
+      }
+      catch (IOException e) {
+        LOG.error("Cannot serialize " + componentName + " state", e);
+        continue;
+      }
+      byte[] oldData = states.put(componentName, data);
+      if (!Arrays.equals(data, oldData)) {
+        changed.put(componentName, data);
+        myLiveLength += getRecordLength(componentName, data) - (oldData == null ? 0 : getRecordLength(componentName, oldData));
+      }
+    }
+    if (changed.isEmpty()) return;
+
+    try {
+      if (myFileLength == 0 || !myFile.exists() || myFileLength > MIN_COMPACTION_SIZE && myFileLength > 2 * myLiveLength) {
+        rewriteFile(states);
+      }
+      else {
+        appendRecords(changed);
+      }
+    }
+    catch (IOException e) {
+      LOG.warn("Cannot save component states to " + myFile, e);
+      myFileLength = 0; // rewrite the whole file next time
+    }
+  }
+
+  private void appendRecords(@NotNull Map<String, byte[]> records) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(myFile, true)));
+    try {
+      for (Map.Entry<String, byte[]> record : records.entrySet()) {
+        writeRecord(record.getKey(), record.getValue(), out);
+      }
+    }
+    finally {
+      out.close();
+    }
+    myFileLength = myFile.length();
+  }
+
+  private void rewriteFile(@NotNull Map<String, byte[]> states) throws IOException {
+    FileUtil.createParentDirs(myFile);
+    File tempFile = new File(myFile.getPath() + ".tmp");
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+    try {
+      out.writeInt(VERSION);
+      for (Map.Entry<String, byte[]> state : states.entrySet()) {
+        writeRecord(state.getKey(), state.getValue(), out);
+      }
+    }
+    finally {
+      out.close();
+    }
+    FileUtil.rename(tempFile, myFile);
+    myFileLength = myFile.length();
+    myLiveLength = myFileLength;
+  }
+
+  private static void writeRecord(@NotNull String componentName, @NotNull byte[] data, @NotNull DataOutput out) throws IOException {
+    out.writeUTF(componentName);
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  private static long getRecordLength(@NotNull String componentName, @NotNull byte[] data) {
+    return 2 + getUTFLength(componentName) + 4 + data.length;
+  }
+
+  /**
+   * @return the number of bytes {@link DataOutput#writeUTF(String)} writes for the string, not counting the length prefix
+   */
+  private static int getUTFLength(@NotNull String s) {
+    int length = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      length += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+    }
+    return length;
+  }
+
+  @NotNull
+  private Map<String, byte[]> getStates() {
+    if (myStates == null) {
+      myStates = new THashMap<String, byte[]>();
+      myFileLength = 0;
+      myLiveLength = 4;
+      if (myFile.exists()) {
+        try {
+          loadStates();
+        }
+        catch (IOException e) {
+          LOG.info("Cannot read component states from " + myFile + ": " + e);
+          myFileLength = 0; // the file is broken or truncated: rewrite it on the next save
+        }
+      }
+    }
+    return myStates;
+  }
+
+  private void loadStates() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(myFile)));
+    try {
+      if (in.readInt() != VERSION) return;
+      long length = myFile.length();
+      long position = 4;
+      while (position < length) {
+        String componentName = in.readUTF();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        byte[] oldData = myStates.put(componentName, data);
+        myLiveLength += getRecordLength(componentName, data) - (oldData == null ? 0 : getRecordLength(componentName, oldData));
+        position += getRecordLength(componentName, data);
+      }
+      myFileLength = length;
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /**
+   * An empty state is encoded as well: its record tells that the component has been saved here, so the state it had in the
+   * old storages isn't used anymore.
+   */
+  @NotNull
+  private byte[] encode(@NotNull Element element) throws IOException {
+    if (myPathMacroSubstitutor != null) {
+      myPathMacroSubstitutor.collapsePaths(element);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(BINARY_STATE);
+    if (!JDOMUtil.writeBinaryElement(element, out)) {
+      bytes.reset();
+      out.writeByte(XML_STATE);
+      IOUtil.writeString(JDOMUtil.writeElement(element, "\n"), out); // may be longer than writeUTF() allows
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  @NotNull
+  private static Element decode(@NotNull byte[] data) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+    byte kind = in.readByte();
+    if (kind == BINARY_STATE) {
+      return JDOMUtil.readBinaryElement(in);
+    }
+    if (kind == XML_STATE) {
+      try {
+        return JDOMUtil.loadDocument(IOUtil.readString(in)).getRootElement();
+      }
+      catch (JDOMException e) {
+        throw new IOException(e.getMessage());
+      }
+    }
+    throw new IOException("Unexpected state kind: " + kind);
+  }
+
+  @Override
+  public String toString() {
+    return myFile.getPath();
+  }
+
+  /**
+   * Reads all the declared storages but writes only the first one, so the state saved to the old storages by previous versions
+   * is picked up once and then stays in the first storage. Once the component has been saved to the binary storage, its state
+   * there (even an empty one) replaces the state read from the old storages.
+   */
+  public static class MigratingStorageChooser implements StateStorageChooser<PersistentStateComponent<?>> {
+    @Override
+    public Storage[] selectStorages(Storage[] storages, PersistentStateComponent<?> component, StateStorageOperation operation) {
+      if (operation == StateStorageOperation.WRITE) {
+        return new Storage[]{storages[0]};
+      }
+      // the state read last wins, so read the old storages first
+      return ArrayUtil.reverseArray(storages);
+    }
+  }
+
+  private class MyExternalizationSession implements ExternalizationSession {
+    // states are serialized to elements by the saving thread, elements are converted to bytes in background
+    private final Map<String, Element> myElements = new LinkedHashMap<String, Element>();
+
+    @Override
+    public void setState(@NotNull Object component, String componentName, @NotNull Object state, @Nullable Storage storageSpec)
+      throws StateStorageException {
+      assert mySession == this;
+      try {
+        Element element = DefaultStateSerializer.serializeState(state, storageSpec);
+        // an element state may be still modified by its component, other states are serialized into new elements
+        myElements.put(componentName, state instanceof Element ? (Element)element.clone() : element);
+      }
+      catch (WriteExternalException e) {
+        LOG.debug(e);
+      }
+    }
+  }
+}
@@ -258,6 +258,10 @@ public class FileBasedStorage extends XmlElementStorage {
       if (file.getLength() == 0) {
         return processReadException(null);
       }
+      Document preloaded = StorageDocumentsPreloader.takeDocument(myFilePath);
+      if (preloaded != null) {
+        return preloaded;
+      }
       return loadDocumentImpl(file);
     }
     catch (final JDOMException e) {
@@ -169,6 +169,9 @@ public abstract class StateStorageManagerImpl implements StateStorageManager, Di
 
   @Nullable
   private StateStorage createStateStorage(Storage storageSpec) throws StateStorageException {
+    if (storageSpec.storageClass().equals(BinaryStateStorage.class)) {
+      return createBinaryStateStorage(storageSpec.file());
+    }
     if (!storageSpec.storageClass().equals(StorageAnnotationsDefaultValues.NullStateStorage.class)) {
       String key = UUID.randomUUID().toString();
       ((MutablePicoContainer)myPicoContainer).registerComponentImplementation(key, storageSpec.storageClass());
@@ -181,7 +184,8 @@ public abstract class StateStorageManagerImpl implements StateStorageManager, Di
   }
 
   private static String getStorageSpecId(Storage storageSpec) {
-    if (!storageSpec.storageClass().equals(StorageAnnotationsDefaultValues.NullStateStorage.class)) {
+    if (!storageSpec.storageClass().equals(StorageAnnotationsDefaultValues.NullStateStorage.class) &&
+        !storageSpec.storageClass().equals(BinaryStateStorage.class)) {
       return storageSpec.storageClass().getName();
     }
     else {
@@ -222,6 +226,16 @@ public abstract class StateStorageManagerImpl implements StateStorageManager, Di
     return new DirectoryBasedStorage(myPathMacroSubstitutor, expandedFile, splitter, this, myPicoContainer);
   }
 
+  @Nullable
+  private StateStorage createBinaryStateStorage(@NotNull String fileSpec) {
+    String expandedFile = expandMacros(fileSpec);
+    if (expandedFile == null) {
+      myStorages.put(fileSpec, null);
+      return null;
+    }
+    return new BinaryStateStorage(expandedFile, getMacroSubstitutor(fileSpec));
+  }
+
   @Nullable
   private StateStorage createFileStateStorage(@NotNull final String fileSpec) {
     String expandedFile = expandMacros(fileSpec);
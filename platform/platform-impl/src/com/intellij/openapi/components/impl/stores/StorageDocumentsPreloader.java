@@ -0,0 +1,275 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.components.impl.stores;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.SystemProperties;
+import com.intellij.util.containers.ContainerUtil;
+import gnu.trove.THashMap;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Parses storage files ahead of their {@link FileBasedStorage storages} on a bounded pool, e.g. module files of a project
+ * being opened. Storages are still created and loaded one by one in the caller's order: a storage {@link #takeDocument(String) takes}
+ * the preloaded document of its file, waiting for it if necessary, instead of parsing the file itself.
+ * <p/>
+ * Parsed documents may be kept in a binary snapshot file between sessions. A snapshot entry is used as long as the file
+ * has the same timestamp and length, which allows to skip XML parsing of unchanged files altogether.
+ * <p/>
+ * Parallel preloading is disabled if <code>'idea.parallel.storage.preloading'</code> system property is set to false.
+ */
+public class StorageDocumentsPreloader {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.openapi.components.impl.stores.StorageDocumentsPreloader");
+  private static final boolean ENABLED = SystemProperties.getBooleanProperty("idea.parallel.storage.preloading", true);
+  private static final int VERSION = 1;
+
+  private static final ConcurrentMap<String, Future<PreloadedDocument>> ourDocuments = ContainerUtil.newConcurrentMap();
+
+  private final List<String> myPaths;
+  @Nullable private final File mySnapshotFile;
+  private final Map<String, CachedDocument> mySnapshot = new THashMap<String, CachedDocument>(); // guarded by itself
+  private volatile boolean mySnapshotModified;
+  private final AtomicInteger mySnapshotHits = new AtomicInteger();
+  private final AtomicLong myParseTimeNanos = new AtomicLong();
+  private final long myStartTime = System.nanoTime();
+  private final ExecutorService myExecutor;
+
+  private StorageDocumentsPreloader(@NotNull List<String> paths, @Nullable File snapshotFile, int threads) {
+    myPaths = paths;
+    mySnapshotFile = snapshotFile;
+    myExecutor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                                        ConcurrencyUtil.newNamedThreadFactory("Storage files preloading", true, Thread.NORM_PRIORITY));
+  }
+
+  /**
+   * Starts parsing of the given files in background. The caller is expected to {@link #finish()} the preloading after
+   * it has loaded the storages of the files.
+   *
+   * @param snapshotFile  file to keep parsed documents between sessions, <code>null</code> if they shouldn't be kept
+   * @return              <code>null</code> if preloading is disabled or isn't worth it
+   */
+  @Nullable
+  public static StorageDocumentsPreloader start(@NotNull Collection<String> filePaths, @Nullable File snapshotFile) {
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+    if (!ENABLED || filePaths.size() < 2 || threads < 2 && snapshotFile == null) return null;
+
+    List<String> paths = new ArrayList<String>(filePaths.size());
+    for (String path : filePaths) {
+      paths.add(FileUtil.toSystemIndependentName(path));
+    }
+    final StorageDocumentsPreloader preloader = new StorageDocumentsPreloader(paths, snapshotFile, threads);
+    preloader.readSnapshot();
+    for (final String path : paths) {
+      ourDocuments.put(path, preloader.myExecutor.submit(new Callable<PreloadedDocument>() {
+        @Override
+        public PreloadedDocument call() throws Exception {
+          return preloader.load(new File(path));
+        }
+      }));
+    }
+    preloader.myExecutor.shutdown();
+    return preloader;
+  }
+
+  /**
+   * @return document preloaded from the given file if the file hasn't changed since, <code>null</code> otherwise.
+   *         Every preloaded document is returned only once
+   */
+  @Nullable
+  static Document takeDocument(@NotNull String filePath) {
+    if (ourDocuments.isEmpty()) return null;
+    Future<PreloadedDocument> future = ourDocuments.remove(FileUtil.toSystemIndependentName(filePath));
+    if (future == null) return null;
+    try {
+      PreloadedDocument document = future.get();
+      return document != null && document.isUpToDate() ? document.myDocument : null;
+    }
+    catch (InterruptedException e) {
+      return null;
+    }
+    catch (ExecutionException e) {
+      return null; // the storage will report the problem when parsing the file itself
+    }
+  }
+
+  /**
+   * Drops documents which weren't taken, saves the snapshot if it was changed and logs preloading statistics.
+   */
+  public void finish() {
+    for (String path : myPaths) {
+      Future<PreloadedDocument> future = ourDocuments.remove(path);
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+    myExecutor.shutdownNow();
+    try {
+      myExecutor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException ignored) {
+    }
+    writeSnapshot();
+
+    LOG.info(myPaths.size() + " storage files preloaded in " + (System.nanoTime() - myStartTime) / 1000000 + " ms: " +
+             mySnapshotHits.get() + " restored from snapshot, parsing took " + myParseTimeNanos.get() / 1000000 + " ms in total");
+  }
+
+  @Nullable
+  private PreloadedDocument load(@NotNull File file) throws IOException, JDOMException {
+    long timestamp = file.lastModified();
+    long length = file.length();
+    if (length == 0) return null;
+
+    String key = file.getPath();
+    CachedDocument cached;
+    synchronized (mySnapshot) {
+      cached = mySnapshot.get(key);
+    }
+    if (cached != null && cached.myTimestamp == timestamp && cached.myLength == length) {
+      try {
+        Element element = JDOMUtil.readBinaryElement(new DataInputStream(new ByteArrayInputStream(cached.myData)));
+        mySnapshotHits.incrementAndGet();
+        return new PreloadedDocument(file, timestamp, length, new Document(element));
+      }
+      catch (IOException e) {
+        LOG.info("Cannot restore " + file + " from snapshot: " + e);
+      }
+    }
+
+    long start = System.nanoTime();
+    Document document = JDOMUtil.loadDocument(file);
+    myParseTimeNanos.addAndGet(System.nanoTime() - start);
+
+    if (mySnapshotFile != null) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      if (JDOMUtil.writeBinaryElement(document.getRootElement(), new DataOutputStream(bytes))) {
+        synchronized (mySnapshot) {
+          mySnapshot.put(key, new CachedDocument(timestamp, length, bytes.toByteArray()));
+        }
+        mySnapshotModified = true;
+      }
+    }
+    return new PreloadedDocument(file, timestamp, length, document);
+  }
+
+  private void readSnapshot() {
+    if (mySnapshotFile == null || !mySnapshotFile.exists()) return;
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mySnapshotFile)));
+      try {
+        if (in.readInt() != VERSION) return;
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+          String key = in.readUTF();
+          long timestamp = in.readLong();
+          long length = in.readLong();
+          byte[] data = new byte[in.readInt()];
+          in.readFully(data);
+          mySnapshot.put(key, new CachedDocument(timestamp, length, data));
+        }
+      }
+      finally {
+        in.close();
+      }
+    }
+    catch (IOException e) {
+      LOG.info("Cannot read storage files snapshot " + mySnapshotFile + ": " + e);
+      mySnapshot.clear();
+    }
+  }
+
+  private void writeSnapshot() {
+    if (mySnapshotFile == null) return;
+    synchronized (mySnapshot) {
+      Set<String> paths = new HashSet<String>(myPaths.size());
+      for (String path : myPaths) {
+        paths.add(new File(path).getPath());
+      }
+      if (!mySnapshotModified && paths.equals(mySnapshot.keySet())) return;
+
+      File tempFile = new File(mySnapshotFile.getPath() + ".tmp");
+      try {
+        FileUtil.createParentDirs(tempFile);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+          // only files preloaded this time are kept, so removed modules don't stay in the snapshot forever
+          mySnapshot.keySet().retainAll(paths);
+          out.writeInt(VERSION);
+          out.writeInt(mySnapshot.size());
+          for (Map.Entry<String, CachedDocument> entry : mySnapshot.entrySet()) {
+            CachedDocument document = entry.getValue();
+            out.writeUTF(entry.getKey());
+            out.writeLong(document.myTimestamp);
+            out.writeLong(document.myLength);
+            out.writeInt(document.myData.length);
+            out.write(document.myData);
+          }
+        }
+        finally {
+          out.close();
+        }
+        FileUtil.rename(tempFile, mySnapshotFile);
+      }
+      catch (IOException e) {
+        LOG.info("Cannot save storage files snapshot " + mySnapshotFile + ": " + e);
+        FileUtil.delete(tempFile);
+      }
+    }
+  }
+
+  private static class PreloadedDocument {
+    private final File myFile;
+    private final long myTimestamp;
+    private final long myLength;
+    private final Document myDocument;
+
+    private PreloadedDocument(@NotNull File file, long timestamp, long length, @NotNull Document document) {
+      myFile = file;
+      myTimestamp = timestamp;
+      myLength = length;
+      myDocument = document;
+    }
+
+    private boolean isUpToDate() {
+      return myFile.lastModified() == myTimestamp && myFile.length() == myLength;
+    }
+  }
+
+  private static class CachedDocument {
+    private final long myTimestamp;
+    private final long myLength;
+    private final byte[] myData;
+
+    private CachedDocument(long timestamp, long length, @NotNull byte[] data) {
+      myTimestamp = timestamp;
+      myLength = length;
+      myData = data;
+    }
+  }
+}
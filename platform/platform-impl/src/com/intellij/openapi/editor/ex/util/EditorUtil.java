@@ -510,11 +510,17 @@ public class EditorUtil {
   }
 
   public static FontInfo fontForChar(final char c, @JdkConstants.FontStyle int style, @NotNull Editor editor) {
+    if (editor instanceof EditorImpl) {
+      return ((EditorImpl)editor).fontForChar(c, style);
+    }
     EditorColorsScheme colorsScheme = editor.getColorsScheme();
     return ComplementaryFontsRegistry.getFontAbleToDisplay(c, style, colorsScheme.getFontPreferences());
   }
 
   public static int charWidth(char c, @JdkConstants.FontStyle int fontType, @NotNull Editor editor) {
+    if (editor instanceof EditorImpl) {
+      return ((EditorImpl)editor).charWidth(c, fontType);
+    }
     return fontForChar(c, fontType, editor).charWidth(c);
   }
 
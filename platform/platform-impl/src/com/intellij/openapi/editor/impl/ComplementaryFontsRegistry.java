@@ -43,6 +43,7 @@ public class ComplementaryFontsRegistry {
   private static FontInfo ourSharedDefaultFont;
   private static final TIntHashSet ourUndisplayableChars = new TIntHashSet();
   private static boolean ourOldUseAntialiasing;
+  private static volatile int ourModificationCount;
   
   static {
     final UISettings settings = UISettings.getInstance();
@@ -59,6 +60,7 @@ public class ComplementaryFontsRegistry {
             fontInfo.reset();
           }
           ourUsedFonts.clear();
+          ourModificationCount++;
         }
       }
     }, ApplicationManager.getApplication());
@@ -67,6 +69,14 @@ public class ComplementaryFontsRegistry {
   private ComplementaryFontsRegistry() {
   }
 
+  /**
+   * @return    counter which is incremented every time previously returned {@link FontInfo} objects become obsolete,
+   *            e.g. on 'use antialiasing' setting change. Allows clients to keep their own font lookup caches
+   */
+  static int getModificationCount() {
+    return ourModificationCount;
+  }
+
   private static class FontKey {
     public String myFamilyName;
     public int mySize;
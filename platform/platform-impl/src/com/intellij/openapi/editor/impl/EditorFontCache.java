@@ -0,0 +1,135 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.editor.impl;
+
+import com.intellij.openapi.editor.colors.EditorColorsScheme;
+import gnu.trove.TIntObjectHashMap;
+import org.intellij.lang.annotations.JdkConstants;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+
+/**
+ * Per-editor cache of {@link FontInfo fonts able to display} particular symbols.
+ * <p/>
+ * Editor painting and size calculation ask for the font of every visible symbol. Every such request goes
+ * to the {@link ComplementaryFontsRegistry} which iterates effective font families under a global lock, hence,
+ * it becomes noticeable on wide editors with long lines. This class remembers resolved fonts per
+ * <code>(style, symbol)</code> pair, so, subsequent lookups for the same symbols are just array/map access.
+ * <p/>
+ * The cache is expected to be {@link #reset() dropped} on editor settings change (e.g. font family or size change).
+ * It also drops its state automatically when the {@link ComplementaryFontsRegistry registry} invalidates its fonts.
+ * <p/>
+ * May be used from any thread. An ASCII symbol's font and width are kept together in one immutable {@link AsciiFont} slot,
+ * so a reader always sees a matching pair; {@link #reset()} replaces the whole ASCII table instead of clearing it in place.
+ * Concurrent lookups of the same symbol may resolve its font twice, a lookup racing with a reset may return the font
+ * resolved just before it.
+ */
+class EditorFontCache {
+
+  private static final int STYLES_NUMBER = 4; // PLAIN, BOLD, ITALIC, BOLD | ITALIC
+  private static final int ASCII_SIZE    = 128;
+
+  @NotNull private volatile AsciiFont[][]               myAsciiFonts  = new AsciiFont[STYLES_NUMBER][ASCII_SIZE];
+  @NotNull private final TIntObjectHashMap<FontInfo>[]  myOtherFonts;
+  @NotNull private final EditorImpl                     myEditor;
+
+  private volatile int myRegistryModificationCount = ComplementaryFontsRegistry.getModificationCount();
+
+  @SuppressWarnings("unchecked")
+  EditorFontCache(@NotNull EditorImpl editor) {
+    myEditor = editor;
+    myOtherFonts = new TIntObjectHashMap[STYLES_NUMBER];
+    for (int i = 0; i < STYLES_NUMBER; i++) {
+      myOtherFonts[i] = new TIntObjectHashMap<FontInfo>();
+    }
+  }
+
+  /**
+   * Drops all cached fonts. Is expected to be called when editor font preferences are changed.
+   */
+  void reset() {
+    myAsciiFonts = new AsciiFont[STYLES_NUMBER][ASCII_SIZE];
+    for (int i = 0; i < STYLES_NUMBER; i++) {
+      synchronized (myOtherFonts[i]) {
+        myOtherFonts[i].clear();
+      }
+    }
+    myRegistryModificationCount = ComplementaryFontsRegistry.getModificationCount();
+  }
+
+  @NotNull
+  FontInfo fontForChar(char c, @JdkConstants.FontStyle int style) {
+    checkRegistry();
+    int styleIndex = style & (Font.BOLD | Font.ITALIC);
+    if (c < ASCII_SIZE) {
+      return getAsciiFont(c, style).myFont;
+    }
+
+    TIntObjectHashMap<FontInfo> fonts = myOtherFonts[styleIndex];
+    synchronized (fonts) {
+      FontInfo result = fonts.get(c);
+      if (result == null) {
+        result = doGetFont(c, style);
+        fonts.put(c, result);
+      }
+      return result;
+    }
+  }
+
+  int charWidth(char c, @JdkConstants.FontStyle int style) {
+    if (c < ASCII_SIZE) {
+      checkRegistry();
+      return getAsciiFont(c, style).myWidth;
+    }
+    return fontForChar(c, style).charWidth(c);
+  }
+
+  @NotNull
+  private AsciiFont getAsciiFont(char c, @JdkConstants.FontStyle int style) {
+    AsciiFont[] fonts = myAsciiFonts[style & (Font.BOLD | Font.ITALIC)];
+    AsciiFont result = fonts[c];
+    if (result == null) {
+      FontInfo font = doGetFont(c, style);
+      result = new AsciiFont(font, font.charWidth(c));
+      fonts[c] = result;
+    }
+    return result;
+  }
+
+  private void checkRegistry() {
+    if (myRegistryModificationCount != ComplementaryFontsRegistry.getModificationCount()) {
+      reset();
+    }
+  }
+
+  @NotNull
+  private FontInfo doGetFont(char c, @JdkConstants.FontStyle int style) {
+    EditorColorsScheme scheme = myEditor.getColorsScheme();
+    return ComplementaryFontsRegistry.getFontAbleToDisplay(c, style, scheme.getFontPreferences());
+  }
+
+  private static class AsciiFont {
+    // final fields make an instance safely visible to other threads even though the slots are written without a lock
+    @NotNull private final FontInfo myFont;
+    private final int myWidth;
+
+    private AsciiFont(@NotNull FontInfo font, int width) {
+      myFont = font;
+      myWidth = width;
+    }
+  }
+}
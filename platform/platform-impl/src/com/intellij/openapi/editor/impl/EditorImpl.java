@@ -227,6 +227,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
 
   private final     ArrayList<CachedFontContent> myFontCache       = new ArrayList<CachedFontContent>();
   @Nullable private FontInfo                     myCurrentFontType = null;
+  private final     EditorFontCache              myFontLookupCache = new EditorFontCache(this);
 
   private final EditorSizeContainer mySizeContainer = new EditorSizeContainer();
 
@@ -654,6 +655,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
     myLineHeight = -1;
     myDescent = -1;
     myPlainFontMetrics = null;
+    myFontLookupCache.reset();
 
     clearTextWidthCache();
 
@@ -3081,6 +3083,25 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
     return drawTabbedString(g, text, start, end, x, y, effectColor, effectType, fontType, fontColor, clip);
   }
 
+  /**
+   * Allows to get a font able to display the given symbol using current editor's font preferences.
+   * <p/>
+   * Resolved fonts are cached per editor, so, this method is preferred over the direct
+   * {@link ComplementaryFontsRegistry} usage at the painting-related code.
+   *
+   * @param c      target symbol
+   * @param style  target font style
+   * @return       font able to display the given symbol
+   */
+  @NotNull
+  public FontInfo fontForChar(char c, @JdkConstants.FontStyle int style) {
+    return myFontLookupCache.fontForChar(c, style);
+  }
+
+  public int charWidth(char c, @JdkConstants.FontStyle int style) {
+    return myFontLookupCache.charWidth(c, style);
+  }
+
   public int getAscent() {
     return getLineHeight() - getDescent();
   }
@@ -3188,10 +3209,10 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
                                 @NotNull final Rectangle clip) {
     int endX = x;
     if (start < end) {
-      FontInfo font = EditorUtil.fontForChar(text[start], fontType, this);
+      FontInfo font = myFontLookupCache.fontForChar(text[start], fontType);
       for (int j = start; j < end; j++) {
         final char c = text[j];
-        FontInfo newFont = EditorUtil.fontForChar(c, fontType, this);
+        FontInfo newFont = myFontLookupCache.fontForChar(c, fontType);
         if (font != newFont || endX > clip.x + clip.width) {
           if (!(x < clip.x && endX < clip.x || x > clip.x + clip.width && endX > clip.x + clip.width)) {
             drawCharsCached(g, text, start, j, x, y, fontType, fontColor);
@@ -3259,7 +3280,7 @@ public final class EditorImpl extends UserDataHolderBase implements EditorEx, Hi
     }
     else {
       myForceRefreshFont = false;
-      FontInfo fnt = EditorUtil.fontForChar(data[start], fontType, this);
+      FontInfo fnt = myFontLookupCache.fontForChar(data[start], fontType);
       drawCharsCached(g, data, start, end, x, y, fnt, color);
     }
   }
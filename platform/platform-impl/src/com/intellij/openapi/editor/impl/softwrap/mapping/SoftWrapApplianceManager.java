@@ -31,7 +31,9 @@ import com.intellij.openapi.editor.ex.util.EditorUtil;
 import com.intellij.openapi.editor.impl.*;
 import com.intellij.openapi.editor.impl.softwrap.*;
 import com.intellij.openapi.editor.markup.TextAttributes;
+import com.intellij.openapi.util.registry.Registry;
 import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.util.Alarm;
 import org.intellij.lang.annotations.JdkConstants;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -58,6 +60,18 @@ import java.util.List;
 public class SoftWrapApplianceManager implements SoftWrapFoldingListener, DocumentListener, Dumpable {
   
   private static final Logger LOG = Logger.getInstance("#" + SoftWrapApplianceManager.class.getName());
+
+  /**
+   * Number of logical lines after the visible area bottom which soft wraps are calculated for immediately when
+   * {@link #isDeferredRecalculationEnabled() deferred recalculation} is used.
+   */
+  private static final int VISIBLE_AREA_MARGIN_LINES = 100;
+
+  /** Number of logical lines processed per single EDT event during deferred soft wraps recalculation. */
+  private static final int DEFERRED_CHUNK_LINES = 1000;
+
+  /** Recalculations which take more time (in milliseconds) are reported to the log. */
+  private static final long SLOW_RECALCULATION_THRESHOLD_MILLIS = 100;
   
   /** Enumerates possible type of soft wrap indents to use. */
   enum IndentType {
@@ -77,6 +91,7 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
   private final ProcessingContext                          myContext              = new ProcessingContext();
   private final FontTypesStorage                           myOffset2fontType      = new FontTypesStorage();
   private final WidthsStorage                              myOffset2widthInPixels = new WidthsStorage();
+  private final Alarm                                      myDeferredAlarm        = new Alarm(Alarm.ThreadToUse.SWING_THREAD);
 
   private final SoftWrapsStorage               myStorage;
   private final EditorEx                       myEditor;
@@ -105,6 +120,17 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
   private boolean                        myInProgress;
   private boolean                        myHasLinesWithFailedWrap;
 
+  /**
+   * Document range which soft wraps are not calculated yet because it lays far beyond the visible area.
+   * It's processed by chunks at the EDT then.
+   */
+  @Nullable private RangeMarker myDeferredRange;
+
+  private int  myRecalculationsNumber;
+  private long myLastRecalculationTimeMillis;
+  private long myMaxRecalculationTimeMillis;
+  private long myTotalRecalculationTimeMillis;
+
   public SoftWrapApplianceManager(@NotNull SoftWrapsStorage storage,
                                   @NotNull EditorEx editor,
                                   @NotNull SoftWrapPainter painter,
@@ -133,6 +159,7 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
 
   public void reset() {
     myEventsStorage.release();
+    cancelDeferredRecalculation();
     myEventsStorage.add(myEditor.getDocument(), new IncrementalCacheUpdateEvent(myEditor.getDocument()));
     for (SoftWrapAwareDocumentParsingListener listener : myListeners) {
       listener.reset();
@@ -141,6 +168,7 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
   
   public void release() {
     myEventsStorage.release();
+    cancelDeferredRecalculation();
     myLineWrapPositionStrategy = null;
   }
 
@@ -190,16 +218,18 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
     }
     myInProgress = true;
     myHasLinesWithFailedWrap = false;
+    long start = System.currentTimeMillis();
     try {
       for (IncrementalCacheUpdateEvent event : events) {
         myEventBeingProcessed = event;
-        recalculateSoftWraps(event);
+        recalculateSoftWraps(limitToVisibleArea(event));
       }
     }
     finally {
       myInProgress = false;
       myActiveEvents.clear();
       myEventBeingProcessed = null;
+      onRecalculationEnd(System.currentTimeMillis() - start, events);
     }
     updateLastTopLeftCornerOffset();
     for (SoftWrapAwareDocumentParsingListener listener : myListeners) {
@@ -208,6 +238,143 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
     return true;
   }
 
+  /**
+   * There is a possible case that soft wraps should be recalculated for a huge document region (e.g. the whole document
+   * on visible area width or font change). We don't want to block the EDT for that, so, soft wraps are calculated only
+   * for the region that ends a bit after the visible area then. The rest is {@link #processDeferredChunk() processed}
+   * by chunks later.
+   *
+   * @param event   soft wraps cache update event to process
+   * @return        given event if it should be processed as-is; an event for the leading part of the given event's region otherwise
+   */
+  @NotNull
+  private IncrementalCacheUpdateEvent limitToVisibleArea(@NotNull IncrementalCacheUpdateEvent event) {
+    if (event.getExactOffsetsDiff() != 0 || !isDeferredRecalculationEnabled()) {
+      return event;
+    }
+
+    Document document = myEditor.getDocument();
+    int endOffset = event.getOldEndOffset();
+    if (endOffset >= document.getTextLength()) {
+      return event;
+    }
+    int startLine = document.getLineNumber(event.getOldStartOffset());
+    int endLine = document.getLineNumber(endOffset);
+    Rectangle visibleArea = myEditor.getScrollingModel().getVisibleArea();
+    int visibleAreaEndLine = myEditor.xyToLogicalPosition(new Point(0, visibleArea.y + visibleArea.height)).line;
+    int limitLine = Math.max(visibleAreaEndLine + VISIBLE_AREA_MARGIN_LINES, startLine + DEFERRED_CHUNK_LINES);
+    if (limitLine >= endLine) {
+      return event;
+    }
+
+    int limitOffset = getChunkEndOffset(limitLine);
+    if (limitOffset >= endOffset) {
+      return event;
+    }
+    deferRecalculation(limitOffset + 1, endOffset);
+    return new IncrementalCacheUpdateEvent(document, event.getOldStartOffset(), limitOffset);
+  }
+
+  private boolean isDeferredRecalculationEnabled() {
+    return !ApplicationManagerEx.getApplicationEx().isUnitTestMode() && Registry.is("editor.soft.wrap.deferred.recalculation");
+  }
+
+  /**
+   * @param line    logical line which end should be used as a soft wraps recalculation chunk end
+   * @return        end offset of the given line adjusted for collapsed fold regions which start at that line
+   */
+  private int getChunkEndOffset(int line) {
+    Document document = myEditor.getDocument();
+    FoldingModel foldingModel = myEditor.getFoldingModel();
+    int result = document.getLineEndOffset(line);
+    for (FoldRegion region = foldingModel.getCollapsedRegionAtOffset(result);
+         region != null;
+         region = foldingModel.getCollapsedRegionAtOffset(result))
+    {
+      int regionEndLineEndOffset = document.getLineEndOffset(document.getLineNumber(region.getEndOffset()));
+      if (regionEndLineEndOffset <= result) {
+        break;
+      }
+      result = regionEndLineEndOffset;
+    }
+    return result;
+  }
+
+  private void deferRecalculation(int startOffset, int endOffset) {
+    Document document = myEditor.getDocument();
+    if (myDeferredRange != null) {
+      if (myDeferredRange.isValid()) {
+        startOffset = Math.min(startOffset, myDeferredRange.getStartOffset());
+        endOffset = Math.max(endOffset, myDeferredRange.getEndOffset() - 1);
+      }
+      myDeferredRange.dispose();
+    }
+    myDeferredRange = document.createRangeMarker(startOffset, Math.min(document.getTextLength(), endOffset + 1));
+    myDeferredRange.setGreedyToRight(true);
+    myDeferredAlarm.cancelAllRequests();
+    myDeferredAlarm.addRequest(new Runnable() {
+      @Override
+      public void run() {
+        processDeferredChunk();
+      }
+    }, 0);
+  }
+
+  private void cancelDeferredRecalculation() {
+    myDeferredAlarm.cancelAllRequests();
+    if (myDeferredRange != null) {
+      myDeferredRange.dispose();
+      myDeferredRange = null;
+    }
+  }
+
+  /**
+   * Calculates soft wraps for the next chunk of the {@link #myDeferredRange deferred region} and schedules processing
+   * of the remaining part if any.
+   */
+  private void processDeferredChunk() {
+    RangeMarker range = myDeferredRange;
+    myDeferredRange = null;
+    if (range == null) {
+      return;
+    }
+    int startOffset = range.getStartOffset();
+    int endOffset = range.getEndOffset() - 1;
+    boolean valid = range.isValid();
+    range.dispose();
+    if (!valid || startOffset > endOffset || myEditor.isDisposed()) {
+      return;
+    }
+    if (myInProgress) {
+      deferRecalculation(startOffset, endOffset);
+      return;
+    }
+
+    Document document = myEditor.getDocument();
+    int startLine = document.getLineNumber(startOffset);
+    int chunkEndLine = startLine + DEFERRED_CHUNK_LINES;
+    int chunkEndOffset = endOffset;
+    if (chunkEndLine < document.getLineNumber(endOffset)) {
+      chunkEndOffset = getChunkEndOffset(chunkEndLine);
+    }
+    if (chunkEndOffset < endOffset) {
+      deferRecalculation(chunkEndOffset + 1, endOffset);
+    }
+    myEventsStorage.add(document, new IncrementalCacheUpdateEvent(document, document.getLineStartOffset(startLine), chunkEndOffset));
+    recalculateIfNecessary();
+  }
+
+  private void onRecalculationEnd(long timeMillis, @NotNull List<IncrementalCacheUpdateEvent> events) {
+    myRecalculationsNumber++;
+    myLastRecalculationTimeMillis = timeMillis;
+    myMaxRecalculationTimeMillis = Math.max(myMaxRecalculationTimeMillis, timeMillis);
+    myTotalRecalculationTimeMillis += timeMillis;
+    if (timeMillis >= SLOW_RECALCULATION_THRESHOLD_MILLIS && LOG.isDebugEnabled()) {
+      LOG.debug(String.format("Soft wraps recalculation took %d ms for events %s. Document length: %d",
+                              timeMillis, events, myEditor.getDocument().getTextLength()));
+    }
+  }
+
   private void recalculateSoftWraps(IncrementalCacheUpdateEvent event) {
     event.updateNewOffsetsIfNecessary(myEditor.getDocument(), myEditor.getFoldingModel());
     
@@ -1030,11 +1197,23 @@ public class SoftWrapApplianceManager implements SoftWrapFoldingListener, Docume
   @Override
   public String dumpState() {
     return String.format(
-      "recalculation in progress: %b; stored update events: %s; active update events: %s, event being processed: %s",
-      myInProgress, myEventsStorage, myActiveEvents, myEventBeingProcessed
+      "recalculation in progress: %b; stored update events: %s; active update events: %s, event being processed: %s, "
+      + "deferred range: %s; %s",
+      myInProgress, myEventsStorage, myActiveEvents, myEventBeingProcessed, myDeferredRange, getStatistics()
     );
   }
 
+  /**
+   * @return    human-readable information about soft wraps recalculations performed by the current manager
+   *            (number of recalculations, last/max/total recalculation time)
+   */
+  @NotNull
+  public String getStatistics() {
+    return String.format("recalculations: %d, last: %d ms, max: %d ms, total: %d ms",
+                         myRecalculationsNumber, myLastRecalculationTimeMillis, myMaxRecalculationTimeMillis,
+                         myTotalRecalculationTimeMillis);
+  }
+
   @Override
   public String toString() {
     return dumpState();
@@ -18,6 +18,7 @@ package com.intellij.openapi.project.impl;
 import com.intellij.CommonBundle;
 import com.intellij.conversion.ConversionResult;
 import com.intellij.conversion.ConversionService;
+import com.intellij.diagnostic.StartupTrace;
 import com.intellij.ide.AppLifecycleListener;
 import com.intellij.ide.impl.ProjectUtil;
 import com.intellij.ide.startup.impl.StartupManagerImpl;
@@ -412,6 +413,7 @@ public class ProjectManagerImpl extends ProjectManagerEx implements NamedJDOMExt
       myOpenProjects.add(project);
       cacheOpenProjects();
     }
+    StartupTrace.Phase phase = StartupTrace.start("project opening");
     fireProjectOpened(project);
 
     final StartupManagerImpl startupManager = (StartupManagerImpl)StartupManager.getInstance(project);
@@ -441,6 +443,7 @@ public class ProjectManagerImpl extends ProjectManagerEx implements NamedJDOMExt
         });
       }
     }, ProjectBundle.message("project.load.progress"), true, project);
+    phase.end();
 
     if (!ok) {
       closeProject(project, false, false, true);
@@ -559,7 +562,13 @@ public class ProjectManagerImpl extends ProjectManagerEx implements NamedJDOMExt
         @Override
         @Nullable
         public Project compute() throws IOException {
-          initProject(project, null);
+          StartupTrace.Phase phase = StartupTrace.start("project loading");
+          try {
+            initProject(project, null);
+          }
+          finally {
+            phase.end();
+          }
           return project;
         }
       }, ProjectBundle.message("project.load.progress"), true, project);
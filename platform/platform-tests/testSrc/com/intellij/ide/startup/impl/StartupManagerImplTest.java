@@ -0,0 +1,136 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.ide.startup.impl;
+
+import com.intellij.mock.MockApplication;
+import com.intellij.mock.MockProjectEx;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.extensions.Extensions;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.impl.ProgressManagerImpl;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.DumbServiceImpl;
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.picocontainer.PicoContainer;
+import org.picocontainer.PicoInitializationException;
+import org.picocontainer.PicoIntrospectionException;
+import org.picocontainer.defaults.AbstractComponentAdapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class StartupManagerImplTest extends UsefulTestCase {
+  private final List<String> myLog = Collections.synchronizedList(new ArrayList<String>());
+  private Thread myDispatchThread;
+  private volatile boolean myProjectDisposed;
+  private MockProjectEx myProject;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDispatchThread = Thread.currentThread();
+    Extensions.registerAreaClass("IDEA_PROJECT", null);
+    MockApplication application = new MockApplication(getTestRootDisposable()) {
+      @Override
+      public boolean isDispatchThread() {
+        return Thread.currentThread() == myDispatchThread;
+      }
+
+      @Override
+      public boolean isWriteAccessAllowed() {
+        return false;
+      }
+    };
+    ApplicationManager.setApplication(application, getTestRootDisposable());
+    // ProgressManager caches the instance on class initialization, so it mustn't be loaded before it's registered
+    application.getPicoContainer().registerComponent(new AbstractComponentAdapter(ProgressManager.class.getName(), Object.class) {
+      @Override
+      public Object getComponentInstance(PicoContainer container) throws PicoInitializationException, PicoIntrospectionException {
+        return new ProgressManagerImpl(ApplicationManager.getApplication());
+      }
+
+      @Override
+      public void verify(PicoContainer container) throws PicoIntrospectionException {
+      }
+    });
+    myProject = new MockProjectEx(getTestRootDisposable()) {
+      @Override
+      public boolean isDisposed() {
+        return myProjectDisposed;
+      }
+    };
+    myProject.registerService(DumbService.class, new DumbServiceImpl(myProject, myProject.getMessageBus()));
+  }
+
+  public void testBackgroundActivitiesRunOffEdtAfterRegularOnesAndDeferredOnesLast() {
+    StartupManagerImpl manager = new StartupManagerImpl(myProject);
+    manager.registerBackgroundPostStartupActivity(new LoggingActivity("deferred"), true);
+    manager.registerBackgroundPostStartupActivity(new LoggingActivity("background"), false);
+    manager.registerPostStartupActivity(new LoggingActivity("regular"));
+
+    manager.runPostStartupActivities();
+
+    assertEquals(Arrays.asList("regular on EDT", "background off EDT", "deferred off EDT"), myLog);
+  }
+
+  public void testNothingRunsWhenProjectIsDisposedByRegularActivity() {
+    StartupManagerImpl manager = new StartupManagerImpl(myProject);
+    manager.registerBackgroundPostStartupActivity(new LoggingActivity("background"), false);
+    manager.registerBackgroundPostStartupActivity(new LoggingActivity("deferred"), true);
+    manager.registerPostStartupActivity(new Runnable() {
+      @Override
+      public void run() {
+        myProjectDisposed = true;
+      }
+    });
+
+    manager.runPostStartupActivities();
+
+    assertEmpty(myLog);
+  }
+
+  public void testDeferredActivitiesDontRunWhenProjectIsDisposedInBackground() {
+    StartupManagerImpl manager = new StartupManagerImpl(myProject);
+    manager.registerBackgroundPostStartupActivity(new LoggingActivity("deferred"), true);
+    manager.registerBackgroundPostStartupActivity(new Runnable() {
+      @Override
+      public void run() {
+        myProjectDisposed = true;
+      }
+    }, false);
+    manager.registerPostStartupActivity(new LoggingActivity("regular"));
+
+    manager.runPostStartupActivities();
+
+    assertEquals(Collections.singletonList("regular on EDT"), myLog);
+  }
+
+  private class LoggingActivity implements Runnable {
+    private final String myName;
+
+    private LoggingActivity(@NotNull String name) {
+      myName = name;
+    }
+
+    @Override
+    public void run() {
+      myLog.add(myName + (ApplicationManager.getApplication().isDispatchThread() ? " on EDT" : " off EDT"));
+    }
+  }
+}
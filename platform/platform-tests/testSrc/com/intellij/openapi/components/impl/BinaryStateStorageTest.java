@@ -0,0 +1,116 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.components.impl;
+
+import com.intellij.openapi.components.StateStorage;
+import com.intellij.openapi.components.impl.stores.BinaryStateStorage;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.testFramework.LightPlatformLangTestCase;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+
+import static com.intellij.openapi.util.JDOMBuilder.attr;
+import static com.intellij.openapi.util.JDOMBuilder.tag;
+
+public class BinaryStateStorageTest extends LightPlatformLangTestCase {
+  private static final String NON_ASCII_NAME = StringUtil.repeat("состояние", 20);
+
+  private File myFile;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    myFile = new File(FileUtil.createTempDirectory("binaryStorage", null), "states.dat");
+  }
+
+  public void testReload() throws Exception {
+    Element elementState = tag("state", attr("a", "1"), tag("child", attr("b", "текст")));
+    Element textState = new Element("state").setText("only text");
+    BinaryStateStorage storage = createStorage();
+    save(storage, "first", elementState);
+    save(storage, NON_ASCII_NAME, elementState);
+    save(storage, "text", textState);
+    save(storage, "last", elementState);
+
+    BinaryStateStorage reloaded = createStorage();
+    assertState(elementState, reloaded, "first");
+    assertState(elementState, reloaded, NON_ASCII_NAME);
+    assertState(textState, reloaded, "text");
+    assertState(elementState, reloaded, "last");
+  }
+
+  public void testEmptyStateIsKept() throws Exception {
+    BinaryStateStorage storage = createStorage();
+    save(storage, "test", tag("state", attr("a", "1")));
+    Element emptyState = new Element("state");
+    save(storage, "test", emptyState);
+    assertState(emptyState, storage, "test");
+    assertState(emptyState, createStorage(), "test");
+  }
+
+  public void testStateReplacesOldOne() throws Exception {
+    save(createStorage(), "test", new Element("state"));
+    BeanState oldState = new BeanState();
+    oldState.value = "old";
+    BeanState state = createStorage().getState(this, "test", BeanState.class, oldState);
+    assertNotNull(state);
+    assertNull(state.value);
+  }
+
+  public void testCompaction() throws Exception {
+    BinaryStateStorage storage = createStorage();
+    Element constantState = tag("state", attr("value", "constant"));
+    save(storage, "constant", constantState);
+    String text = StringUtil.repeat("текст ", 2000);
+    Element state = null;
+    for (int i = 0; i < 50; i++) {
+      state = tag("state", attr("iteration", String.valueOf(i)), new Element("text").setText(text));
+      save(storage, NON_ASCII_NAME, state);
+      assertTrue(String.valueOf(myFile.length()), myFile.length() < 256 * 1024);
+    }
+
+    BinaryStateStorage reloaded = createStorage();
+    assertState(state, reloaded, NON_ASCII_NAME);
+    assertState(constantState, reloaded, "constant");
+  }
+
+  public static class BeanState {
+    public String value;
+  }
+
+  private BinaryStateStorage createStorage() {
+    return new BinaryStateStorage(myFile.getPath(), null);
+  }
+
+  private void save(@NotNull BinaryStateStorage storage, @NotNull String componentName, @NotNull Element state) throws Exception {
+    StateStorage.ExternalizationSession externalizationSession = storage.startExternalization();
+    externalizationSession.setState(this, componentName, state, null);
+    StateStorage.SaveSession saveSession = storage.startSave(externalizationSession);
+    saveSession.save();
+    storage.finishSave(saveSession);
+  }
+
+  private void assertState(@NotNull Element expected, @NotNull BinaryStateStorage storage, @NotNull String componentName)
+    throws Exception {
+    Element state = storage.getState(this, componentName, Element.class, null);
+    assertNotNull(componentName, state);
+    assertTrue(JDOMUtil.writeElement(state, "\n"), JDOMUtil.areElementsEqual(expected, state));
+  }
+}
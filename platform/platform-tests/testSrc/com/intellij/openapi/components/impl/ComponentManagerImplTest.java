@@ -0,0 +1,152 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.components.impl;
+
+import com.intellij.openapi.components.BaseComponent;
+import com.intellij.openapi.components.ComponentConfig;
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.testFramework.LightPlatformTestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ComponentManagerImplTest extends LightPlatformTestCase {
+  private static ComponentManagerImpl ourManager;
+  private static CountDownLatch ourSharedConstructionStarted;
+  private static final AtomicInteger ourSharedInstances = new AtomicInteger();
+
+  @Override
+  protected void tearDown() throws Exception {
+    ourManager = null;
+    ourSharedConstructionStarted = null;
+    super.tearDown();
+  }
+
+  public void testParallelInitCreatesComponentRequestedConcurrentlyOnce() throws Exception {
+    ourSharedInstances.set(0);
+    ourSharedConstructionStarted = new CountDownLatch(1);
+    ComponentManagerImpl manager = new ComponentManagerImpl(null) {
+      @NotNull
+      @Override
+      public <T> T[] getExtensions(@NotNull ExtensionPointName<T> extensionPointName) {
+        throw new UnsupportedOperationException();
+      }
+    };
+    ourManager = manager;
+    try {
+      // the shared component is created by a pool thread when the requesters ask for it
+      registerComponent(manager, SharedComponent.class);
+      registerComponent(manager, FirstRequester.class);
+      registerComponent(manager, SecondRequester.class);
+      manager.setParallelInitForced(true);
+      manager.init();
+
+      SharedComponent shared = manager.getComponent(SharedComponent.class);
+      FirstRequester first = manager.getComponent(FirstRequester.class);
+      SecondRequester second = manager.getComponent(SecondRequester.class);
+      assertEquals(1, ourSharedInstances.get());
+      assertSame(shared, first.myShared);
+      assertSame(shared, second.myShared);
+      assertTrue(first.mySharedInitialized);
+      assertTrue(second.mySharedInitialized);
+      assertEquals(1, shared.myInitCount);
+    }
+    finally {
+      manager.disposeComponents();
+      manager.dispose();
+    }
+  }
+
+  private static void registerComponent(@NotNull ComponentManagerImpl manager, @NotNull Class<?> componentClass) {
+    ComponentConfig config = new ComponentConfig();
+    config.setImplementationClass(componentClass.getName());
+    manager.registerComponent(config);
+  }
+
+  public static class SharedComponent extends TestComponent {
+    private volatile boolean myInitialized;
+    private volatile int myInitCount;
+
+    public SharedComponent() throws InterruptedException {
+      ourSharedInstances.incrementAndGet();
+      ourSharedConstructionStarted.countDown();
+      Thread.sleep(100);
+    }
+
+    @Override
+    public void initComponent() {
+      myInitCount++;
+      try {
+        Thread.sleep(100);
+      }
+      catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      myInitialized = true;
+    }
+  }
+
+  public static class FirstRequester extends TestComponent {
+    private volatile SharedComponent myShared;
+    private volatile boolean mySharedInitialized;
+
+    @Override
+    public void initComponent() {
+      awaitSharedConstruction();
+      myShared = ourManager.getComponent(SharedComponent.class);
+      mySharedInitialized = myShared.myInitialized;
+    }
+  }
+
+  public static class SecondRequester extends TestComponent {
+    private volatile SharedComponent myShared;
+    private volatile boolean mySharedInitialized;
+
+    @Override
+    public void initComponent() {
+      awaitSharedConstruction();
+      myShared = ourManager.getComponent(SharedComponent.class);
+      mySharedInitialized = myShared.myInitialized;
+    }
+  }
+
+  private static void awaitSharedConstruction() {
+    try {
+      ourSharedConstructionStarted.await(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private abstract static class TestComponent implements BaseComponent {
+    @Override
+    public void initComponent() {
+    }
+
+    @Override
+    public void disposeComponent() {
+    }
+
+    @NotNull
+    @Override
+    public String getComponentName() {
+      return getClass().getName();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.psi.impl.source.resolve;
+
+import com.intellij.openapi.fileTypes.PlainTextFileType;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.PsiReferenceBase;
+import com.intellij.testFramework.LightPlatformTestCase;
+import com.intellij.util.ArrayUtil;
+import com.intellij.util.messages.MessageBusFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResolveCacheTest extends LightPlatformTestCase {
+  public void testBoundedCacheEvictsResultsNotRequestedSinceLastEviction() {
+    final PsiFile file = PsiFileFactory.getInstance(getProject()).createFileFromText("a.txt", PlainTextFileType.INSTANCE, "text");
+    final int[] resolveCount = {0};
+    ResolveCache.Resolver resolver = new ResolveCache.Resolver() {
+      @Override
+      public PsiElement resolve(@NotNull PsiReference ref, boolean incompleteCode) {
+        resolveCount[0]++;
+        return file;
+      }
+    };
+    ResolveCache cache = new ResolveCache(MessageBusFactory.newMessageBus(this), 10);
+    List<PsiReference> refs = new ArrayList<PsiReference>();
+    for (int i = 0; i < 10; i++) {
+      refs.add(new MyReference(file));
+      cache.resolveWithCaching(refs.get(i), resolver, false, false);
+    }
+    for (int i = 0; i < 5; i++) {
+      cache.resolveWithCaching(refs.get(i), resolver, false, false);
+    }
+    assertEquals(10, resolveCount[0]);
+    assertEquals(0, cache.getEvictionCount());
+
+    refs.add(new MyReference(file));
+    cache.resolveWithCaching(refs.get(10), resolver, false, false);
+    assertEquals(11, resolveCount[0]);
+    assertEquals(4, cache.getEvictionCount()); // down to 3/4 of the max size
+
+    for (int i = 0; i < 5; i++) {
+      cache.resolveWithCaching(refs.get(i), resolver, false, false);
+    }
+    assertEquals(11, resolveCount[0]);
+  }
+
+  private static class MyReference extends PsiReferenceBase<PsiElement> {
+    private MyReference(@NotNull PsiElement element) {
+      super(element);
+    }
+
+    @Nullable
+    @Override
+    public PsiElement resolve() {
+      return null;
+    }
+
+    @NotNull
+    @Override
+    public Object[] getVariants() {
+      return ArrayUtil.EMPTY_OBJECT_ARRAY;
+    }
+  }
+}
@@ -79,6 +79,8 @@ public abstract class ModuleManagerImpl extends ModuleManager implements Project
   @NonNls public static final String ATTRIBUTE_FILEPATH = "filepath";
   @NonNls private static final String ATTRIBUTE_GROUP = "group";
   private long myModificationCount;
+  private static final long SLOW_MODULES_LOADING_NANOS = 1000 * 1000000L;
+  private static final int SLOW_MODULES_TO_REPORT = 20;
 
   public static ModuleManagerImpl getInstanceImpl(Project project) {
     return (ModuleManagerImpl)getInstance(project);
@@ -251,38 +253,93 @@ public abstract class ModuleManagerImpl extends ModuleManager implements Project
     final List<Module> modulesWithUnknownTypes = new ArrayList<Module>();
     List<ModuleLoadingErrorDescription> errors = new ArrayList<ModuleLoadingErrorDescription>();
 
-    for (final ModulePath modulePath : myModulePaths) {
-      try {
-        final Module module = moduleModel.loadModuleInternal(modulePath.getPath(), progressIndicator);
-        if (isUnknownModuleType(module)) {
-          modulesWithUnknownTypes.add(module);
-        }
-        final String groupPathString = modulePath.getModuleGroup();
-        if (groupPathString != null) {
-          final String[] groupPath = groupPathString.split(MODULE_GROUP_SEPARATOR);
+    List<String> filePaths = new ArrayList<String>(myModulePaths.size());
+    for (ModulePath modulePath : myModulePaths) {
+      filePaths.add(modulePath.getPath());
+    }
+    Runnable finishPreloading = preloadModuleFiles(filePaths);
+    long startTime = System.nanoTime();
+    List<Pair<String, Long>> loadTimes = new ArrayList<Pair<String, Long>>(myModulePaths.size());
 
-          groupInterner.setModuleGroupPath(moduleModel, module, groupPath); //model should be updated too
-        }
-        myFailedModulePaths.remove(modulePath);
-      }
-      catch (final IOException e) {
-        errors.add(ModuleLoadingErrorDescription.create(ProjectBundle.message("module.cannot.load.error", modulePath.getPath(), e.getMessage()),
-                                                     modulePath, this));
-      }
-      catch (final ModuleWithNameAlreadyExists moduleWithNameAlreadyExists) {
-        errors.add(ModuleLoadingErrorDescription.create(moduleWithNameAlreadyExists.getMessage(), modulePath, this));
+    try {
+      for (final ModulePath modulePath : myModulePaths) {
+        loadModule(moduleModel, modulePath, groupInterner, progressIndicator, modulesWithUnknownTypes, errors, loadTimes);
       }
-      catch (StateStorageException e) {
-        errors.add(ModuleLoadingErrorDescription.create(ProjectBundle.message("module.cannot.load.error", modulePath.getPath(), e.getMessage()),
-                                                     modulePath, this));
+    }
+    finally {
+      if (finishPreloading != null) {
+        finishPreloading.run();
       }
     }
+    reportModuleLoadTimes(loadTimes, System.nanoTime() - startTime);
 
     fireErrors(errors);
 
     showUnknownModuleTypeNotification(modulesWithUnknownTypes);
   }
 
+  private void loadModule(@NotNull ModuleModelImpl moduleModel,
+                          @NotNull ModulePath modulePath,
+                          @NotNull ModuleGroupInterner groupInterner,
+                          @Nullable ProgressIndicator progressIndicator,
+                          @NotNull List<Module> modulesWithUnknownTypes,
+                          @NotNull List<ModuleLoadingErrorDescription> errors,
+                          @NotNull List<Pair<String, Long>> loadTimes) {
+    long start = System.nanoTime();
+    try {
+      final Module module = moduleModel.loadModuleInternal(modulePath.getPath(), progressIndicator);
+      if (isUnknownModuleType(module)) {
+        modulesWithUnknownTypes.add(module);
+      }
+      final String groupPathString = modulePath.getModuleGroup();
+      if (groupPathString != null) {
+        final String[] groupPath = groupPathString.split(MODULE_GROUP_SEPARATOR);
+
+        groupInterner.setModuleGroupPath(moduleModel, module, groupPath); //model should be updated too
+      }
+      myFailedModulePaths.remove(modulePath);
+    }
+    catch (final IOException e) {
+      errors.add(ModuleLoadingErrorDescription.create(ProjectBundle.message("module.cannot.load.error", modulePath.getPath(), e.getMessage()),
+                                                   modulePath, this));
+    }
+    catch (final ModuleWithNameAlreadyExists moduleWithNameAlreadyExists) {
+      errors.add(ModuleLoadingErrorDescription.create(moduleWithNameAlreadyExists.getMessage(), modulePath, this));
+    }
+    catch (StateStorageException e) {
+      errors.add(ModuleLoadingErrorDescription.create(ProjectBundle.message("module.cannot.load.error", modulePath.getPath(), e.getMessage()),
+                                                   modulePath, this));
+    }
+    loadTimes.add(Pair.create(modulePath.getPath(), System.nanoTime() - start));
+  }
+
+  /**
+   * Is called before modules are loaded one by one from the given files, allows to read and parse the files in background.
+   *
+   * @return    action to be run after the modules are loaded, <code>null</code> if nothing was started
+   */
+  @Nullable
+  protected Runnable preloadModuleFiles(@NotNull List<String> filePaths) {
+    return null;
+  }
+
+  private static void reportModuleLoadTimes(@NotNull List<Pair<String, Long>> loadTimes, long totalTime) {
+    if (loadTimes.size() < 2 || !LOG.isDebugEnabled() && totalTime < SLOW_MODULES_LOADING_NANOS) return;
+
+    Collections.sort(loadTimes, new Comparator<Pair<String, Long>>() {
+      @Override
+      public int compare(Pair<String, Long> o1, Pair<String, Long> o2) {
+        return o2.second.compareTo(o1.second);
+      }
+    });
+    StringBuilder report = new StringBuilder();
+    report.append(loadTimes.size()).append(" module files loaded in ").append(totalTime / 1000000).append(" ms, the slowest ones:");
+    for (Pair<String, Long> loadTime : loadTimes.subList(0, Math.min(SLOW_MODULES_TO_REPORT, loadTimes.size()))) {
+      report.append("\n  ").append(loadTime.first).append(": ").append(loadTime.second / 1000000).append(" ms");
+    }
+    LOG.info(report.toString());
+  }
+
   protected boolean isUnknownModuleType(Module module) {
     return false;
   }
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.diagnostic;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.awt.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.List;
+
+/**
+ * Records startup phases (plugins loading, components creation, startup activities, project opening, etc.) with their
+ * threads, wall and CPU time, and writes them in the Chrome trace event format, so the file can be opened in <code>chrome://tracing</code>.
+ * Nested phases are shown nested within a thread.
+ * <p/>
+ * Tracing is enabled by <code>'idea.startup.trace'</code> system property set to the trace file path, or to <code>true</code>
+ * to write <code>startup-trace.json</code> to the log directory. The trace is {@link #write() written} when the startup
+ * is over, i.e. when post-startup activities of the first opened project are done or the welcome screen is shown;
+ * nothing is recorded afterwards.
+ * <p/>
+ * Phases run on the event dispatch thread for longer than <code>'idea.startup.trace.edt.threshold.ms'</code> (100 ms by default)
+ * are logged and marked in the trace.
+ * <p/>
+ * Thread-safe.
+ */
+public class StartupTrace {
+  private static final String PROPERTY = "idea.startup.trace";
+  private static final long SLOW_EDT_NANOS = Long.getLong("idea.startup.trace.edt.threshold.ms", 100) * 1000000;
+  /**
+   * Phase which records nothing. Lets callers skip building a phase name when tracing is {@link #isEnabled() disabled}.
+   */
+  public static final Phase NO_PHASE = new Phase(null, 0, 0);
+
+  private static volatile boolean ourEnabled = System.getProperty(PROPERTY) != null;
+  private static final List<Event> ourEvents = new ArrayList<Event>(); // guarded by itself
+  private static final long ourJvmStartNanos = getJvmStartNanos();
+  private static final ThreadMXBean ourThreadBean = ourEnabled ? getCpuTimeAwareThreadBean() : null;
+
+  private StartupTrace() {
+  }
+
+  public static boolean isEnabled() {
+    return ourEnabled;
+  }
+
+  /**
+   * Starts a phase on the current thread, the phase is expected to be {@link Phase#end() ended} on the same thread, e.g.
+   * <pre>
+   * StartupTrace.Phase phase = StartupTrace.start("plugins initialization");
+   * try {
+   *   ...
+   * }
+   * finally {
+   *   phase.end();
+   * }
+   * </pre>
+   */
+  @NotNull
+  public static Phase start(@NotNull String name) {
+    if (!ourEnabled) return NO_PHASE;
+    return new Phase(name, System.nanoTime(), getCurrentThreadCpuTime());
+  }
+
+  /**
+   * Records a phase measured by the caller on the current thread, e.g. before the tracing class could be loaded.
+   */
+  public static void add(@NotNull String name, long startNanos, long endNanos) {
+    if (ourEnabled) {
+      record(name, startNanos, endNanos, -1);
+    }
+  }
+
+  /**
+   * Writes recorded phases to the trace file and stops tracing. Does nothing if tracing is disabled or the trace is already written.
+   */
+  public static void write() {
+    if (!ourEnabled) return;
+    ourEnabled = false;
+
+    List<Event> events;
+    synchronized (ourEvents) {
+      events = new ArrayList<Event>(ourEvents);
+      ourEvents.clear();
+    }
+
+    File file = getTraceFile();
+    try {
+      FileUtil.createParentDirs(file);
+      Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try {
+        writeTrace(events, writer);
+      }
+      finally {
+        writer.close();
+      }
+      getLogger().info("Startup trace with " + events.size() + " phases written to " + file);
+    }
+    catch (IOException e) {
+      getLogger().info("Cannot write startup trace to " + file + ": " + e);
+    }
+  }
+
+  private static void record(@NotNull String name, long startNanos, long endNanos, long cpuNanos) {
+    Thread thread = Thread.currentThread();
+    long duration = endNanos - startNanos;
+    boolean slowEdt = duration > SLOW_EDT_NANOS && EventQueue.isDispatchThread();
+    if (slowEdt) {
+      getLogger().info(name + " took " + duration / 1000000 + " ms on the event dispatch thread");
+    }
+    Event event = new Event(name, startNanos, duration, cpuNanos, thread.getId(), thread.getName(), slowEdt);
+    synchronized (ourEvents) {
+      if (ourEnabled) {
+        ourEvents.add(event);
+      }
+    }
+  }
+
+  private static void writeTrace(@NotNull List<Event> events, @NotNull Writer writer) throws IOException {
+    writer.write("{\"traceEvents\": [\n");
+    Map<Long, String> threads = new LinkedHashMap<Long, String>();
+    boolean first = true;
+    for (Event event : events) {
+      threads.put(event.myThreadId, event.myThreadName);
+      if (!first) writer.write(",\n");
+      first = false;
+      writer.write("{\"name\": " + quote(event.myName) + ", \"cat\": \"" + (event.mySlowEdt ? "startup,slow-edt" : "startup") + "\"" +
+                   ", \"ph\": \"X\", \"pid\": 1, \"tid\": " + event.myThreadId +
+                   ", \"ts\": " + (event.myStartNanos - ourJvmStartNanos) / 1000 + ", \"dur\": " + event.myDurationNanos / 1000 +
+                   ", \"args\": {" + (event.myCpuNanos >= 0 ? "\"cpu_ms\": " + event.myCpuNanos / 1000000 : "") +
+                   (event.mySlowEdt ? (event.myCpuNanos >= 0 ? ", " : "") + "\"slow_edt\": true" : "") + "}}");
+    }
+    for (Map.Entry<Long, String> thread : threads.entrySet()) {
+      if (!first) writer.write(",\n");
+      first = false;
+      writer.write("{\"name\": \"thread_name\", \"ph\": \"M\", \"pid\": 1, \"tid\": " + thread.getKey() +
+                   ", \"args\": {\"name\": " + quote(thread.getValue()) + "}}");
+    }
+    writer.write("\n]}\n");
+  }
+
+  @NotNull
+  private static String quote(@NotNull String s) {
+    StringBuilder result = new StringBuilder(s.length() + 2).append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        result.append('\\').append(c);
+      }
+      else if (c < ' ') {
+        result.append(String.format("\\u%04x", (int)c));
+      }
+      else {
+        result.append(c);
+      }
+    }
+    return result.append('"').toString();
+  }
+
+  @NotNull
+  private static File getTraceFile() {
+    String path = System.getProperty(PROPERTY);
+    if (path == null || path.isEmpty() || "true".equals(path)) {
+      return new File(PathManager.getLogPath(), "startup-trace.json");
+    }
+    return new File(path);
+  }
+
+  /**
+   * @return value of {@link System#nanoTime()} at the JVM start, so the trace time line starts with it
+   */
+  private static long getJvmStartNanos() {
+    try {
+      long sinceStartMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+      return System.nanoTime() - sinceStartMillis * 1000000;
+    }
+    catch (Throwable e) {
+      return System.nanoTime();
+    }
+  }
+
+  @Nullable
+  private static ThreadMXBean getCpuTimeAwareThreadBean() {
+    try {
+      ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+      return bean.isCurrentThreadCpuTimeSupported() && bean.isThreadCpuTimeEnabled() ? bean : null;
+    }
+    catch (Throwable e) {
+      return null;
+    }
+  }
+
+  private static long getCurrentThreadCpuTime() {
+    return ourThreadBean == null ? -1 : ourThreadBean.getCurrentThreadCpuTime();
+  }
+
+  // the logger can't be cached: tracing may start before logging is initialized
+  private static Logger getLogger() {
+    return Logger.getInstance("#com.intellij.diagnostic.StartupTrace");
+  }
+
+  public static class Phase {
+    @Nullable private final String myName;
+    private final long myStartNanos;
+    private final long myStartCpuNanos;
+
+    private Phase(@Nullable String name, long startNanos, long startCpuNanos) {
+      myName = name;
+      myStartNanos = startNanos;
+      myStartCpuNanos = startCpuNanos;
+    }
+
+    public void end() {
+      if (myName == null || !ourEnabled) return;
+      long cpuNanos = myStartCpuNanos < 0 ? -1 : getCurrentThreadCpuTime() - myStartCpuNanos;
+      record(myName, myStartNanos, System.nanoTime(), cpuNanos);
+    }
+  }
+
+  private static class Event {
+    private final String myName;
+    private final long myStartNanos;
+    private final long myDurationNanos;
+    private final long myCpuNanos;
+    private final long myThreadId;
+    private final String myThreadName;
+    private final boolean mySlowEdt;
+
+    private Event(@NotNull String name, long startNanos, long durationNanos, long cpuNanos, long threadId, @NotNull String threadName,
+                  boolean slowEdt) {
+      myName = name;
+      myStartNanos = startNanos;
+      myDurationNanos = durationNanos;
+      myCpuNanos = cpuNanos;
+      myThreadId = threadId;
+      myThreadName = threadName;
+      mySlowEdt = slowEdt;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ArrayUtil;
 import com.intellij.util.containers.StringInterner;
+import com.intellij.util.io.IOUtil;
 import com.intellij.util.io.URLUtil;
 import com.intellij.util.io.fs.IFile;
 import com.intellij.util.text.CharArrayUtil;
@@ -51,6 +52,7 @@ import java.util.List;
 @SuppressWarnings({"HardCodedStringLiteral"})
 public class JDOMUtil {
   private static final ThreadLocal<SoftReference<SAXBuilder>> ourSaxBuilder = new ThreadLocal<SoftReference<SAXBuilder>>();
+  private static final int MAX_INTERNED_VALUE_LENGTH = 64;
 
   private JDOMUtil() { }
 
@@ -332,6 +334,7 @@ public class JDOMUtil {
     SAXBuilder saxBuilder = reference != null ? reference.get() : null;
     if (saxBuilder == null) {
       saxBuilder = new SAXBuilder();
+      saxBuilder.setFactory(new InterningJDOMFactory());
       saxBuilder.setEntityResolver(new EntityResolver() {
         @NotNull
         public InputSource resolveEntity(String publicId, String systemId) {
@@ -746,4 +749,109 @@ public class JDOMUtil {
       throw new IllegalArgumentException("Wrong node: " + node);
     }
   }
+
+  private static final byte BINARY_ELEMENT = 0;
+  private static final byte BINARY_TEXT = 1;
+  private static final byte BINARY_END = 2;
+
+  /**
+   * Writes the element in a compact binary form which can be {@link #readBinaryElement(DataInput) read} much faster than XML.
+   * Comments are skipped.
+   *
+   * @return <code>false</code> if the element contains content which can't be written, e.g. namespaces or entity references;
+   *         the output contents are undefined in this case
+   */
+  public static boolean writeBinaryElement(@NotNull Element element, @NotNull DataOutput out) throws IOException {
+    if (!Namespace.NO_NAMESPACE.equals(element.getNamespace())) return false;
+    out.writeUTF(element.getName());
+
+    List attributes = element.getAttributes();
+    out.writeInt(attributes.size());
+    for (Object o : attributes) {
+      Attribute attribute = (Attribute)o;
+      if (!Namespace.NO_NAMESPACE.equals(attribute.getNamespace())) return false;
+      out.writeUTF(attribute.getName());
+      IOUtil.writeString(attribute.getValue(), out);
+    }
+
+    for (Object o : element.getContent()) {
+      if (o instanceof Element) {
+        out.writeByte(BINARY_ELEMENT);
+        if (!writeBinaryElement((Element)o, out)) return false;
+      }
+      else if (o instanceof Text) { // CDATA too
+        out.writeByte(BINARY_TEXT);
+        IOUtil.writeString(((Text)o).getText(), out);
+      }
+      else if (!(o instanceof Comment)) {
+        return false;
+      }
+    }
+    out.writeByte(BINARY_END);
+    return true;
+  }
+
+  @NotNull
+  public static Element readBinaryElement(@NotNull DataInput in) throws IOException {
+    Element element = new Element(in.readUTF());
+
+    int attributeCount = in.readInt();
+    for (int i = 0; i < attributeCount; i++) {
+      element.setAttribute(in.readUTF(), IOUtil.readString(in));
+    }
+
+    byte kind;
+    while ((kind = in.readByte()) != BINARY_END) {
+      if (kind == BINARY_ELEMENT) {
+        element.addContent(readBinaryElement(in));
+      }
+      else if (kind == BINARY_TEXT) {
+        element.addContent(new Text(IOUtil.readString(in)));
+      }
+      else {
+        throw new IOException("Unexpected content kind: " + kind);
+      }
+    }
+    return element;
+  }
+
+  /**
+   * Creates loaded nodes without verifying names and text once again, the XML parser has already checked them.
+   * Element names, attribute names and short attribute values are shared between documents loaded by the same
+   * {@link #getSaxBuilder() builder}: settings files and plugin descriptors repeat the same strings (<code>option</code>,
+   * <code>name</code>, <code>value</code>, <code>true</code>, indentation whitespace, etc.) thousands of times.
+   * <p/>
+   * Not thread-safe, every builder has its own factory.
+   */
+  private static class InterningJDOMFactory extends UncheckedJDOMFactory {
+    private static final int MAX_INTERNED_STRINGS = 8192;
+
+    private final StringInterner myInterner = new StringInterner();
+    private int myInternedCount;
+
+    @Override
+    public Element element(String name, Namespace namespace) {
+      return super.element(intern(name), namespace);
+    }
+
+    @Override
+    public Attribute attribute(String name, String value, int type, Namespace namespace) {
+      return super.attribute(intern(name), value.length() > MAX_INTERNED_VALUE_LENGTH ? value : intern(value), type, namespace);
+    }
+
+    @Override
+    public Text text(String text) {
+      return super.text(text.length() <= MAX_INTERNED_VALUE_LENGTH && StringUtil.isEmptyOrSpaces(text) ? intern(text) : text);
+    }
+
+    private String intern(String s) {
+      String result = myInterner.intern(s);
+      if (result == s && ++myInternedCount > MAX_INTERNED_STRINGS) {
+        // keeps the builder from retaining strings of all documents ever loaded by the thread
+        myInterner.clear();
+        myInternedCount = 0;
+      }
+      return result;
+    }
+  }
 }
@@ -0,0 +1,603 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.util.text;
+
+import gnu.trove.THashSet;
+import gnu.trove.TIntHashSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Boolean query over {@link TrigramBuilder trigrams} which any text matched by a regular expression is guaranteed to contain.
+ * <p/>
+ * The query is either {@link #isAll() unrestricted} (nothing is known about matching texts), a conjunction of
+ * {@link #getTrigrams() trigrams} and {@link #getSubQueries() sub-queries} or a disjunction of sub-queries. It's used to prune
+ * files which can't contain regular expression occurrences before their contents are scanned.
+ * <p/>
+ * {@link #forRegExp(String)} analyses regular expression syntax tree: literal runs contribute their trigrams, alternations
+ * become disjunctions and everything which may match arbitrary text (character classes, optional and repeated parts,
+ * back-references etc.) is treated as unrestricted. Unsupported syntax makes the whole query unrestricted, so the query never
+ * filters out a file which may contain a match.
+ * <p/>
+ * Immutable.
+ */
+public class TrigramQuery {
+
+  public static final TrigramQuery ALL = new TrigramQuery(Kind.ALL, new TIntHashSet(), Collections.<TrigramQuery>emptyList());
+
+  /**
+   * Max number of strings tracked for the regular expression part which is known to match only a finite set of strings.
+   * Bigger sets are converted to the {@link Kind#OR disjunction} of their trigrams.
+   */
+  private static final int MAX_EXACT_SET_SIZE = 16;
+
+  private enum Kind { ALL, AND, OR }
+
+  @NotNull private final Kind               myKind;
+  @NotNull private final TIntHashSet        myTrigrams;
+  @NotNull private final List<TrigramQuery> mySubQueries;
+
+  private TrigramQuery(@NotNull Kind kind, @NotNull TIntHashSet trigrams, @NotNull List<TrigramQuery> subQueries) {
+    myKind = kind;
+    myTrigrams = trigrams;
+    mySubQueries = subQueries;
+  }
+
+  /**
+   * @return    query which matches texts containing all trigrams of the given text
+   */
+  @NotNull
+  public static TrigramQuery forText(@NotNull CharSequence text) {
+    TIntHashSet trigrams = TrigramBuilder.buildTrigram(text);
+    if (trigrams.isEmpty()) return ALL;
+    return new TrigramQuery(Kind.AND, trigrams, Collections.<TrigramQuery>emptyList());
+  }
+
+  /**
+   * @param regExp  {@link java.util.regex.Pattern java regular expression}
+   * @return        query which matches all texts containing an occurrence of the given regular expression;
+   *                {@link #ALL} if no trigrams can be extracted from it
+   */
+  @NotNull
+  public static TrigramQuery forRegExp(@NotNull String regExp) {
+    try {
+      RegExpParser parser = new RegExpParser(regExp);
+      Info info = parser.parse();
+      return info.toQuery();
+    }
+    catch (UnsupportedRegExpException e) {
+      return ALL;
+    }
+  }
+
+  /**
+   * @return    <code>true</code> if the query doesn't impose any restrictions on matching texts
+   */
+  public boolean isAll() {
+    return myKind == Kind.ALL;
+  }
+
+  /**
+   * @return    <code>true</code> if the query is a disjunction of {@link #getSubQueries() sub-queries};
+   *            <code>false</code> if it's a conjunction of {@link #getTrigrams() trigrams} and sub-queries
+   */
+  public boolean isDisjunction() {
+    return myKind == Kind.OR;
+  }
+
+  /**
+   * @return    trigrams all of which must be present in matching text; always empty for {@link #isDisjunction() disjunctions}
+   */
+  @NotNull
+  public int[] getTrigrams() {
+    return myTrigrams.toArray();
+  }
+
+  @NotNull
+  public List<TrigramQuery> getSubQueries() {
+    return mySubQueries;
+  }
+
+  /**
+   * @return    <code>true</code> if text which contains given trigrams may match this query
+   */
+  public boolean matches(@NotNull TIntHashSet textTrigrams) {
+    switch (myKind) {
+      case ALL:
+        return true;
+      case AND:
+        for (int trigram : myTrigrams.toArray()) {
+          if (!textTrigrams.contains(trigram)) return false;
+        }
+        for (TrigramQuery query : mySubQueries) {
+          if (!query.matches(textTrigrams)) return false;
+        }
+        return true;
+      default:
+        for (TrigramQuery query : mySubQueries) {
+          if (query.matches(textTrigrams)) return true;
+        }
+        return false;
+    }
+  }
+
+  @NotNull
+  private static TrigramQuery and(@NotNull TrigramQuery q1, @NotNull TrigramQuery q2) {
+    if (q1.isAll()) return q2;
+    if (q2.isAll()) return q1;
+    TIntHashSet trigrams = new TIntHashSet();
+    List<TrigramQuery> subQueries = new ArrayList<TrigramQuery>();
+    for (TrigramQuery query : new TrigramQuery[]{q1, q2}) {
+      if (query.myKind == Kind.AND) {
+        trigrams.addAll(query.myTrigrams.toArray());
+        subQueries.addAll(query.mySubQueries);
+      }
+      else {
+        subQueries.add(query);
+      }
+    }
+    return new TrigramQuery(Kind.AND, trigrams, subQueries);
+  }
+
+  @NotNull
+  private static TrigramQuery or(@NotNull TrigramQuery q1, @NotNull TrigramQuery q2) {
+    if (q1.isAll() || q2.isAll()) return ALL;
+    List<TrigramQuery> subQueries = new ArrayList<TrigramQuery>();
+    for (TrigramQuery query : new TrigramQuery[]{q1, q2}) {
+      if (query.myKind == Kind.OR) {
+        subQueries.addAll(query.mySubQueries);
+      }
+      else {
+        subQueries.add(query);
+      }
+    }
+    return new TrigramQuery(Kind.OR, new TIntHashSet(), subQueries);
+  }
+
+  @Override
+  public String toString() {
+    switch (myKind) {
+      case ALL:
+        return "ALL";
+      case AND:
+        StringBuilder buffer = new StringBuilder("AND(");
+        int[] trigrams = myTrigrams.toArray();
+        Arrays.sort(trigrams);
+        for (int i = 0; i < trigrams.length; i++) {
+          if (i > 0) buffer.append(", ");
+          buffer.append(trigrams[i]);
+        }
+        for (TrigramQuery query : mySubQueries) {
+          buffer.append(buffer.length() > 4 ? ", " : "").append(query);
+        }
+        return buffer.append(")").toString();
+      default:
+        return "OR" + mySubQueries.toString().replace('[', '(').replace(']', ')');
+    }
+  }
+
+  /**
+   * Information about strings matched by a regular expression node.
+   */
+  private static class Info {
+
+    static final Info ANY = new Info(null, ALL);
+    static final Info EMPTY = new Info(Collections.singleton(""), ALL);
+
+    /** All strings the node may match, <code>null</code> if the set is unknown or too big. */
+    @Nullable final Set<String>  exact;
+    /** Query for the texts matched by the node, is used when {@link #exact} is <code>null</code>. */
+    @NotNull final TrigramQuery match;
+
+    Info(@Nullable Set<String> exact, @NotNull TrigramQuery match) {
+      this.exact = exact;
+      this.match = match;
+    }
+
+    static Info literal(@NotNull String s) {
+      return new Info(Collections.singleton(s), ALL);
+    }
+
+    @NotNull
+    TrigramQuery toQuery() {
+      if (exact == null) return match;
+      TrigramQuery result = null;
+      for (String s : exact) {
+        TrigramQuery query = forText(s);
+        if (query.isAll()) return ALL;
+        result = result == null ? query : or(result, query);
+      }
+      return result == null ? ALL : result;
+    }
+
+    /**
+     * @return    info for the concatenation of this node and the given one if it's known to match a small set of strings;
+     *            <code>null</code> otherwise
+     */
+    @Nullable
+    Info concatExact(@NotNull Info next) {
+      if (exact == null || next.exact == null || exact.size() * next.exact.size() > MAX_EXACT_SET_SIZE) return null;
+      Set<String> result = new THashSet<String>();
+      for (String prefix : exact) {
+        for (String suffix : next.exact) {
+          result.add(prefix + suffix);
+        }
+      }
+      return new Info(result, ALL);
+    }
+
+    @NotNull
+    Info alternate(@NotNull Info other) {
+      if (exact != null && other.exact != null && exact.size() + other.exact.size() <= MAX_EXACT_SET_SIZE) {
+        Set<String> result = new THashSet<String>(exact);
+        result.addAll(other.exact);
+        return new Info(result, ALL);
+      }
+      return new Info(null, or(toQuery(), other.toQuery()));
+    }
+
+    @NotNull
+    Info optional() {
+      if (exact != null && exact.size() < MAX_EXACT_SET_SIZE) {
+        Set<String> result = new THashSet<String>(exact);
+        result.add("");
+        return new Info(result, ALL);
+      }
+      return ANY;
+    }
+
+    @NotNull
+    Info repeated() {
+      return new Info(null, toQuery());
+    }
+  }
+
+  private static class UnsupportedRegExpException extends Exception {
+  }
+
+  /**
+   * Recursive descent parser for the {@link java.util.regex.Pattern} syntax which computes {@link Info} for parsed expression.
+   * Any construct it doesn't understand makes it fail with {@link UnsupportedRegExpException}.
+   */
+  private static class RegExpParser {
+    private static final int MAX_SMALL_CLASS_SIZE = 8;
+
+    @NotNull private final String myText;
+    private int myOffset;
+
+    RegExpParser(@NotNull String text) {
+      myText = text;
+    }
+
+    @NotNull
+    Info parse() throws UnsupportedRegExpException {
+      Info result = parseAlternation();
+      if (myOffset < myText.length()) throw new UnsupportedRegExpException();
+      return result;
+    }
+
+    private boolean atEnd() {
+      return myOffset >= myText.length();
+    }
+
+    private char peek() {
+      return myText.charAt(myOffset);
+    }
+
+    private char next() throws UnsupportedRegExpException {
+      if (atEnd()) throw new UnsupportedRegExpException();
+      return myText.charAt(myOffset++);
+    }
+
+    private void expect(char c) throws UnsupportedRegExpException {
+      if (next() != c) throw new UnsupportedRegExpException();
+    }
+
+    @NotNull
+    private Info parseAlternation() throws UnsupportedRegExpException {
+      Info result = parseSequence();
+      while (!atEnd() && peek() == '|') {
+        myOffset++;
+        result = result.alternate(parseSequence());
+      }
+      return result;
+    }
+
+    @NotNull
+    private Info parseSequence() throws UnsupportedRegExpException {
+      // adjacent nodes matching small sets of strings are joined into a run to get trigrams spanning node boundaries
+      Info run = Info.EMPTY;
+      TrigramQuery query = null; // stays null while the whole sequence matches a small set of strings
+      while (!atEnd() && peek() != '|' && peek() != ')') {
+        Info next = parseQuantified();
+        Info joined = run.concatExact(next);
+        if (joined != null) {
+          run = joined;
+          continue;
+        }
+        query = and(query == null ? ALL : query, run.toQuery());
+        if (next.exact != null) {
+          run = next;
+        }
+        else {
+          query = and(query, next.toQuery());
+          run = Info.EMPTY;
+        }
+      }
+      return query == null ? run : new Info(null, and(query, run.toQuery()));
+    }
+
+    @NotNull
+    private Info parseQuantified() throws UnsupportedRegExpException {
+      Info result = parseAtom();
+      while (!atEnd()) {
+        int min;
+        int max; // -1 for unbounded
+        char c = peek();
+        if (c == '*') {
+          min = 0;
+          max = -1;
+        }
+        else if (c == '+') {
+          min = 1;
+          max = -1;
+        }
+        else if (c == '?') {
+          min = 0;
+          max = 1;
+        }
+        else if (c == '{') {
+          myOffset++;
+          min = parseNumber();
+          max = min;
+          if (!atEnd() && peek() == ',') {
+            myOffset++;
+            max = !atEnd() && peek() == '}' ? -1 : parseNumber();
+          }
+          if (atEnd() || peek() != '}') throw new UnsupportedRegExpException();
+        }
+        else {
+          break;
+        }
+        myOffset++;
+        // reluctant and possessive quantifiers match the same strings
+        if (!atEnd() && (peek() == '?' || peek() == '+')) myOffset++;
+
+        if (min == 0) {
+          result = max == 1 ? result.optional() : Info.ANY;
+        }
+        else if (min != 1 || max != 1) {
+          result = result.repeated();
+        }
+      }
+      return result;
+    }
+
+    private int parseNumber() throws UnsupportedRegExpException {
+      int start = myOffset;
+      while (!atEnd() && Character.isDigit(peek())) myOffset++;
+      if (start == myOffset) throw new UnsupportedRegExpException();
+      try {
+        return Integer.parseInt(myText.substring(start, myOffset));
+      }
+      catch (NumberFormatException e) {
+        throw new UnsupportedRegExpException();
+      }
+    }
+
+    @NotNull
+    private Info parseAtom() throws UnsupportedRegExpException {
+      char c = next();
+      switch (c) {
+        case '(':
+          return parseGroup();
+        case '[':
+          return parseClass();
+        case '.':
+          return Info.ANY;
+        case '^':
+        case '$':
+          return Info.EMPTY;
+        case '\\':
+          return parseEscape();
+        case ')':
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw new UnsupportedRegExpException();
+        default:
+          return Info.literal(String.valueOf(c));
+      }
+    }
+
+    @NotNull
+    private Info parseGroup() throws UnsupportedRegExpException {
+      boolean lookaround = false;
+      if (!atEnd() && peek() == '?') {
+        myOffset++;
+        char c = next();
+        if (c == '=' || c == '!') {
+          lookaround = true;
+        }
+        else if (c == '<') {
+          char n = next();
+          if (n == '=' || n == '!') {
+            lookaround = true;
+          }
+          else {
+            // named group
+            while (n != '>') n = next();
+          }
+        }
+        else if (c != ':' && c != '>') {
+          // inline flags: (?idmsux-idmsux) or (?idmsux-idmsux:X)
+          myOffset--;
+          while (true) {
+            char f = next();
+            if (f == ')') return Info.EMPTY;
+            if (f == ':') break;
+            if (f == 'x') throw new UnsupportedRegExpException(); // comments mode changes the meaning of whitespaces
+            if ("idmsuU-".indexOf(f) < 0) throw new UnsupportedRegExpException();
+          }
+        }
+      }
+      Info result = parseAlternation();
+      expect(')');
+      return lookaround ? Info.EMPTY : result;
+    }
+
+    @NotNull
+    private Info parseClass() throws UnsupportedRegExpException {
+      Set<String> chars = new THashSet<String>();
+      boolean simple = true;
+      if (!atEnd() && peek() == '^') {
+        myOffset++;
+        simple = false;
+      }
+      boolean first = true;
+      int depth = 1;
+      while (true) {
+        char c = next();
+        if (c == ']' && !first) {
+          if (--depth == 0) break;
+        }
+        else if (c == '[') {
+          depth++;
+          simple = false;
+        }
+        else if (c == '\\') {
+          char escaped = next();
+          if (Character.isLetterOrDigit(escaped)) {
+            simple = false;
+            if (escaped == 'Q') {
+              while (!(next() == '\\' && !atEnd() && peek() == 'E')) {
+                // skip quoted text
+              }
+              myOffset++;
+            }
+          }
+          else {
+            chars.add(String.valueOf(escaped));
+          }
+        }
+        else if (c == '-' && !first && !atEnd() && peek() != ']' || c == '&') {
+          simple = false;
+        }
+        else {
+          chars.add(String.valueOf(c));
+        }
+        first = false;
+      }
+      if (simple && !chars.isEmpty() && chars.size() <= MAX_SMALL_CLASS_SIZE) {
+        return new Info(chars, ALL);
+      }
+      return Info.ANY;
+    }
+
+    @NotNull
+    private Info parseEscape() throws UnsupportedRegExpException {
+      char c = next();
+      switch (c) {
+        case 'b': case 'B': case 'A': case 'G': case 'Z': case 'z':
+          return Info.EMPTY;
+        case 'd': case 'D': case 's': case 'S': case 'w': case 'W':
+        case 'h': case 'H': case 'v': case 'V': case 'R': case 'X':
+          return Info.ANY;
+        case 'p': case 'P':
+          if (next() == '{') {
+            while (next() != '}') {
+              // skip property name
+            }
+          }
+          return Info.ANY;
+        case 'k':
+          expect('<');
+          while (next() != '>') {
+            // skip group name
+          }
+          return Info.ANY;
+        case 'c':
+          next();
+          return Info.ANY;
+        case 't':
+          return Info.literal("\t");
+        case 'n':
+          return Info.literal("\n");
+        case 'r':
+          return Info.literal("\r");
+        case 'f':
+          return Info.literal("\f");
+        case 'a':
+          return Info.literal("\u0007");
+        case 'e':
+          return Info.literal("\u001B");
+        case 'x':
+          if (!atEnd() && peek() == '{') {
+            myOffset++;
+            int end = myText.indexOf('}', myOffset);
+            if (end < 0) throw new UnsupportedRegExpException();
+            int codePoint = parseHex(myText.substring(myOffset, end));
+            myOffset = end + 1;
+            if (!Character.isValidCodePoint(codePoint)) throw new UnsupportedRegExpException();
+            return Info.literal(new String(Character.toChars(codePoint)));
+          }
+          return Info.literal(String.valueOf((char)parseHex(nextChars(2))));
+        case 'u':
+          return Info.literal(String.valueOf((char)parseHex(nextChars(4))));
+        case 'Q':
+          int end = myText.indexOf("\\E", myOffset);
+          String quoted = myText.substring(myOffset, end < 0 ? myText.length() : end);
+          myOffset = end < 0 ? myText.length() : end + 2;
+          return Info.literal(quoted);
+        case '0':
+          while (!atEnd() && peek() >= '0' && peek() <= '7') myOffset++;
+          return Info.ANY;
+        default:
+          if (c >= '1' && c <= '9') {
+            // back reference
+            while (!atEnd() && Character.isDigit(peek())) myOffset++;
+            return Info.ANY;
+          }
+          if (Character.isLetter(c)) throw new UnsupportedRegExpException();
+          return Info.literal(String.valueOf(c));
+      }
+    }
+
+    @NotNull
+    private String nextChars(int count) throws UnsupportedRegExpException {
+      if (myOffset + count > myText.length()) throw new UnsupportedRegExpException();
+      String result = myText.substring(myOffset, myOffset + count);
+      myOffset += count;
+      return result;
+    }
+
+    private static int parseHex(@NotNull String text) throws UnsupportedRegExpException {
+      try {
+        return Integer.parseInt(text, 16);
+      }
+      catch (NumberFormatException e) {
+        throw new UnsupportedRegExpException();
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.lang;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.util.ShutDownTracker;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data collected by class loaders during the previous session: names of entries of classpath jars (so that
+ * {@link ClasspathCache} can be built without opening the jars) and names of loaded classes in their loading order
+ * (so that they can be {@link UrlClassLoader#enableClassLoadingCache() preloaded} in background).
+ * <p/>
+ * Jar entries are valid as long as the jar has the same timestamp and length. The cache is saved on shutdown.
+ * <p/>
+ * Only classes requested by the application are recorded, not the ones defined by the preloading thread. The preloaded classes
+ * can't be seen requested later (the JVM doesn't ask the loader for them again), so they are kept in the list for
+ * {@link #MAX_UNCONFIRMED_SESSIONS a few sessions} and then dropped: an unused class disappears from the list, and a used one is
+ * recorded again when it's requested in the session after that.
+ * <p/>
+ * Is used only if <code>'idea.class.loading.cache'</code> system property is true.
+ */
+class ClassLoadingCache {
+  static final boolean ENABLED = "true".equals(System.getProperty("idea.class.loading.cache"));
+
+  private static final int VERSION = 2;
+  private static final int MAX_RECORDED_CLASSES = 50000;
+  private static final int MAX_UNCONFIRMED_SESSIONS = 3;
+  private static final ThreadLocal<Boolean> ourPreloading = new ThreadLocal<Boolean>();
+  private static ClassLoadingCache ourInstance;
+
+  private final File myFile;
+  private final Map<String, JarEntries> myPreviousJarEntries = new HashMap<String, JarEntries>();
+  private final Map<String, JarEntries> myJarEntries = new HashMap<String, JarEntries>();
+  private final List<String> myPreviousClasses = new ArrayList<String>();
+  private final Map<String, Integer> myPreviousClassAges = new HashMap<String, Integer>(); // sessions since a class was requested, 0 isn't stored
+  private final Queue<String> myLoadedClasses = new ConcurrentLinkedQueue<String>();
+  private final AtomicInteger myLoadedClassesCount = new AtomicInteger();
+
+  private ClassLoadingCache(@NotNull File file) {
+    myFile = file;
+    if (myFile.exists()) {
+      try {
+        load();
+      }
+      catch (IOException e) {
+        myPreviousJarEntries.clear();
+        myPreviousClasses.clear();
+        myPreviousClassAges.clear();
+      }
+    }
+  }
+
+  @Nullable
+  static synchronized ClassLoadingCache getInstance() {
+    if (!ENABLED) return null;
+    if (ourInstance == null) {
+      ourInstance = new ClassLoadingCache(new File(PathManager.getSystemPath(), "classloading/cache.dat"));
+      ShutDownTracker.getInstance().registerShutdownTask(new Runnable() {
+        @Override
+        public void run() {
+          ourInstance.save();
+        }
+      });
+    }
+    return ourInstance;
+  }
+
+  /**
+   * @return names of the jar entries if the jar hasn't changed since the previous session; <code>null</code> otherwise
+   */
+  @Nullable
+  synchronized String[] getJarEntries(@NotNull File jar) {
+    String path = jar.getPath();
+    JarEntries entries = myJarEntries.get(path);
+    if (entries == null) {
+      entries = myPreviousJarEntries.get(path);
+      if (entries == null) return null;
+      myJarEntries.put(path, entries);
+    }
+    return entries.myTimestamp == jar.lastModified() && entries.myLength == jar.length() ? entries.myNames : null;
+  }
+
+  synchronized void putJarEntries(@NotNull File jar, @NotNull String[] names) {
+    myJarEntries.put(jar.getPath(), new JarEntries(jar.lastModified(), jar.length(), names));
+  }
+
+  /**
+   * @return names of classes loaded during the previous session in their loading order
+   */
+  @NotNull
+  List<String> getPreviousClasses() {
+    return Collections.unmodifiableList(myPreviousClasses);
+  }
+
+  /**
+   * Marks the current thread as the preloading one: classes it defines aren't recorded as loaded.
+   */
+  static void setPreloadingThread() {
+    ourPreloading.set(Boolean.TRUE);
+  }
+
+  void classLoaded(@NotNull String name) {
+    if (ourPreloading.get() != null) return;
+    if (myLoadedClassesCount.incrementAndGet() <= MAX_RECORDED_CLASSES) {
+      myLoadedClasses.add(name);
+    }
+  }
+
+  private synchronized void save() {
+    File tempFile = new File(myFile.getPath() + ".tmp");
+    try {
+      FileUtil.createParentDirs(tempFile);
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      try {
+        out.writeInt(VERSION);
+        out.writeInt(myJarEntries.size());
+        for (Map.Entry<String, JarEntries> entry : myJarEntries.entrySet()) {
+          JarEntries entries = entry.getValue();
+          out.writeUTF(entry.getKey());
+          out.writeLong(entries.myTimestamp);
+          out.writeLong(entries.myLength);
+          out.writeInt(entries.myNames.length);
+          for (String name : entries.myNames) {
+            out.writeUTF(name);
+          }
+        }
+        List<String> classes = new ArrayList<String>(myLoadedClasses);
+        Set<String> requested = new HashSet<String>(classes);
+        List<String> unconfirmed = new ArrayList<String>();
+        for (String name : myPreviousClasses) {
+          if (classes.size() + unconfirmed.size() >= MAX_RECORDED_CLASSES) break;
+          if (!requested.contains(name) && getAge(name) < MAX_UNCONFIRMED_SESSIONS) {
+            unconfirmed.add(name);
+          }
+        }
+        out.writeInt(classes.size() + unconfirmed.size());
+        for (String name : classes) {
+          out.writeUTF(name);
+          out.writeByte(0);
+        }
+        for (String name : unconfirmed) {
+          out.writeUTF(name);
+          out.writeByte(getAge(name) + 1);
+        }
+      }
+      finally {
+        out.close();
+      }
+      FileUtil.delete(myFile);
+      if (!tempFile.renameTo(myFile)) {
+        FileUtil.delete(tempFile);
+      }
+    }
+    catch (IOException e) {
+      FileUtil.delete(tempFile);
+    }
+  }
+
+  private void load() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(myFile)));
+    try {
+      if (in.readInt() != VERSION) return;
+      int jarCount = in.readInt();
+      for (int i = 0; i < jarCount; i++) {
+        String path = in.readUTF();
+        long timestamp = in.readLong();
+        long length = in.readLong();
+        String[] names = new String[in.readInt()];
+        for (int j = 0; j < names.length; j++) {
+          names[j] = in.readUTF();
+        }
+        myPreviousJarEntries.put(path, new JarEntries(timestamp, length, names));
+      }
+      int classCount = in.readInt();
+      for (int i = 0; i < classCount; i++) {
+        String name = in.readUTF();
+        int age = in.readByte();
+        myPreviousClasses.add(name);
+        if (age > 0) {
+          myPreviousClassAges.put(name, age);
+        }
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  private int getAge(@NotNull String name) {
+    Integer age = myPreviousClassAges.get(name);
+    return age == null ? 0 : age;
+  }
+
+  private static class JarEntries {
+    private final long myTimestamp;
+    private final long myLength;
+    private final String[] myNames;
+
+    private JarEntries(long timestamp, long length, @NotNull String[] names) {
+      myTimestamp = timestamp;
+      myLength = length;
+      myNames = names;
+    }
+  }
+}
@@ -59,6 +59,7 @@ public class ClassPath {
 
   private final boolean myAcceptUnescapedUrls;
   private final boolean myPreloadJarContents;
+  @Nullable private volatile ClassLoadingCache myLoadingCache;
 
   private static synchronized void printOrder(Loader loader, String url, Resource resource) {
     if (!ourOrderedUrls.add(url)) return;
@@ -108,6 +109,13 @@ public class ClassPath {
     push(urls);
   }
 
+  /**
+   * Makes jars opened after this call use the cached names of their entries instead of reading them
+   */
+  void setLoadingCache(@Nullable ClassLoadingCache loadingCache) {
+    myLoadingCache = loadingCache;
+  }
+
   // Accessed by reflection from PluginClassLoader // TODO: do we need it?
   void addURL(URL url) {
     push(new URL[]{url});
@@ -210,7 +218,7 @@ public class ClassPath {
       }
     }
     else {
-      JarLoader jarLoader = new JarLoader(url, myCanLockJars, index);
+      JarLoader jarLoader = new JarLoader(url, myCanLockJars, index, myCanUseCache ? myLoadingCache : null);
       if (myPreloadJarContents) {
         jarLoader.preLoadClasses();
       }
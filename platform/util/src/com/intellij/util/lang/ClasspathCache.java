@@ -35,6 +35,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Thread-safe: class loaders may be {@link UrlClassLoader parallel capable}.
+ */
 public class ClasspathCache {
   private static final boolean doDebug = false;
   private final DebugInfo myDebugInfo;
@@ -51,7 +54,7 @@ public class ClasspathCache {
     myDebugInfo = doDebug ? new DebugInfo() : new NullDebugInfo();
   }
 
-  public void addResourceEntry(String resourcePath, Loader loader) {
+  public synchronized void addResourceEntry(String resourcePath, Loader loader) {
     myDebugInfo.addResourceEntry(resourcePath, loader);
 
     String packageName = getPackageName(resourcePath);
@@ -86,9 +89,13 @@ public class ClasspathCache {
     String packageName = getPackageName(resourcePath);
     
     int hash = packageName.hashCode();
-    Object o = map.get(hash);
-    myDebugInfo.checkLoadersCount(resourcePath, o);
-      
+    Object o;
+    // loaders are processed outside of the lock as they may access the disk; the array stored in the map is never modified
+    synchronized (this) {
+      o = map.get(hash);
+      myDebugInfo.checkLoadersCount(resourcePath, o);
+    }
+
     if (o == null) return null;
     if (o instanceof Loader) return iterator.process((Loader)o, parameter, parameter2);
     Loader[] loaders = (Loader[])o;
@@ -107,7 +114,7 @@ public class ClasspathCache {
   private int registeredBeforeClose;
   private int registeredAfterClose;
 
-  public void addNameEntry(String name, Loader loader) {
+  public synchronized void addNameEntry(String name, Loader loader) {
     name = transformName(name);
     myDebugInfo.addNameEntry(name, loader);
     if (myTempMapMode) {
@@ -124,7 +131,7 @@ public class ClasspathCache {
     }
   }
 
-  public boolean loaderHasName(String name, Loader loader) {
+  public synchronized boolean loaderHasName(String name, Loader loader) {
     String origName = name;
     name = transformName(name);
 
@@ -213,7 +220,7 @@ public class ClasspathCache {
   private static int diffs2;
   private static int diffs3;
 
-  void nameSymbolsLoaded() {
+  synchronized void nameSymbolsLoaded() {
     if (!myTempMapMode) {
       if (UrlClassLoader.doDebug && registeredAfterClose > 0) {
         UrlClassLoader.debug("Registered number of classes after close "+registeredAfterClose + " "+toString());
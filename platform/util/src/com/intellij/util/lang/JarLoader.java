@@ -18,6 +18,7 @@ package com.intellij.util.lang;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ArrayUtil;
 import com.intellij.util.TimedComputable;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -27,7 +28,9 @@ import sun.misc.Resource;
 import java.io.*;
 import java.lang.ref.SoftReference;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -35,6 +38,7 @@ class JarLoader extends Loader {
   private final URL myURL;
   private SoftReference<JarMemoryLoader> myMemoryLoader;
   private final boolean myCanLockJar;
+  @Nullable private final ClassLoadingCache myLoadingCache;
   private static final boolean myDebugTime = false;
   private static int misses;
   private static int hits;
@@ -61,9 +65,14 @@ class JarLoader extends Loader {
   private static final long NS_THRESHOLD = 10000000;
 
   JarLoader(URL url, boolean canLockJar, int index) throws IOException {
+    this(url, canLockJar, index, null);
+  }
+
+  JarLoader(URL url, boolean canLockJar, int index, @Nullable ClassLoadingCache loadingCache) throws IOException {
     super(new URL(JAR_PROTOCOL, "", -1, url + "!/"), index);
     myURL = url;
     myCanLockJar = canLockJar;
+    myLoadingCache = loadingCache;
   }
 
   void preLoadClasses() {
@@ -126,6 +135,17 @@ class JarLoader extends Loader {
 
   @Override
   void buildCache(final ClasspathCache cache) throws IOException {
+    File jar = myLoadingCache != null && FILE_PROTOCOL.equals(myURL.getProtocol()) ? new File(FileUtil.unquote(myURL.getFile())) : null;
+    String[] cachedNames = jar != null ? myLoadingCache.getJarEntries(jar) : null;
+    if (cachedNames != null) {
+      for (String name : cachedNames) {
+        cache.addResourceEntry(name, this);
+        cache.addNameEntry(name, this);
+      }
+      return;
+    }
+
+    List<String> names = jar != null ? new ArrayList<String>() : null;
     ZipFile zipFile = null;
     try {
       zipFile = acquireZipFile();
@@ -137,11 +157,16 @@ class JarLoader extends Loader {
         String name = zipEntry.getName();
         cache.addResourceEntry(name, this);
         cache.addNameEntry(name, this);
+        if (names != null) names.add(name);
       }
     }
     finally {
       releaseZipFile(zipFile);
     }
+
+    if (names != null) {
+      myLoadingCache.putJarEntries(jar, ArrayUtil.toStringArray(names));
+    }
   }
 
   @Override
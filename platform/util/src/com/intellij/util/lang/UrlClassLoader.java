@@ -26,17 +26,22 @@ import sun.misc.Resource;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Enumeration;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class UrlClassLoader extends ClassLoader {
+  private static final Set<Class<?>> ourParallelCapableLoaders = Collections.synchronizedSet(new HashSet<Class<?>>());
+  private static final boolean ourParallelCapable = registerAsParallelCapable(UrlClassLoader.class);
+
   private final ClassPath myClassPath;
   private final List<URL> myURLs;
+  @Nullable private final ConcurrentMap<String, Object> myClassLoadingLocks;
+  @Nullable private volatile ClassLoadingCache myLoadingCache;
   @NonNls static final String CLASS_EXTENSION = ".class";
   protected static final boolean myDebugTime = false;
   protected static final long NS_THRESHOLD = 10000000;
@@ -68,6 +73,83 @@ public class UrlClassLoader extends ClassLoader {
     });
     myClassPath = new ClassPath(list.toArray(new URL[list.size()]), canLockJars, canUseCache, acceptUnescapedUrls, preloadJarContents);
     myURLs = list;
+
+    myClassLoadingLocks = ourParallelCapableLoaders.contains(getClass()) ? new ConcurrentHashMap<String, Object>() : null;
+  }
+
+  /**
+   * Registers the given loader class as parallel capable if the JVM supports that (JDK 7+), so that classes with different names
+   * may be loaded concurrently. Is expected to be called from static initializers of subclasses overriding
+   * {@link #loadClass(String, boolean)}, the superclass has to be registered first.
+   * <p/>
+   * <code>ClassLoader.registerAsParallelCapable()</code> registers its caller class and isn't available on JDK 6, so
+   * the registry behind it is accessed reflectively.
+   *
+   * @return <code>true</code> if the class was registered
+   */
+  protected static boolean registerAsParallelCapable(@NotNull Class<? extends UrlClassLoader> loaderClass) {
+    try {
+      Class<?> registry = Class.forName("java.lang.ClassLoader$ParallelLoaders");
+      Method method = registry.getDeclaredMethod("register", Class.class);
+      method.setAccessible(true);
+      if (Boolean.TRUE.equals(method.invoke(null, loaderClass))) {
+        ourParallelCapableLoaders.add(loaderClass);
+        return true;
+      }
+    }
+    catch (Throwable ignored) {
+    }
+    return false;
+  }
+
+  /**
+   * @return lock to be held while a class with the given name is looked up and defined by this loader if {@link #loadClass(String, boolean)}
+   *         is overridden; the same lock is returned for the same name, like <code>ClassLoader.getClassLoadingLock()</code> does.
+   *         The loader itself if it isn't parallel capable
+   */
+  @NotNull
+  protected Object getClassNameLock(@NotNull String className) {
+    ConcurrentMap<String, Object> locks = myClassLoadingLocks;
+    if (locks == null) return this;
+    Object lock = locks.get(className);
+    if (lock == null) {
+      Object newLock = new Object();
+      lock = locks.putIfAbsent(className, newLock);
+      if (lock == null) lock = newLock;
+    }
+    return lock;
+  }
+
+  /**
+   * Makes this loader use {@link ClassLoadingCache names of jar entries} remembered during the previous session instead of
+   * reading them from jars, record names of the requested classes for the next session, and preload classes loaded
+   * during the previous session in a background thread (if the loader is parallel capable).
+   * Does nothing unless <code>'idea.class.loading.cache'</code> system property is true.
+   */
+  public void enableClassLoadingCache() {
+    final ClassLoadingCache cache = ClassLoadingCache.getInstance();
+    if (cache == null) return;
+    myLoadingCache = cache;
+    myClassPath.setLoadingCache(cache);
+
+    final List<String> classes = cache.getPreviousClasses();
+    if (!ourParallelCapable || classes.isEmpty()) return;
+    Thread thread = new Thread("Class preloading") {
+      @Override
+      public void run() {
+        ClassLoadingCache.setPreloadingThread();
+        for (String name : classes) {
+          try {
+            Class.forName(name, false, UrlClassLoader.this);
+          }
+          catch (Throwable ignored) {
+          }
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
   }
 
   @NotNull
@@ -131,6 +213,11 @@ public class UrlClassLoader extends ClassLoader {
   }
 
   private Class defineClass(String name, Resource res) throws IOException {
+    ClassLoadingCache loadingCache = myLoadingCache;
+    if (loadingCache != null) {
+      loadingCache.classLoaded(name);
+    }
+
     int i = name.lastIndexOf('.');
     if (i != -1) {
       String pkgname = name.substring(0, i);
@@ -34,15 +34,24 @@ public class Topic<L> {
   private final String myDisplayName;
   private final Class<L> myListenerClass;
   private final BroadcastDirection myBroadcastDirection;
+  private final boolean myCoalescing;
 
   public Topic(@NonNls @NotNull String displayName, @NotNull Class<L> listenerClass) {
     this(displayName, listenerClass, BroadcastDirection.TO_CHILDREN);
   }
 
   public Topic(@NonNls @NotNull String displayName, @NotNull Class<L> listenerClass, final BroadcastDirection broadcastDirection) {
+    this(displayName, listenerClass, broadcastDirection, false);
+  }
+
+  private Topic(@NonNls @NotNull String displayName,
+                @NotNull Class<L> listenerClass,
+                final BroadcastDirection broadcastDirection,
+                boolean coalescing) {
     myDisplayName = displayName;
     myListenerClass = listenerClass;
     myBroadcastDirection = broadcastDirection;
+    myCoalescing = coalescing;
   }
 
   /**
@@ -86,6 +95,25 @@ public class Topic<L> {
     return new Topic<L>(displayName, listenerClass, direction);
   }
 
+  /**
+   * Creates a topic whose messages are coalesced: a message isn't queued for a subscriber which already has an equal message
+   * (the same listener method with equal arguments) queued and not delivered yet. Is intended for high-frequency
+   * <code>'something has changed'</code> notifications, especially ones posted via {@link MessageBus#asyncPublisher(Topic)},
+   * so bursts of them result in a single listener call.
+   */
+  public static <L> Topic<L> createCoalescing(@NonNls @NotNull String displayName,
+                                              @NotNull Class<L> listenerClass,
+                                              BroadcastDirection direction) {
+    return new Topic<L>(displayName, listenerClass, direction, true);
+  }
+
+  /**
+   * @see #createCoalescing(String, Class, BroadcastDirection)
+   */
+  public boolean isCoalescing() {
+    return myCoalescing;
+  }
+
   /**
    * @return    broadcasting strategy configured for the current topic. Default value is {@link BroadcastDirection#TO_CHILDREN}
    * @see BroadcastDirection
@@ -23,6 +23,7 @@ import com.intellij.util.messages.Topic;
 import org.jetbrains.annotations.NotNull;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 
 public final class Message {
   private final Topic myTopic;
@@ -50,6 +51,13 @@ public final class Message {
     return myArgs;
   }
 
+  /**
+   * @return    <code>true</code> if the given message calls the same listener method of the same topic with equal arguments
+   */
+  public boolean isSameAs(@NotNull Message message) {
+    return myTopic == message.myTopic && myListenerMethod.equals(message.myListenerMethod) && Arrays.equals(myArgs, message.myArgs);
+  }
+
   public String toString() {
     return myTopic.toString() + ":" + myListenerMethod.getName();
   }
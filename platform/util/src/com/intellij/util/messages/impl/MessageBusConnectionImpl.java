@@ -110,9 +110,9 @@ public class MessageBusConnectionImpl implements MessageBusConnection {
     final Topic topic = message.getTopic();
     final Object handler = getHandler(topic);
 
+    long startTime = MessageBusStatistics.ENABLED ? System.nanoTime() : 0;
+    Method listenerMethod = message.getListenerMethod();
     try {
-      Method listenerMethod = message.getListenerMethod();
-
       if (handler == myDefaultHandler) {
         myDefaultHandler.handle(listenerMethod, message.getArgs());
       }
@@ -126,6 +126,18 @@ public class MessageBusConnectionImpl implements MessageBusConnection {
     catch(Throwable e) {
       LOG.error(e.getCause() == null ? e : e.getCause());
     }
+    finally {
+      if (MessageBusStatistics.ENABLED && handler != null) {
+        MessageBusStatistics.delivered(topic, handler, listenerMethod, System.nanoTime() - startTime);
+      }
+    }
+  }
+
+  boolean hasPendingMessage(@NotNull Message message) {
+    for (Message pending : myPendingMessages.get()) {
+      if (pending.isSameAs(message)) return true;
+    }
+    return false;
   }
 
   void scheduleMessageDelivery(Message message) {
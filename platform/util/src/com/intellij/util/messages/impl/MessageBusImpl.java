@@ -35,6 +35,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -185,6 +186,7 @@ public class MessageBusImpl implements MessageBus {
     if (topicSubscribers != null) {
       Queue<DeliveryJob> queue = myMessageQueue.get();
       for (MessageBusConnectionImpl subscriber : topicSubscribers) {
+        if (topic.isCoalescing() && subscriber.hasPendingMessage(message)) continue;
         queue.offer(new DeliveryJob(subscriber, message));
         subscriber.scheduleMessageDelivery(message);
       }
@@ -244,11 +246,16 @@ public class MessageBusImpl implements MessageBus {
     }
 
     topicSubscribers.add(connection);
+    if (MessageBusStatistics.ENABLED) {
+      MessageBusStatistics.subscribed(topic);
+    }
   }
 
   void notifyConnectionTerminated(final MessageBusConnectionImpl connection) {
-    for (List<MessageBusConnectionImpl> topicSubscribers : mySubscribers.values()) {
-      topicSubscribers.remove(connection);
+    for (Map.Entry<Topic, List<MessageBusConnectionImpl>> entry : mySubscribers.entrySet()) {
+      if (entry.getValue().remove(connection) && MessageBusStatistics.ENABLED) {
+        MessageBusStatistics.unsubscribed(entry.getKey());
+      }
     }
     if (myDisposed) return;
 
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.messages.impl;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.SystemProperties;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.messages.Topic;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects message delivery statistics per {@link Topic topic}: number of subscribed connections, number of listener calls,
+ * total time spent in listeners and the slowest listener. Listener calls taking more than {@link #SLOW_LISTENER_MS} are logged,
+ * which helps to find out listeners freezing UI.
+ * <p/>
+ * The statistics are collected only if <code>'idea.message.bus.statistics'</code> system property is set to true.
+ * <p/>
+ * Thread-safe.
+ */
+public class MessageBusStatistics {
+  private static final Logger LOG = Logger.getInstance("#com.intellij.util.messages.impl.MessageBusStatistics");
+
+  public static final boolean ENABLED = SystemProperties.getBooleanProperty("idea.message.bus.statistics", false);
+  public static final int SLOW_LISTENER_MS = 100;
+
+  private static final ConcurrentMap<Topic, TopicStatistics> ourStatistics = ContainerUtil.newConcurrentMap();
+
+  private MessageBusStatistics() {
+  }
+
+  static void subscribed(@NotNull Topic topic) {
+    getOrCreate(topic).mySubscribers.incrementAndGet();
+  }
+
+  static void unsubscribed(@NotNull Topic topic) {
+    getOrCreate(topic).mySubscribers.decrementAndGet();
+  }
+
+  static void delivered(@NotNull Topic topic, @NotNull Object handler, @NotNull Method listenerMethod, long timeNanos) {
+    getOrCreate(topic).add(handler, listenerMethod, timeNanos);
+    if (timeNanos > SLOW_LISTENER_MS * 1000000L) {
+      LOG.info("Slow listener " + handler.getClass().getName() + "." + listenerMethod.getName() + " of " + topic + ": " +
+               timeNanos / 1000000 + " ms");
+    }
+  }
+
+  /**
+   * @return    statistics of all topics subscribed to or delivered so far sorted by total delivery time in descending order
+   */
+  @NotNull
+  public static List<TopicStatistics> getStatistics() {
+    List<TopicStatistics> result = new ArrayList<TopicStatistics>(ourStatistics.values());
+    Collections.sort(result, new Comparator<TopicStatistics>() {
+      @Override
+      public int compare(TopicStatistics o1, TopicStatistics o2) {
+        long t1 = o1.getTotalTimeNanos();
+        long t2 = o2.getTotalTimeNanos();
+        return t1 > t2 ? -1 : t1 == t2 ? 0 : 1;
+      }
+    });
+    return result;
+  }
+
+  public static void clear() {
+    ourStatistics.clear();
+  }
+
+  /**
+   * @return    human-readable report about all recorded deliveries, the most expensive topics go first
+   */
+  @NotNull
+  public static String getReport() {
+    StringBuilder result = new StringBuilder();
+    result.append(String.format("%-50s %12s %12s %12s %12s  %s%n", "Topic", "Subscribers", "Deliveries", "Total (ms)", "Max (ms)",
+                                "Slowest listener"));
+    for (TopicStatistics statistics : getStatistics()) {
+      result.append(String.format("%-50s %12d %12d %12d %12d  %s%n",
+                                  statistics.getTopic(),
+                                  statistics.getSubscribers(),
+                                  statistics.getDeliveries(),
+                                  statistics.getTotalTimeNanos() / 1000000,
+                                  statistics.getMaxTimeNanos() / 1000000,
+                                  statistics.getSlowestListener()));
+    }
+    return result.toString();
+  }
+
+  @NotNull
+  private static TopicStatistics getOrCreate(@NotNull Topic topic) {
+    TopicStatistics statistics = ourStatistics.get(topic);
+    if (statistics == null) {
+      statistics = ConcurrencyUtil.cacheOrGet(ourStatistics, topic, new TopicStatistics(topic));
+    }
+    return statistics;
+  }
+
+  public static class TopicStatistics {
+    @NotNull private final Topic myTopic;
+    private final AtomicInteger mySubscribers = new AtomicInteger();
+    private final AtomicLong myDeliveries = new AtomicLong();
+    private final AtomicLong myTotalTimeNanos = new AtomicLong();
+    private long myMaxTimeNanos; // guarded by this
+    private String mySlowestListener; // guarded by this
+
+    private TopicStatistics(@NotNull Topic topic) {
+      myTopic = topic;
+    }
+
+    private void add(@NotNull Object handler, @NotNull Method listenerMethod, long timeNanos) {
+      myDeliveries.incrementAndGet();
+      myTotalTimeNanos.addAndGet(timeNanos);
+      synchronized (this) {
+        if (timeNanos > myMaxTimeNanos) {
+          myMaxTimeNanos = timeNanos;
+          mySlowestListener = handler.getClass().getName() + "." + listenerMethod.getName();
+        }
+      }
+    }
+
+    @NotNull
+    public Topic getTopic() {
+      return myTopic;
+    }
+
+    public int getSubscribers() {
+      return mySubscribers.get();
+    }
+
+    public long getDeliveries() {
+      return myDeliveries.get();
+    }
+
+    public long getTotalTimeNanos() {
+      return myTotalTimeNanos.get();
+    }
+
+    public synchronized long getMaxTimeNanos() {
+      return myMaxTimeNanos;
+    }
+
+    public synchronized String getSlowestListener() {
+      return mySlowestListener;
+    }
+
+    @Override
+    public String toString() {
+      return myTopic + ": " + getDeliveries() + " deliveries, " + getTotalTimeNanos() / 1000000 + "ms total";
+    }
+  }
+}
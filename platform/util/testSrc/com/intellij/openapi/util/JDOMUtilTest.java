@@ -0,0 +1,61 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.openapi.util;
+
+import junit.framework.TestCase;
+import org.jdom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+public class JDOMUtilTest extends TestCase {
+  private static final String XML = "<component name=\"NewModuleRootManager\" inherit-compiler-output=\"true\">\n" +
+                                    "  <exclude-output />\n" +
+                                    "  <orderEntry type=\"sourceFolder\" forTests=\"false\" />\n" +
+                                    "  <orderEntry type=\"module\" module-name=\"util\" />\n" +
+                                    "  <option name=\"text\">a &amp; b</option>\n" +
+                                    "</component>";
+
+  public void testLoadedNamesAndValuesAreShared() throws Exception {
+    Element first = JDOMUtil.loadDocument(XML).getRootElement();
+    Element second = JDOMUtil.loadDocument(XML).getRootElement();
+
+    Element entry1 = (Element)first.getChildren("orderEntry").get(0);
+    Element entry2 = (Element)first.getChildren("orderEntry").get(1);
+    assertSame(entry1.getName(), entry2.getName());
+    assertSame(entry1.getAttribute("type").getName(), entry2.getAttribute("type").getName());
+    assertSame(first.getAttributeValue("name"), second.getAttributeValue("name"));
+    assertSame(((Element)first.getChildren().get(0)).getName(), ((Element)second.getChildren().get(0)).getName());
+    assertEquals("a & b", first.getChildText("option"));
+  }
+
+  public void testLoadedDocumentIsWrittenBack() throws Exception {
+    Element element = JDOMUtil.loadDocument(XML).getRootElement();
+    assertEquals(XML, JDOMUtil.writeElement(element, "\n"));
+  }
+
+  public void testBinaryElement() throws Exception {
+    Element element = JDOMUtil.loadDocument(XML).getRootElement();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    assertTrue(JDOMUtil.writeBinaryElement(element, new DataOutputStream(bytes)));
+
+    Element restored = JDOMUtil.readBinaryElement(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertTrue(JDOMUtil.areElementsEqual(element, restored));
+    assertEquals(XML, JDOMUtil.writeElement(restored, "\n"));
+  }
+}
@@ -41,6 +41,8 @@ public class MessageBusTest extends TestCase {
 
   private static final Topic<T1Listener> TOPIC1 = new Topic<T1Listener>("T1", T1Listener.class);
   private static final Topic<T2Listener> TOPIC2 = new Topic<T2Listener>("T2", T2Listener.class);
+  private static final Topic<T1Listener> COALESCING_TOPIC = Topic.createCoalescing("T1 coalescing", T1Listener.class,
+                                                                                   Topic.BroadcastDirection.NONE);
 
   private class T1Handler implements T1Listener {
     private final String id;
@@ -197,6 +199,22 @@ public class MessageBusTest extends TestCase {
                  "C2T1Handler:t12");
   }
   
+  public void testCoalescingAsyncMessages() {
+    myBus.connect().subscribe(COALESCING_TOPIC, new T1Handler("c"));
+    T1Listener publisher = myBus.asyncPublisher(COALESCING_TOPIC);
+    publisher.t11();
+    publisher.t12();
+    publisher.t11();
+    assertEvents();
+
+    myBus.syncPublisher(TOPIC1).t11();
+    assertEvents("c:t11", "c:t12");
+
+    publisher.t11();
+    myBus.syncPublisher(TOPIC1).t11();
+    assertEvents("c:t11", "c:t12", "c:t11");
+  }
+
   private void assertEvents(String... expected) {
     String joinExpected = StringUtil.join(expected, "\n");
     String joinActual = StringUtil.join(myLog, "\n");
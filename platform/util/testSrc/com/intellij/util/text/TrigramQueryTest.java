@@ -0,0 +1,80 @@
+/*
+ * Copyright 2000-2013 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.intellij.util.text;
+
+import com.intellij.openapi.util.text.TrigramBuilder;
+import com.intellij.openapi.util.text.TrigramQuery;
+import junit.framework.TestCase;
+
+import java.util.regex.Pattern;
+
+public class TrigramQueryTest extends TestCase {
+  public void testUnrestricted() {
+    assertTrue(TrigramQuery.forRegExp(".*").isAll());
+    assertTrue(TrigramQuery.forRegExp("ab").isAll());
+    assertTrue(TrigramQuery.forRegExp("\\w+\\s*\\d").isAll());
+    assertTrue(TrigramQuery.forRegExp("foo|.").isAll());
+    assertTrue(TrigramQuery.forRegExp("(foo)?").isAll());
+    assertTrue(TrigramQuery.forRegExp("(?x) foo bar").isAll());
+    assertTrue(TrigramQuery.forRegExp("foo(").isAll());
+  }
+
+  public void testLiterals() {
+    assertFalse(TrigramQuery.forRegExp("foo").isAll());
+    assertEquals(TrigramQuery.forText("foobar").toString(), TrigramQuery.forRegExp("foobar").toString());
+    assertEquals(TrigramQuery.forText("foo.bar").toString(), TrigramQuery.forRegExp("foo\\.bar").toString());
+    assertEquals(TrigramQuery.forText("a+b*c").toString(), TrigramQuery.forRegExp("\\Qa+b*c\\E").toString());
+    assertEquals(TrigramQuery.forText("foobar").toString(), TrigramQuery.forRegExp("^(?i)foo(?:bar){1}$").toString());
+  }
+
+  public void testAlternation() {
+    TrigramQuery query = TrigramQuery.forRegExp("(fooBar|bazQux)Impl");
+    assertTrue(query.isDisjunction());
+    assertEquals(2, query.getSubQueries().size());
+  }
+
+  public void testPruning() {
+    assertMatches("frob.*quux", "frob and quux", true);
+    assertMatches("frob.*quux", "frob only", false);
+    assertMatches("(Frob|Zork)Kludge", "class ZorkKludge {}", true);
+    assertMatches("(Frob|Zork)Kludge", "class GlorpKludge {}", false);
+    assertMatches("get[A-Z]\\w+Xyzzy\\(", "getPlughXyzzy()", true);
+    assertMatches("get[A-Z]\\w+Xyzzy\\(", "getPlugh()", false);
+    assertMatches("Wibble[12]Plugh", "Wibble2Plugh", true);
+    assertMatches("Wibble[12]Plugh", "Wibble3Plugh", false);
+  }
+
+  public void testNoFalseNegatives() {
+    String[] patterns = {"foo.*bar", "(a|b)+cde", "x{2,}yz", "\\bclass\\s+\\w+Test\\b", "(?<name>abc)\\k<name>", "a(?=bcd)bcd",
+      "[^abc]def", "\\x41BC", "\\u0041bc", "(?s)fo+.bar", "(foo|bar|baz|qux|quux)(one|two|three|four|five)", "ab[cd]ef[gh]ij"};
+    String[] texts = {"foo bar", "aacde", "bcde", "xxyz", "xxxxyz", "class MyTest ", "abcabc", "abcd", "zdef", "ABC", "Abc",
+      "foo\nbar", "fooo.bar", "bazthree", "quuxfive", "abdefgij", "abcefhij"};
+    for (String pattern : patterns) {
+      Pattern compiled = Pattern.compile(pattern);
+      TrigramQuery query = TrigramQuery.forRegExp(pattern);
+      for (String text : texts) {
+        if (compiled.matcher(text).find()) {
+          assertTrue(pattern + " on '" + text + "'", query.matches(TrigramBuilder.buildTrigram(text)));
+        }
+      }
+    }
+  }
+
+  private static void assertMatches(String regExp, String text, boolean expected) {
+    assertEquals(expected, Pattern.compile(regExp).matcher(text).find());
+    assertEquals(expected, TrigramQuery.forRegExp(regExp).matches(TrigramBuilder.buildTrigram(text)));
+  }
+}
@@ -3,11 +3,8 @@ package org.jetbrains.plugins.groovy.mvc;
 import com.intellij.notification.Notification;
 import com.intellij.notification.NotificationListener;
 import com.intellij.notification.NotificationType;
-import com.intellij.openapi.application.AccessToken;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.module.ModuleManager;
-import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.startup.StartupActivity;
 import com.intellij.openapi.util.Pair;
@@ -21,43 +18,39 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.event.HyperlinkEvent;
 
 /**
+ * Is run in background: it only looks for the SDK classes under read action, and notifications may be shown from any thread.
+ * Isn't dumb-aware because the search needs indices.
+ *
  * @author Sergey Evdokimov
  */
-public class MvcProjectWithoutLibraryNotificator implements StartupActivity, DumbAware {
+public class MvcProjectWithoutLibraryNotificator implements StartupActivity.Background {
 
   @Override
   public void runActivity(final Project project) {
-    AccessToken accessToken = ApplicationManager.getApplication().acquireReadActionLock();
-
-    try {
-      if (JavaPsiFacade.getInstance(project).findClass(CommonClassNames.JAVA_LANG_OBJECT, GlobalSearchScope.allScope(project)) == null) {
-        return; // If indexes is corrupted JavaPsiFacade.findClass() can't find classes during StartupActivity (may be it's a bug).
-                // So we can't determine whether exists Grails library or not.
-      }
+    if (JavaPsiFacade.getInstance(project).findClass(CommonClassNames.JAVA_LANG_OBJECT, GlobalSearchScope.allScope(project)) == null) {
+      return; // If indexes is corrupted JavaPsiFacade.findClass() can't find classes during StartupActivity (may be it's a bug).
+              // So we can't determine whether exists Grails library or not.
+    }
 
-      Pair<Module, MvcFramework> pair = findModuleWithoutLibrary(project);
+    Pair<Module, MvcFramework> pair = findModuleWithoutLibrary(project);
 
-      if (pair != null) {
-        final MvcFramework framework = pair.second;
-        final Module module = pair.first;
+    if (pair != null) {
+      final MvcFramework framework = pair.second;
+      final Module module = pair.first;
 
-        new Notification(framework.getFrameworkName() + ".Configure",
-                         framework.getFrameworkName() + " SDK not found.",
-                         "<html><body>Module '" +
-                         module.getName() +
-                         "' has no " +
-                         framework.getFrameworkName() +
-                         " SDK. <a href='create'>Configure SDK</a></body></html>", NotificationType.INFORMATION,
-                         new NotificationListener.Adapter() {
-                           @Override
-                           protected void hyperlinkActivated(@NotNull Notification notification, @NotNull HyperlinkEvent e) {
-                             MvcConfigureNotification.configure(framework, module);
-                           }
-                         }).notify(project);
-      }
-    }
-    finally {
-      accessToken.finish();
+      new Notification(framework.getFrameworkName() + ".Configure",
+                       framework.getFrameworkName() + " SDK not found.",
+                       "<html><body>Module '" +
+                       module.getName() +
+                       "' has no " +
+                       framework.getFrameworkName() +
+                       " SDK. <a href='create'>Configure SDK</a></body></html>", NotificationType.INFORMATION,
+                       new NotificationListener.Adapter() {
+                         @Override
+                         protected void hyperlinkActivated(@NotNull Notification notification, @NotNull HyperlinkEvent e) {
+                           MvcConfigureNotification.configure(framework, module);
+                         }
+                       }).notify(project);
     }
   }
 